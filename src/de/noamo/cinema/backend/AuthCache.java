@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) DHBW Mannheim - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ * Written by Noah Hoelterhoff <noah.hoelterhoff@gmail.com>, 10 2026
+ */
+
+package de.noamo.cinema.backend;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Zwischenspeicher für aufgelöste AuthCodes. Zu jedem (gehashten) AuthCode wird das zugehörige Konto
+ * ({@code benutzerid}, {@code rolle} und {@code aktiv}) für {@value TTL} ms gespeichert, sodass angemeldete Anfragen den
+ * AuthCode nicht bei jedem Zugriff erneut über die Tabelle {@code authCodes} auflösen müssen.<br> Der Cache ist auf
+ * {@value MAX_ENTRIES} Einträge begrenzt. Ändert sich ein Konto (Deaktivierung, Passwort, Rolle), müssen dessen
+ * Einträge über {@link #invalidateBenutzer(int)} sofort entfernt werden.<br><br>
+ * Die AuthCodes sind zusätzlich nach Konto indiziert. Jede Invalidierung eines Kontos bekommt einen fortlaufenden
+ * Stempel; Einträge, deren Daten vor diesem Stempel gelesen wurden ({@link #stamp()}), werden nicht mehr aufgenommen.
+ *
+ * @author Noah Hoelterhoff
+ * @version 17.10.2026
+ * @since 17.10.2026
+ */
+abstract class AuthCache {
+    private final static int MAX_ENTRIES = 10000;
+    private final static int TTL = 300000; // 5 Minuten
+    private final static ConcurrentHashMap<String, Konto> tokens = new ConcurrentHashMap<>();
+    private final static ConcurrentHashMap<Integer, Benutzer> benutzer = new ConcurrentHashMap<>();
+    private final static AtomicLong clock = new AtomicLong();
+
+    /**
+     * Sucht das Konto zu einem AuthCode.
+     *
+     * @param pAuthHash md5-Hash des AuthCodes
+     * @return Das Konto oder {@code null}, falls der AuthCode nicht (mehr) im Cache liegt
+     */
+    static Konto get(String pAuthHash) {
+        Konto konto = tokens.get(pAuthHash);
+        if (konto == null) return null;
+        if (konto.isAbgelaufen(System.currentTimeMillis())) {
+            remove(pAuthHash, konto);
+            return null;
+        }
+        return konto;
+    }
+
+    /**
+     * Gibt den aktuellen Stempel zurück. Er muss gelesen werden, bevor die Daten eines Kontos aus der Datenbank gelesen
+     * werden, und wird danach an {@link #put(String, int, int, int, long)} übergeben.
+     */
+    static long stamp() {
+        return clock.get();
+    }
+
+    /**
+     * Legt das Konto zu einem AuthCode im Cache ab. Wurde das Konto seit dem mitgegebenen Stempel invalidiert, sind die
+     * Daten bereits veraltet und werden nicht aufgenommen.
+     *
+     * @param pAuthHash   md5-Hash des AuthCodes
+     * @param pBenutzerid ID des Kontos
+     * @param pRolle      Rolle des Kontos
+     * @param pAktiv      Aktiv-Code des Kontos (0 = inaktiv, 1 = aktiv, 2 = deaktiviert)
+     * @param pStamp      Stempel ({@link #stamp()}) von vor dem Lesen der Daten
+     * @return Das neue Konto-Objekt
+     */
+    static Konto put(String pAuthHash, int pBenutzerid, int pRolle, int pAktiv, long pStamp) {
+        if (tokens.size() >= MAX_ENTRIES) evict();
+        Konto konto = new Konto(pBenutzerid, pRolle, pAktiv, System.currentTimeMillis() + TTL);
+        // Prüfen und Eintragen passieren atomar zu invalidateBenutzer (gleicher Schlüssel in benutzer)
+        benutzer.compute(pBenutzerid, (k, b) -> {
+            if (b == null) b = new Benutzer();
+            if (b.invalidiert <= pStamp) {
+                tokens.put(pAuthHash, konto);
+                b.authHashes.add(pAuthHash);
+            }
+            return b;
+        });
+        return konto;
+    }
+
+    /**
+     * Entfernt alle AuthCodes eines Kontos aus dem Cache. Anfragen, die das Konto bereits vorher gelesen haben, können
+     * ihre (veralteten) Daten danach nicht mehr in den Cache legen.
+     *
+     * @param pBenutzerid ID des Kontos
+     */
+    static void invalidateBenutzer(int pBenutzerid) {
+        benutzer.compute(pBenutzerid, (k, b) -> {
+            if (b == null) b = new Benutzer();
+            b.invalidiert = clock.incrementAndGet();
+            for (String authHash : b.authHashes) tokens.remove(authHash);
+            b.authHashes.clear();
+            return b;
+        });
+    }
+
+    /**
+     * Schafft Platz im Cache. Zuerst werden abgelaufene Einträge entfernt. Falls das nicht reicht, werden beliebige
+     * Einträge entfernt, bis der Cache wieder zu drei Vierteln gefüllt ist.
+     */
+    private static void evict() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, Konto> entry : tokens.entrySet())
+            if (entry.getValue().isAbgelaufen(now)) remove(entry.getKey(), entry.getValue());
+        Iterator<Map.Entry<String, Konto>> iterator = tokens.entrySet().iterator();
+        while (tokens.size() > MAX_ENTRIES * 3 / 4 && iterator.hasNext()) {
+            Map.Entry<String, Konto> entry = iterator.next();
+            remove(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private static void remove(String pAuthHash, Konto pKonto) {
+        benutzer.computeIfPresent(pKonto.benutzerid, (k, b) -> {
+            if (tokens.remove(pAuthHash, pKonto)) b.authHashes.remove(pAuthHash);
+            // Konten, die nie invalidiert wurden, brauchen ohne AuthCodes keinen Eintrag mehr
+            return (b.authHashes.isEmpty() && b.invalidiert == 0) ? null : b;
+        });
+    }
+
+    /**
+     * Die AuthCodes eines Kontos im Cache und der Stempel seiner letzten Invalidierung (nur innerhalb von
+     * {@code benutzer.compute} verwendet).
+     */
+    private static final class Benutzer {
+        private final Set<String> authHashes = new HashSet<>();
+        private long invalidiert;
+    }
+
+    /**
+     * Die im Cache gespeicherten Daten eines Kontos.
+     */
+    static final class Konto {
+        final int benutzerid, rolle, aktiv;
+        private final long bis;
+
+        private Konto(int pBenutzerid, int pRolle, int pAktiv, long pBis) {
+            benutzerid = pBenutzerid;
+            rolle = pRolle;
+            aktiv = pAktiv;
+            bis = pBis;
+        }
+
+        private boolean isAbgelaufen(long pNow) {
+            return pNow >= bis;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) DHBW Mannheim - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ * Written by Noah Hoelterhoff <noah.hoelterhoff@gmail.com>, 10 2026
+ */
+
+package de.noamo.cinema.backend;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Eine fertig serialisierte Antwort für gecachte GET-Endpunkte. Der Inhalt liegt bereits als UTF-8-Bytes und
+ * zusätzlich gzip-komprimiert vor, sodass pro Anfrage weder serialisiert noch komprimiert werden muss. Der Hash (SHA-256
+ * des unkomprimierten Inhalts) dient als starker ETag.
+ *
+ * @author Noah Hoelterhoff
+ * @version 17.10.2026
+ * @since 17.10.2026
+ */
+final class CachedResponse {
+    final byte[] identity;
+    final byte[] gzip;
+    final String hash;
+
+    /**
+     * Erstellt eine Antwort aus bereits serialisierten Bytes.
+     *
+     * @param pIdentity Der unkomprimierte Inhalt
+     * @param pHash     Der SHA-256-Hash des Inhalts (64 Hex-Zeichen)
+     */
+    CachedResponse(byte[] pIdentity, String pHash) {
+        identity = pIdentity;
+        hash = pHash;
+        byte[] compressed = compress(pIdentity);
+        // Nur komprimiert ausliefern, wenn es sich lohnt (bei sehr kleinen Inhalten wird gzip größer)
+        gzip = (compressed.length < pIdentity.length ? compressed : null);
+    }
+
+    /**
+     * Erstellt eine Antwort aus einem Json-String.
+     *
+     * @param pJson Der Inhalt als Json
+     * @return Die fertig serialisierte Antwort
+     */
+    static CachedResponse of(String pJson) {
+        byte[] bytes = pJson.getBytes(StandardCharsets.UTF_8);
+        return new CachedResponse(bytes, DigestUtils.sha256Hex(bytes));
+    }
+
+    private static byte[] compress(byte[] pBytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(pBytes.length / 4 + 32);
+        try (GZIPOutputStream gzipOut = new GZIPOutputStream(out)) {
+            gzipOut.write(pBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) DHBW Mannheim - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ * Written by Noah Hoelterhoff <noah.hoelterhoff@gmail.com>, 10 2026
+ */
+
+package de.noamo.cinema.backend;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Schützt Aufrufe an einen externen Dienst (z.B. PayPal). Nach {@code failureThreshold} aufeinanderfolgenden Fehlern
+ * wird der Schalter geöffnet ({@link State#OPEN}) und weitere Aufrufe schlagen für {@code openMillis} ms sofort fehl,
+ * ohne den Dienst zu belasten. Danach wird genau ein Probeaufruf durchgelassen ({@link State#HALF_OPEN}): Ist er
+ * erfolgreich, wird der Schalter wieder geschlossen, sonst erneut geöffnet.<br> Zustandswechsel werden geloggt und
+ * zusammen mit den Latenzen über {@link #getStats()} ausgegeben.
+ *
+ * @author Noah Hoelterhoff
+ * @version 17.10.2026
+ * @since 17.10.2026
+ */
+final class CircuitBreaker {
+    private final String name;
+    private final int failureThreshold;
+    private final long openMillis;
+    private final AtomicLong calls = new AtomicLong(), failures = new AtomicLong(), rejected = new AtomicLong(),
+            transitions = new AtomicLong(), latencyNanos = new AtomicLong(), maxLatencyNanos = new AtomicLong();
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probeRunning;
+
+    /**
+     * @param pName             Name des Dienstes (für Logs und Statistiken)
+     * @param pFailureThreshold Anzahl an aufeinanderfolgenden Fehlern, nach denen der Schalter öffnet
+     * @param pOpenMillis       Wie lange der Schalter geöffnet bleibt, bevor ein Probeaufruf erlaubt wird (in ms)
+     */
+    CircuitBreaker(String pName, int pFailureThreshold, long pOpenMillis) {
+        name = pName;
+        failureThreshold = pFailureThreshold;
+        openMillis = pOpenMillis;
+    }
+
+    /**
+     * Führt einen Aufruf über den Schalter aus.
+     *
+     * @param pCall Der Aufruf
+     * @return Das Ergebnis des Aufrufs
+     * @throws IOException Falls der Aufruf fehlschlägt oder der Schalter geöffnet ist ({@link OpenException})
+     */
+    <T> T call(Call<T> pCall) throws IOException {
+        boolean probe = acquire();
+        long start = System.nanoTime();
+        try {
+            T result = pCall.call();
+            record(start);
+            onSuccess(probe);
+            return result;
+        } catch (IOException | RuntimeException e) {
+            record(start);
+            failures.incrementAndGet();
+            onFailure(probe);
+            throw e;
+        }
+    }
+
+    /**
+     * Gibt den aktuellen Zustand zurück.
+     */
+    synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Gibt die Statistiken des Schalters zurück.
+     */
+    String getStats() {
+        long c = calls.get();
+        return name + ": state=" + getState() + ", calls=" + c + ", failures=" + failures.get() + ", rejected=" +
+                rejected.get() + ", transitions=" + transitions.get() + ", avgLatencyMs=" +
+                (c == 0 ? 0 : latencyNanos.get() / c / 1000000) + ", maxLatencyMs=" + maxLatencyNanos.get() / 1000000;
+    }
+
+    /**
+     * Prüft, ob ein Aufruf erlaubt ist.
+     *
+     * @return Ob der Aufruf der Probeaufruf ist
+     */
+    private synchronized boolean acquire() throws OpenException {
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openMillis) transition(State.HALF_OPEN);
+        if (state == State.OPEN || (state == State.HALF_OPEN && probeRunning)) {
+            rejected.incrementAndGet();
+            throw new OpenException(name + " ist nicht verfügbar (Circuit Breaker geöffnet)");
+        }
+        if (state == State.HALF_OPEN) {
+            probeRunning = true;
+            return true;
+        }
+        return false;
+    }
+
+    private synchronized void onSuccess(boolean pProbe) {
+        consecutiveFailures = 0;
+        if (pProbe) {
+            probeRunning = false;
+            transition(State.CLOSED);
+        }
+    }
+
+    private synchronized void onFailure(boolean pProbe) {
+        if (pProbe) probeRunning = false;
+        if (pProbe || ++consecutiveFailures >= failureThreshold && state == State.CLOSED) {
+            openedAt = System.currentTimeMillis();
+            transition(State.OPEN);
+        }
+    }
+
+    private void transition(State pState) {
+        if (state == pState) return;
+        transitions.incrementAndGet();
+        Start.log(pState == State.OPEN ? 2 : (pState == State.CLOSED ? 1 : 0), "Circuit Breaker " + name + ": " + state + " -> " + pState);
+        state = pState;
+    }
+
+    private void record(long pStart) {
+        long dauer = System.nanoTime() - pStart;
+        calls.incrementAndGet();
+        latencyNanos.addAndGet(dauer);
+        maxLatencyNanos.accumulateAndGet(dauer, Math::max);
+    }
+
+    /**
+     * Zustand des Schalters.
+     */
+    enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /**
+     * Ein Aufruf an den geschützten Dienst.
+     */
+    @FunctionalInterface
+    interface Call<T> {
+        T call() throws IOException;
+    }
+
+    /**
+     * Wird geworfen, wenn ein Aufruf wegen des geöffneten Schalters abgelehnt wird.
+     */
+    static final class OpenException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        OpenException(String pMessage) {
+            super(pMessage);
+        }
+    }
+}
@@ -12,15 +12,22 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonWriter;
 import de.noamo.cinema.backend.exceptions.*;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.dbcp2.BasicDataSource;
+import spark.serialization.StreamingBody;
 
 import java.io.IOException;
 import java.sql.*;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
 import java.util.Random;
 import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
 
 /**
  * Ist zuständig für die Verbindung zur Datenbank und für Aktionen, die dort ausgeführt werden. Die Verbindungen werden
@@ -31,17 +38,37 @@ import java.util.UUID;
  * @since 05.09.2020
  */
 abstract class DataBase {
+    private final static int MAX_HOLD_MINUTES = 15;
+    private final static int MAX_HOLD_SEATS = 10; // Pro Anfrage und pro AuthCode in einer Vorstellung
     private final static int MIN_PASSWORD_LENGTH = 9;
     private final static int DPCP2_MAX_CON_IDLE = 6;
     private final static int DPCP2_MAX_OPEN_STATEMENTS = 50;
     private final static int DPCP2_MIN_CON_IDLE = 1;
-    private final static int TTL_KATEGORIEN = 21600000; // 6 Stunden
-    private final static int TTL_MOVIE_LIST = 1800000; // 30 Minuten
-    private final static int TTL_SAELE = 43200000; // 12 Stunden
+    private final static int ORDER_LOCK_STRIPES = 64;
+    private final static int DEFAULT_HOLD_MINUTES = 10;
+    private final static int DEFAULT_ORDER_PAGE = 20;
+    private final static int MAX_ORDER_PAGE = 100;
+    private final static int TTL_KATEGORIEN = 86400000; // 24 Stunden
+    private final static int TTL_MOVIE_LIST = 21600000; // 6 Stunden
+    private final static int TTL_SAELE = 604800000; // 7 Tage
+    private final static int TTL_VORSTELLUNGEN = 3600000; // 1 Stunde
+    private final static Pattern SAAL_HASH = Pattern.compile("^[0-9a-f]{64}$");
+    private final static ReentrantLock[] orderLocks = new ReentrantLock[ORDER_LOCK_STRIPES];
+    private final static LoadingCache<Integer, JsonArray> categories = new LoadingCache<>("kategorien", TTL_KATEGORIEN, k -> getKategorien());
+    private final static LoadingCache<Integer, CachedResponse> categoriesResponse = new LoadingCache<>("kategorien-response", TTL_KATEGORIEN, k -> CachedResponse.of(getKategorien().toString()));
+    private final static LoadingCache<Integer, CachedResponse> movies = new LoadingCache<>("filme", TTL_MOVIE_LIST, k -> CachedResponse.of(getAktiveFilme()));
+    private final static LoadingCache<Integer, ShowtimeIndex> showtimes = new LoadingCache<>("vorstellungen", TTL_VORSTELLUNGEN, k -> loadShowtimes());
+    private final static LoadingCache<Integer, CachedResponse> saele = new LoadingCache<>("saele", TTL_SAELE, k -> CachedResponse.of(getAllSaele()));
     private static BasicDataSource basicDataSource;
-    private static CacheObject<JsonArray> categories;
-    private static CacheObject<String> movies;
-    private static CacheObject<String> saele;
+
+    static {
+        for (int i = 0; i < orderLocks.length; i++) orderLocks[i] = new ReentrantLock();
+        InvalidationBus.subscribe(categories::invalidateAll, "kategorien");
+        InvalidationBus.subscribe(categoriesResponse::invalidateAll, "kategorien");
+        InvalidationBus.subscribe(movies::invalidateAll, "filme");
+        InvalidationBus.subscribe(saele::invalidateAll, "kinosaele");
+        InvalidationBus.subscribe(showtimes::invalidateAll, "vorstellungen", "kinosaele");
+    }
 
     /**
      * Die Methode aktiviert einen Account mit einem Aktivierungsschlüssel. Dieser Aktiverungsschlüssel befindet sich in
@@ -65,6 +92,7 @@ abstract class DataBase {
             if (preparedStatement1.executeUpdate() == 0) throw new NotFoundException("Ungültiger Aktivierungscode!");
             else preparedStatement2.executeUpdate();
         }
+        InvalidationBus.publish("konten", "aktivierungsSchluessel");
     }
 
     /**
@@ -75,10 +103,19 @@ abstract class DataBase {
      * @throws NotActiveException Falls das Konto nicht aktiv ist
      */
     private static void aktivBarriere(ResultSet resultSet) throws SQLException, NotActiveException {
-        int aktivCode = resultSet.getInt("aktiv");
-        if (aktivCode != 1)
+        aktivBarriere(resultSet.getInt("aktiv"));
+    }
+
+    /**
+     * Blockt alle Anfragen, bei denen ein Konto nicht aktiv ist.
+     *
+     * @param pAktivCode Der Aktiv-Code des Kontos (0 = inaktiv, 1 = aktiv, 2 = deaktiviert)
+     * @throws NotActiveException Falls das Konto nicht aktiv ist
+     */
+    private static void aktivBarriere(int pAktivCode) throws NotActiveException {
+        if (pAktivCode != 1)
             throw new NotActiveException(
-                    "Das Konto wurde " + (aktivCode == 0 ? "noch nicht aktiviert!" : "deaktiviert!"));
+                    "Das Konto wurde " + (pAktivCode == 0 ? "noch nicht aktiviert!" : "deaktiviert!"));
     }
 
     /**
@@ -91,39 +128,66 @@ abstract class DataBase {
      * @throws UnauthorisedException Falls der Nutzer für diese Aktion nicht autorisiert ist
      */
     private static void authorizationBarriere(String authCode, int pLevel) throws SQLException, BadRequestException, UnauthorisedException, NotActiveException {
+        // Zugehöriges Konto finden & prüfen
+        AuthCache.Konto konto = resolveAuthCode(null, authCode);
+        aktivBarriere(konto.aktiv);
+
+        // Prüfen, ob die Autorisierungsstufe des Kontos hoch genug ist
+        if (konto.rolle < pLevel)
+            throw new UnauthorisedException("Keine ausreichenden Rechte! Benoetigt wird Stufe " +
+                    pLevel + ". Sie haben: " + konto.rolle);
+    }
+
+    /**
+     * Löst einen AuthCode zu dem zugehörigen Konto auf. Dabei wird zuerst der {@link AuthCache} gefragt, nur falls
+     * der AuthCode dort nicht liegt, wird die Datenbank abgefragt.
+     *
+     * @param pConnection Eine offene Verbindung zu der Datenbank (oder {@code null}, dann wird bei Bedarf eine neue
+     *                    Verbindung aus dem Pool verwendet)
+     * @param pAuthCode   Ein AuthCode, mit dem der Benutzer sich identifizieren kann
+     * @return Das Konto zu dem AuthCode
+     * @throws SQLException          Falls ein Problem in der Verbindung zu der Datenbank vorliegt
+     * @throws BadRequestException   Falls kein AuthCode mitgegeben wurde oder er ein ungültiges Format hat
+     * @throws UnauthorisedException Falls der AuthCode ungültig ist
+     */
+    private static AuthCache.Konto resolveAuthCode(Connection pConnection, String pAuthCode) throws SQLException, BadRequestException, UnauthorisedException {
         // Parameterprüfung
-        if (authCode == null) throw new BadRequestException("Es wurde kein AuthCode bereigestellt");
-        if (authCode.length() != 36)
+        if (pAuthCode == null) throw new BadRequestException("Es wurde kein AuthCode bereigestellt");
+        if (pAuthCode.length() != 36)
             throw new BadRequestException("Ungültiger AuthCode (ein gültiger Auth-Code hat 36 Zeichen)");
 
-        // Zugehöriges Konto finden
-        try (Connection connection = basicDataSource.getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement("SELECT rolle, aktiv FROM konten " +
-                     "WHERE benutzerid=(SELECT benutzerid FROM authCodes WHERE auth_code='" + DigestUtils.md5Hex(authCode) + "');");
-             ResultSet resultSet = preparedStatement.executeQuery()) {
-
-            // Konto prüfen
-            if (!resultSet.next()) throw new UnauthorisedException("Account mit diesen Anmeldedaten nicht gefunden");
-            aktivBarriere(resultSet);
+        String authHash = DigestUtils.md5Hex(pAuthCode);
+        AuthCache.Konto konto = AuthCache.get(authHash);
+        if (konto != null) return konto;
+        if (pConnection != null) return loadAuthCode(pConnection, authHash);
+        try (Connection connection = basicDataSource.getConnection()) {
+            return loadAuthCode(connection, authHash);
+        }
+    }
 
-            // Prüfen, ob die Autorisierungsstufe des Kontos hoch genug ist
-            if (resultSet.getInt("rolle") < pLevel)
-                throw new UnauthorisedException("Keine ausreichenden Rechte! Benoetigt wird Stufe " +
-                        pLevel + ". Sie haben: " + resultSet.getInt("rolle"));
+    private static AuthCache.Konto loadAuthCode(Connection pConnection, String pAuthHash) throws SQLException, UnauthorisedException {
+        long stamp = AuthCache.stamp();
+        try (PreparedStatement preparedStatement = pConnection.prepareStatement("SELECT konten.benutzerid, rolle, aktiv " +
+                "FROM authCodes INNER JOIN konten ON authCodes.benutzerid = konten.benutzerid WHERE auth_code = ?")) {
+            preparedStatement.setString(1, pAuthHash);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                if (!resultSet.next()) throw new UnauthorisedException("AuthCode ungültig!");
+                return AuthCache.put(pAuthHash, resultSet.getInt("benutzerid"), resultSet.getInt("rolle"), resultSet.getInt("aktiv"), stamp);
+            }
         }
     }
 
     /**
      * <b>!!Wichtig: Aktuell werden nur MySQL und MariaDB Datenbanken unterstützt!</b><br><br>
-     * Stellt eine Verbindung zu der Datenbank her und erstellt ggf. fehlende Tabellen in dieser (über die Methode
-     * {@link DataBase#dataBaseSetup(Connection)})
+     * Stellt eine Verbindung zu der Datenbank her und bringt das Schema auf den aktuellen Stand (über
+     * {@link SchemaMigrations#migrate(Connection)})
      *
      * @param pUrl Die vollständige JDBC-URL der Datenbank (inkl. Passwort, Username, etc.)
      * @throws SQLException Falls keine Verbindung hergestellt werden kann oder beim Setup Probleme auftreten
      */
     static void connect(String pUrl) throws SQLException {
         try (Connection connection = DriverManager.getConnection(pUrl)) {
-            dataBaseSetup(connection);
+            SchemaMigrations.migrate(connection);
         }
 
         basicDataSource = new BasicDataSource(); // Connection Pool
@@ -151,18 +215,56 @@ abstract class DataBase {
                 temp.addProperty("name", rs.getString("name"));
                 json.add(temp);
             }
-            saele = new CacheObject<>(json.toString(), TTL_SAELE);
             return json.toString();
         }
     }
 
     /**
      * Hat die selbe Funktion wie {@link DataBase#getAllSaele()}, fragt die Daten aber nicht gewzungenermaßen aus der
-     * Datenbank ab, sondern versucht ein gecachtes Objekt zu verwenden.
+     * Datenbank ab, sondern versucht ein gecachtes Objekt zu verwenden. Die Antwort ist bereits fertig serialisiert.
      */
-    static String getAllSaeleCached() throws SQLException {
-        if (saele == null || saele.isNotAlive()) return getAllSaele();
-        return saele.cache;
+    static CachedResponse getAllSaeleCached() throws SQLException {
+        return saele.get(0);
+    }
+
+    /**
+     * Fragt die Statistiken (Treffer, Fehlschläge, Ladezeiten) aller Caches ab.
+     *
+     * @param pAuthCode Ein AuthCode eines Kontos mit mindestens Stufe 700
+     * @return Die Statistiken als Text (eine Zeile pro Cache)
+     * @throws SQLException          Falls ein Problem in der Verbindung zu der Datenbank vorliegt
+     * @throws BadRequestException   Falls der AuthCode ein ungültiges Format hat
+     * @throws UnauthorisedException Falls der Nutzer für diese Aktion nicht autorisiert ist
+     * @throws NotActiveException    Falls das Konto nicht aktiv ist
+     */
+    static String getCacheStats(String pAuthCode) throws SQLException, BadRequestException, UnauthorisedException, NotActiveException {
+        authorizationBarriere(pAuthCode, 700);
+        return categories.getStats() + System.lineSeparator() + categoriesResponse.getStats() + System.lineSeparator() +
+                movies.getStats() + System.lineSeparator() + saele.getStats() + System.lineSeparator() + showtimes.getStats() +
+                System.lineSeparator() + Mail.getStats() + System.lineSeparator() + MailRelay.getStats() +
+                System.lineSeparator() + Start.getLogStats() +
+                System.lineSeparator() + PaymentVerifier.getStats() +
+                System.lineSeparator() + PayPal.getStats();
+    }
+
+    /**
+     * Meldet eine Tabelle über den {@link InvalidationBus} als geändert, sodass alle abhängigen Caches verworfen werden.
+     * Das ist für Tabellen gedacht, die außerhalb des Backends geändert werden (z.B. {@code filme} und
+     * {@code kategorien}).
+     *
+     * @param pAuthCode Ein AuthCode eines Kontos mit mindestens Stufe 700
+     * @param pTable    Der Name der Tabelle
+     * @return Eine Bestätigung
+     * @throws SQLException          Falls ein Problem in der Verbindung zu der Datenbank vorliegt
+     * @throws BadRequestException   Falls der AuthCode oder der Tabellenname ein ungültiges Format hat
+     * @throws UnauthorisedException Falls der Nutzer für diese Aktion nicht autorisiert ist
+     * @throws NotActiveException    Falls das Konto nicht aktiv ist
+     */
+    static String invalidateTable(String pAuthCode, String pTable) throws SQLException, BadRequestException, UnauthorisedException, NotActiveException {
+        authorizationBarriere(pAuthCode, 700);
+        if (!pTable.matches("^[A-Za-z]{1,64}$")) throw new BadRequestException("Ungültiger Tabellenname");
+        InvalidationBus.publish(pTable);
+        return "Caches für " + pTable + " wurden verworfen";
     }
 
     /**
@@ -203,6 +305,7 @@ abstract class DataBase {
                     "benutzerid, aktivierungs_schluessel) VALUES ((SELECT benutzerid FROM konten WHERE email = '" + pEmail +
                     "'), '" + uuid + "');")) {
                 preparedStatement2.executeUpdate();
+                InvalidationBus.publish("konten", "aktivierungsSchluessel");
                 return uuid;
             }
         } catch (SQLIntegrityConstraintViolationException e) {
@@ -211,154 +314,6 @@ abstract class DataBase {
         }
     }
 
-    /**
-     * Erstellt die benötigen Tabellen, falls diese noch nicht existieren. Ebenfalls wird ein initialer Admin Account
-     * erstellt, der dafür da ist, das Admin Panl zu öffnen und die Starteinstellungen vor zu nehmen.
-     *
-     * @param pConnection Die Verbindung zu der Datenbank
-     */
-    private static void dataBaseSetup(Connection pConnection) throws SQLException {
-        // --- Kinosäle ---
-        pConnection.prepareStatement("CREATE TABLE IF NOT EXISTS kinosaele(" +
-                "saalid INT UNSIGNED NOT NULL AUTO_INCREMENT, " + // Eindeutige ID eines Kinosaals
-                "name VARCHAR(20) NOT NULL, " + // Der Name des Kinosaals
-                "width INT NOT NULL, " + // Die Breite des Saals in Pixeln
-                "height INT NOT NULL, " + // Die Höhe des Saals in Pixeln
-                "PRIMARY KEY (saalid)," + // SaalId als eindeutiger Schlüssel
-                "UNIQUE (name));").executeUpdate(); // Saalname als eindeutige Bezeichnung
-
-        pConnection.prepareStatement("CREATE TABLE IF NOT EXISTS kategorien(" +
-                "kategorieid INT UNSIGNED NOT NULL AUTO_INCREMENT, " + // Eindeutige ID für die Kategorie
-                "name VARCHAR(20) NOT NULL, " + // Name der Kategorie
-                "aufpreis DECIMAL(4,2) NOT NULL, " + // Aufpreis für dies Kategorie (z.B. +0.5 für 50ct teurer; negativ möglich)
-                "faktor DOUBLE UNSIGNED NOT NULL, " + // Faktor für einen Sitzplatz (z.B. 2 für doppelt so teuer wie normal)
-                "width INT UNSIGNED NOT NULL, " + // Breite eines Sitzes in Pixeln
-                "height INT UNSIGNED NOT NULL ," + // Höhe eines Sitzes in Pixeln
-                "color_hex VARCHAR(6) NOT NULL," + // HEX-Farbcode des Sitzes
-                "icon TEXT, " + // Icon für die Sitzplatzkategorie
-                "PRIMARY KEY (kategorieid), " + // kategorieid als eindeutiger Schlüssel
-                "UNIQUE (name));").executeUpdate(); // Name als eindeutige Bezeichnung (da es sonst zu Verwirrungen kommt)
-
-        pConnection.prepareStatement("CREATE TABLE IF NOT EXISTS saalPlaetze(" +
-                "platzid INT UNSIGNED NOT NULL AUTO_INCREMENT, " + // Eindeutige ID für jeden Platz
-                "saalid INT UNSIGNED NOT NULL, " + // Referenz auf den Saal, in dem der Platz ist
-                "kategorieid INT UNSIGNED NOT NULL," + // Referenz auf die Kategorie, zu der der Saal gehört
-                "reihe VARCHAR(1) NOT NULL, " + // Reihe des Platzes (für die Verständlichkeit bei Menschen)
-                "platz INT(2) NOT NULL, " + // Sitz des Platzes (für die Verständlichkeit bei Menschen)
-                "x INT UNSIGNED NOT NULL, " + // x-Koordinate des Platzes (ausgeend von der linken oberen Ecke)
-                "y INT UNSIGNED NOT NULL, " + // y-Koordinate des Platzes (ausgeend von der linken oberen Ecke)
-                "PRIMARY KEY (platzid), " + // Platz ID des eindeutiger Schlüssel
-                "UNIQUE (saalid,reihe,platz), " + // Eindeutige Kombination aus Saal Reihe und Platz (um Verwechlungen zu vermeiden)
-                "FOREIGN KEY (saalid) REFERENCES kinosaele(saalid), " +
-                "FOREIGN KEY (kategorieid) REFERENCES kategorien(kategorieid));").executeUpdate();
-
-        // --- Konten ---
-        pConnection.prepareStatement("CREATE TABLE IF NOT EXISTS konten(" +
-                "benutzerid INT UNSIGNED NOT NULL AUTO_INCREMENT, " + // Eindeutige ID des Benutzers
-                "rolle INT(3) UNSIGNED NOT NULL DEFAULT 0, " + // Rolle des Nutzers (spielt für den Zugriff eine Rolle)
-                "aktiv TINYINT(1) UNSIGNED NOT NULL DEFAULT 0, " + // Ob das Konto inaktiv(0), aktiv(1), deaktiviert(2) ist
-                "erstellt DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP, " + // Erstellungszeitpunkt des Accounts
-                "passwort VARCHAR(50) NOT NULL, " + // Das Passwort (für die Anmeldung)
-                "email VARCHAR(254) NOT NULL, " + // Eine Email-Adresse des Benutzers (für Infos über Probleme)
-                "name VARCHAR(60) NOT NULL, " + // Der Name der Person
-                "PRIMARY KEY (benutzerid), " + // Eindeutige ID des Benutzers als Key
-                "UNIQUE (email));").executeUpdate(); // Email einzigartig (da sie zur Anmeldung dient)
-
-        pConnection.prepareStatement("CREATE TABLE IF NOT EXISTS authCodes(" +
-                "benutzerid INT UNSIGNED NOT NULL, " + // Referenz auf die eindeutige ID des Benutzers
-                "auth_code VARCHAR(36) NOT NULL, " + // Der Autorisierungscode des Benutzers
-                "erstellt DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP, " + // Erstellungszeitpunkt des Codes
-                "FOREIGN KEY (benutzerid) REFERENCES konten(benutzerid), " +
-                "UNIQUE (auth_code));").executeUpdate(); // Der AuthCode muss eindeutig sein um Fehler zu verhindern
-
-        pConnection.prepareStatement("CREATE TABLE IF NOT EXISTS aktivierungsSchluessel(" +
-                "benutzerid INT UNSIGNED NOT NULL, " + // Referenz auf die eindeutige ID des Benutzers
-                "aktivierungs_schluessel VARCHAR(36) NOT NULL, " + // Aktivierungsschlüssel für das Konto
-                "erstellt DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP, " + // Zeitpunkt der Erstellung des Schlüssels
-                "UNIQUE (aktivierungs_schluessel), " + // Der Schlüssel muss eindeutig sein
-                "FOREIGN KEY (benutzerid) REFERENCES konten(benutzerid));").executeUpdate();
-
-        pConnection.prepareStatement("CREATE TABLE IF NOT EXISTS adressen(" +
-                "adressenid INT UNSIGNED NOT NULL AUTO_INCREMENT, " +
-                "benutzerid INT UNSIGNED NOT NULL, " + // Eindeutige ID des Benutzers, zu dem dise Adresse gehört
-                "erstellt DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP, " + // Zeitpunkt des Hinzufügens der Adresse
-                "anrede VARCHAR(30) NOT NULL, " + // Anrede ("Herr"/"Frau" + ggf. "Dr." oder "Prof.) der Person an der Rechnungsadresse
-                "name VARCHAR(50) NOT NULL, " + // Der Name der Person an der Rechnungsadresse
-                "strasse VARCHAR(100) NOT NULL, " + // Straße inkl. Hausnummer
-                "plz INT(5) NOT NULL, " + // PLZ der Adresse
-                "stadt VARCHAR(30) NOT NULL, " + // Stadt der Adresse
-                "telefon VARCHAR(20), " +
-                "PRIMARY KEY (adressenid), " + // Telefonnummer der Rechnungsadresse
-                "FOREIGN KEY (benutzerid) REFERENCES konten(benutzerid));").executeUpdate();
-
-        pConnection.prepareStatement("CREATE TABLE IF NOT EXISTS changeEmail(" +
-                "benutzerid INT UNSIGNED NOT NULL, " +
-                "neue_email VARCHAR(254) NOT NULL, " +
-                "alte_email_key INT(5) UNSIGNED NOT NULL, " +
-                "neue_email_key INT(5) UNSIGNED NOT NULL, " +
-                "erstellt DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP, " +
-                "UNIQUE (benutzerid), " + // Zeitpunkt des Hinzufügens der Keys
-                "FOREIGN KEY (benutzerid) REFERENCES konten(benutzerid));").executeUpdate();
-
-        // --- Filme ---
-        pConnection.prepareStatement("CREATE TABLE IF NOT EXISTS filme(" +
-                "filmid INT UNSIGNED NOT NULL AUTO_INCREMENT, " + // Eindeutige ID des Films
-                "name VARCHAR(100) NOT NULL, " + // Name des Films
-                "bild_link TEXT NOT NULL, " + // Link zu dem Cover des Films
-                "hintergrund_bild_link TEXT NOT NULL, " + // Link zu einem Hintergundbild für den Film
-                "trailer_youtube VARCHAR(11) NOT NULL, " + // YouTube-ID des Trailers
-                "kurze_beschreibung TEXT NOT NULL, " + // Kurzbeschreibung des Films
-                "beschreibung TEXT NOT NULL, " + // Lange Beschreibung des Films
-                "fsk TINYINT(2) UNSIGNED NOT NULL, " + // FSK Angabe des Films
-                "dauer TINYINT UNSIGNED NOT NULL," + // Dauer des Films in Minuten
-                "land VARCHAR(20) NOT NULL, " + // Produktionsland des Films
-                "filmstart DATE NOT NULL, " + // Startzeitpunkt des Films
-                "empfohlen BIT NOT NULL DEFAULT 0, " + // Ob der Film empfohlen wird, oder nicht
-                "aktiv BIT NOT NULL DEFAULT 1, " + // Ob der Film aktuell aktiv ist (oder nur noch für ehmalige Bestellungen)
-                "PRIMARY KEY (filmid));").executeUpdate();
-
-        pConnection.prepareStatement("CREATE TABLE IF NOT EXISTS vorstellungen(" +
-                "vorstellungsid INT UNSIGNED NOT NULL AUTO_INCREMENT, " + // Eindeutige ID der Vorstellung
-                "filmid INT UNSIGNED NOT NULL, " + // Referenz auf dem Film
-                "saalid INT UNSIGNED NOT NULL, " + // Referenz auf den Saal
-                "basis_preis DOUBLE UNSIGNED NOT NULL, " + // Preis für den günstigsten Platz
-                "vorstellungsbeginn DATETIME NOT NULL, " + // Zeitpunkt, zu dem die Vorstellung beginnt
-                "3d bit NOT NULL DEFAULT 0, " +
-                "PRIMARY KEY (vorstellungsid), " +
-                "FOREIGN KEY (filmid) REFERENCES filme(filmid), " +
-                "FOREIGN KEY (saalid) REFERENCES kinosaele(saalid)" +
-                ");").executeUpdate();
-
-        pConnection.prepareStatement("CREATE TABLE IF NOT EXISTS bestellungen(" +
-                "bestellnummer INT UNSIGNED NOT NULL AUTO_INCREMENT, " +
-                "vorstellungsid INT UNSIGNED NOT NULL, " +
-                "benutzerid INT UNSIGNED NOT NULL, " +
-                "anrede VARCHAR(30) NOT NULL, " + // Anrede ("Herr"/"Frau" + ggf. "Dr." oder "Prof.) der Person an der Rechnungsadresse
-                "name VARCHAR(50) NOT NULL, " + // Der Name der Person an der Rechnungsadresse
-                "strasse VARCHAR(100) NOT NULL, " + // Straße inkl. Hausnummer
-                "plz INT(5) NOT NULL, " + // PLZ der Adresse
-                "stadt VARCHAR(30) NOT NULL, " + // Stadt der Adresse
-                "telefon VARCHAR(20), " + // Telefonnummer der Rechnungsadresse
-                "preis DOUBLE NOT NULL, " +
-                "bezahlt BIT(1) NOT NULL DEFAULT 0, " +
-                "PRIMARY KEY (bestellnummer), " +
-                "FOREIGN KEY (benutzerid) REFERENCES konten(benutzerid), " +
-                "FOREIGN KEY (vorstellungsid) REFERENCES vorstellungen(vorstellungsid)" +
-                ");").executeUpdate();
-
-        pConnection.prepareStatement("CREATE TABLE IF NOT EXISTS bestellungPlaetze(" +
-                "bestellnummer INT UNSIGNED NOT NULL, " +
-                "platzid INT UNSIGNED NOT NULL, " +
-                "UNIQUE (platzid, bestellnummer)" +
-                ");").executeUpdate();
-
-        try (PreparedStatement ps_adminAccount = pConnection.prepareStatement("INSERT INTO konten(passwort, name, " +
-                "email, rolle, aktiv) VALUES ('" + DigestUtils.md5Hex("Initial123") + "', 'Admin', 'info@noamo.de', 999, 1);")) {
-            ps_adminAccount.executeUpdate();
-        } catch (SQLIntegrityConstraintViolationException ignored) {
-        } // Tritt immer auf, wenn der Admin Account schon existiert
-    }
-
     /**
      * Fragt eine Filmübersicht ab. Ein Beispiel für eine Rückgabe ist:<br>
      * <pre>{@code {
@@ -414,18 +369,16 @@ abstract class DataBase {
                 list.add(temp);
             }
 
-            // Neues JsonObjekt in den Cache speichern
-            movies = new CacheObject<>(json.toString(), TTL_MOVIE_LIST);
-            return movies.cache;
+            return json.toString();
         }
     }
 
     /**
-     * Fragt eine aktuelle ggf. gecachde Variante von {@link DataBase#getAktiveFilme()} ab.
+     * Fragt eine aktuelle ggf. gecachde (und bereits fertig serialisierte) Variante von {@link DataBase#getAktiveFilme()}
+     * ab.
      */
-    static String getAktiveFilmeCached() throws SQLException {
-        if (movies == null || movies.isNotAlive()) return getAktiveFilme();
-        return movies.cache;
+    static CachedResponse getAktiveFilmeCached() throws SQLException {
+        return movies.get(0);
     }
 
     /**
@@ -447,10 +400,10 @@ abstract class DataBase {
             int oldEmailKey = pJsonObject.get("oldEmailKey").getAsInt();
             try (Connection connection = basicDataSource.getConnection();
                  PreparedStatement preparedStatement1 = connection.prepareStatement("SELECT benutzerid, neue_email, neue_email_key, alte_email_key FROM changeEmail " +
-                         "WHERE benutzerid=(SELECT benutzerid FROM authCodes WHERE auth_code = '" + DigestUtils.md5Hex(pAuthCode) + "');");
+                         "WHERE benutzerid=" + resolveAuthCode(connection, pAuthCode).benutzerid + ";");
                  ResultSet resultSet = preparedStatement1.executeQuery()) {
 
-                if (!resultSet.next()) throw new UnauthorisedException("AuthCode ungültig");
+                if (!resultSet.next()) throw new UnauthorisedException("Es wurde keine Änderung der Email-Adresse angefordert");
                 if (newEmailKey != resultSet.getInt("neue_email_key"))
                     throw new ConflictException("Key für die neue Email ungültig!");
                 if (oldEmailKey != resultSet.getInt("alte_email_key"))
@@ -472,6 +425,7 @@ abstract class DataBase {
                     preparedStatement2.executeUpdate();
                 }
             }
+            InvalidationBus.publish("konten", "changeEmail");
             return "Email wurde geändert";
         } catch (NullPointerException | ClassCastException exception) {
             throw new BadRequestException("Es wurden nicht alle Attribute erfolgreich mitgegeben. Notwendig sind (als Integer)" +
@@ -504,8 +458,8 @@ abstract class DataBase {
 
             try (Connection connection = basicDataSource.getConnection();
                  PreparedStatement preparedStatement1 = connection.prepareStatement("SELECT benutzerid, email, name " +
-                         "FROM konten WHERE benutzerid = (SELECT benutzerid FROM authCodes WHERE auth_code = '" + DigestUtils.md5Hex(pAuthCode) +
-                         "') AND passwort='" + DigestUtils.md5Hex(passwort) + "';");
+                         "FROM konten WHERE benutzerid = " + resolveAuthCode(connection, pAuthCode).benutzerid +
+                         " AND passwort='" + DigestUtils.md5Hex(passwort) + "';");
                  ResultSet resultSet = preparedStatement1.executeQuery()) {
                 if (!resultSet.next()) throw new UnauthorisedException("AuthCode oder Passwort ungültig");
 
@@ -526,6 +480,7 @@ abstract class DataBase {
                         ", '" + newEmail + "', " + oldEmailKey + ", " + newEmailKey + ");")) {
                     preparedStatement3.executeUpdate();
                 }
+                InvalidationBus.publish("changeEmail");
 
                 // Mails versenden
                 Mail.sendEmailChangeMail(name, oldEmail, newEmail, oldEmailKey, newEmailKey);
@@ -583,7 +538,6 @@ abstract class DataBase {
                 if (iconLink != null) temp.addProperty("icon", iconLink);
                 kategorien.add(temp);
             }
-            categories = new CacheObject<>(kategorien, TTL_KATEGORIEN);
             return kategorien;
         }
     }
@@ -592,18 +546,25 @@ abstract class DataBase {
      * Fragt eine aktuelle ggf. gecachde Variante von {@link DataBase#getKategorien()} ()} ab.
      */
     static JsonArray getKategorienCached() throws SQLException {
-        if (categories == null || categories.isNotAlive()) return getKategorien();
-        else return categories.cache;
+        return categories.get(0);
+    }
+
+    /**
+     * Wie {@link DataBase#getKategorienCached()}, aber als fertig serialisierte Antwort (für {@code /get-kategorien}).
+     */
+    static CachedResponse getKategorienResponseCached() throws SQLException {
+        return categoriesResponse.get(0);
     }
 
     /**
-     * Fragt alle Details zu einem Saal ab. Ein Beispiel für eine Rückgabe ist:<br>
+     * Fragt alle Details zu einem Saal ab. Ein Beispiel für die Json-Darstellung ({@link SaalLayout#json}) ist:<br>
      * <pre>{@code {
      *     "name": "Kino 1",
      *     "width": 368,
      *     "height": 184,
      *     "sitze": [
      *     {
+     *       "id": 1,
      *       "kategorie": 1,
      *       "reihe": "A",
      *       "platz": 1,
@@ -611,6 +572,7 @@ abstract class DataBase {
      *       "y": 5
      *     },
      *     {
+     *       "id": 2,
      *       "kategorie": 1,
      *       "reihe": "A",
      *       "platz": 2,
@@ -620,38 +582,41 @@ abstract class DataBase {
      * }}
      *
      * @param saalid Die ID des Saals, zu dem die Details abgefragt werden sollen
-     * @return Ein {@link JsonObject}, das die Details enthält
+     * @return Das (unveränderliche) {@link SaalLayout} des Saals
      * @throws SQLException      Falls ein Fehler in der Verbindung zu der Datenbank auftritt
      * @throws NotFoundException Falls der Saal nicht gefunden wurde
      */
-    static JsonObject getSaalPlan(int saalid) throws SQLException, NotFoundException {
-        try (Connection connection = basicDataSource.getConnection();
-             PreparedStatement preparedStatement1 = connection.prepareStatement("SELECT * FROM kinosaele WHERE saalid=" + saalid + ";");
-             PreparedStatement preparedStatement2 = connection.prepareStatement("SELECT * FROM saalPlaetze WHERE saalid=" + saalid + ";");
-             ResultSet r1 = preparedStatement1.executeQuery();
-             ResultSet r2 = preparedStatement2.executeQuery()) {
-            JsonObject saal = new JsonObject();
-
-            if (!r1.next()) throw new NotFoundException("Kein Saal mit dieser Id gefunden");
-            saal.addProperty("name", r1.getString("name"));
-            saal.addProperty("width", r1.getInt("width"));
-            saal.addProperty("height", r1.getInt("height"));
-
-            JsonArray sitze = new JsonArray();
-            saal.add("sitze", sitze);
+    static SaalLayout getSaalPlan(int saalid) throws SQLException, NotFoundException {
+        SaalLayout layout = SaalLayout.getCached(saalid);
+        if (layout != null) return layout;
+        try (Connection connection = basicDataSource.getConnection()) {
+            return SaalLayout.get(connection, saalid);
+        }
+    }
 
-            while (r2.next()) {
-                JsonObject temp = new JsonObject();
-                temp.addProperty("kategorie", r2.getInt("kategorieid"));
-                temp.addProperty("reihe", r2.getString("reihe"));
-                temp.addProperty("platz", r2.getInt("platz"));
-                temp.addProperty("x", r2.getInt("x"));
-                temp.addProperty("y", r2.getInt("y"));
-                sitze.add(temp);
+    /**
+     * Fragt einen Saalplan anhand des Hashes seiner Json-Darstellung ab (siehe {@link DataBase#getSaalPlan(int)}). Der
+     * Hash wird z.B. von {@link DataBase#getVorstellungsDetails(int)} als {@code saalplanHash} mitgegeben. Unbekannte
+     * Hashes lösen höchstens einmal pro Änderung an den Sälen ein Nachladen aus der Datenbank aus.
+     *
+     * @param pHash Der SHA-256-Hash (64 Hex-Zeichen)
+     * @return Das {@link SaalLayout} mit diesem Hash
+     * @throws BadRequestException Falls der Hash ein ungültiges Format hat
+     * @throws SQLException        Falls ein Fehler in der Verbindung zu der Datenbank auftritt
+     * @throws NotFoundException   Falls kein Saal diesen Hash hat
+     */
+    static SaalLayout getSaalPlan(String pHash) throws BadRequestException, SQLException, NotFoundException {
+        if (!SAAL_HASH.matcher(pHash).matches()) throw new BadRequestException("Ungültiger Hash");
+        SaalLayout layout = SaalLayout.getCachedByHash(pHash);
+        if (layout == null && !SaalLayout.isVollstaendig()) {
+            // Noch nicht geladene Säle laden (z.B. nach einem Neustart oder nachdem Säle geändert wurden)
+            try (Connection connection = basicDataSource.getConnection()) {
+                SaalLayout.loadAll(connection);
             }
-
-            return saal;
+            layout = SaalLayout.getCachedByHash(pHash);
         }
+        if (layout == null) throw new NotFoundException("Kein Saal mit diesem Hash gefunden");
+        return layout;
     }
 
     /**
@@ -686,23 +651,36 @@ abstract class DataBase {
         update += (passwort == null ? "" : (update.length() == 0 ? "" : " AND ") + "passwort='" + passwort + "'");
 
         // Ausführen
-        try (Connection connection = basicDataSource.getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement("UPDATE konten SET " + update +
-                     " WHERE benutzerid = (SELECT benutzerid FROM authCodes WHERE auth_code = '" + DigestUtils.md5Hex(authCode) + "');")) {
-            if (preparedStatement.executeUpdate() == 0) throw new UnauthorisedException("AuthCode ungültig!");
+        int benutzerid;
+        try (Connection connection = basicDataSource.getConnection()) {
+            benutzerid = resolveAuthCode(connection, authCode).benutzerid;
+            try (PreparedStatement preparedStatement = connection.prepareStatement("UPDATE konten SET " + update +
+                    " WHERE benutzerid = " + benutzerid + ";")) {
+                if (preparedStatement.executeUpdate() == 0) throw new UnauthorisedException("AuthCode ungültig!");
+            }
         } catch (SQLIntegrityConstraintViolationException e) {
             throw new ConflictException("Zu der angegeben Email-Adresse existiert bereits ein anderes Konto!");
         }
+        if (passwort != null) AuthCache.invalidateBenutzer(benutzerid);
+        InvalidationBus.publish("konten");
         return "Ok";
     }
 
-    static String placeOrder(String authCode, JsonObject jsonObject) throws BadRequestException, SQLException, ConflictException, IOException {
+    /**
+     * Trägt eine Bestellung ein. Die Plätze müssen vorher über {@code /hold} reserviert worden sein. Bei PayPal
+     * ({@code paymentType} 1) wird die Bestellung im Zustand {@link PaymentVerifier#PRUEFUNG} angenommen und die Zahlung
+     * danach asynchron geprüft, die Ticket-Email folgt erst nach der Bestätigung.
+     *
+     * @param authCode   Ein AuthCode, mit dem der Benutzer sich identifizieren kann.
+     * @param jsonObject Die Bestellung
+     * @return Json-Objekt mit {@code bestellnummer}, {@code zahlungsstatus} und {@code nachricht}
+     */
+    static JsonObject placeOrder(String authCode, JsonObject jsonObject) throws BadRequestException, SQLException, ConflictException, NotFoundException, UnauthorisedException {
         try {
             // Daten aus Json-Objekt einlesen
             int vorstellungsId = jsonObject.get("presentationId").getAsInt();
             List<Integer> selectedSeats = new Gson().fromJson(jsonObject.get("selectedSeats").getAsJsonArray(), new TypeToken<List<Integer>>() {
             }.getType());
-            String tempselectedSeats = selectedSeats.toString(), selectedSeatsString = tempselectedSeats.substring(1, tempselectedSeats.length() - 1);
             int paymentType = jsonObject.get("paymentType").getAsInt();
             String paypalTransactionId = null;
             if (paymentType == 1) paypalTransactionId = jsonObject.get("paypalTransactionId").getAsString();
@@ -718,8 +696,10 @@ abstract class DataBase {
 
             // Daten prüfen
             if (!email.matches("^(.+)@(.+)$")) throw new BadRequestException("Email-Adresse ungültig");
-            if (selectedSeats.size() == 0) throw new BadRequestException("Keine Sitze ausgewählt");
+            checkSeatSelection(selectedSeats);
             if (paymentType > 1 || paymentType < 0) throw new BadRequestException("Ungültiges Zahlungsmittel");
+            if (paypalTransactionId != null && PayPal.isVerified(paypalTransactionId))
+                throw new ConflictException("Die PayPal-Zahlung wurde bereits für eine andere Bestellung verwendet!");
             if (rTitel.length() < 3) throw new BadRequestException("Ein Titel hat min. 3 Zeichen");
             if (rName.length() < 5) throw new BadRequestException("Ein Name hat mindestens 5 Zeichen");
             if (rStrasse.length() < 2) throw new BadRequestException("Eine Straße muss mindestens 2 Zeichen haben");
@@ -730,93 +710,247 @@ abstract class DataBase {
 
             // Datenbankverbindung starten
             try (Connection connection = basicDataSource.getConnection()) {
+                String authHash = DigestUtils.md5Hex(authCode);
+                int benutzerid = resolveAuthCode(connection, authCode).benutzerid;
+                SeatOccupancy occupancy = SeatOccupancy.get(connection, vorstellungsId);
+                int[] seatIndizes = toSeatIndizes(occupancy, selectedSeats);
 
-                // Verfügbarkeit der Plätze nachrpüfen
-                try (PreparedStatement p = connection.prepareStatement("SELECT * FROM saalPlaetze LEFT " +
-                        "JOIN (SELECT platzid from bestellungPlaetze p INNER JOIN bestellungen b ON p.bestellnummer = " +
-                        "b.bestellnummer WHERE vorstellungsid = ?) AS b ON saalPlaetze.platzid = b.platzid WHERE b.platzid IN (" + selectedSeatsString + ");")) {
-                    p.setInt(1, vorstellungsId);
-                    try (ResultSet resultSet = p.executeQuery()) {
-                        while (resultSet.next()) {
-                            if (resultSet.getInt("b.platzid") == 0)
-                                throw new ConflictException("Der Platz" + resultSet.getString("reihe") + resultSet.getString("platz") + " ist bereits belegt!");
-                        }
-                    }
-                }
-
-                // Kosten für die Plätze berechnen und prüfen
+                int zahlungsstatus = (paymentType == 1 ? PaymentVerifier.PRUEFUNG : PaymentVerifier.OFFEN);
+                int bestellnummer;
                 double gesamtkosten;
-                try (PreparedStatement p = connection.prepareStatement("SELECT SUM(basis_preis*faktor+aufpreis) AS kosten " +
-                        "FROM (SELECT * FROM vorstellungen WHERE vorstellungsid = ?) diese_vorstellung " +
-                        "LEFT JOIN saalPlaetze ON saalPlaetze.saalid = diese_vorstellung.saalid " +
-                        "INNER JOIN kategorien on saalPlaetze.kategorieid = kategorien.kategorieid " +
-                        "WHERE platzid IN (" + selectedSeatsString + ");")) {
-                    p.setInt(1, vorstellungsId);
-                    try (ResultSet resultSet = p.executeQuery()) {
-                        if (!resultSet.next()) throw new BadRequestException("Ungültige Sitzplätze");
-                        gesamtkosten = resultSet.getDouble("kosten");
-                        if (paymentType == 1 && !PayPal.confirmPayment(paypalTransactionId, gesamtkosten))
-                            ;//throw new BadRequestException("PayPal Zahlung konnte nicht gefunden werden");
+
+                // Buchungen derselben Vorstellung nacheinander ausführen (andere Vorstellungen laufen parallel weiter)
+                ReentrantLock orderLock = orderLocks[Math.floorMod(vorstellungsId, orderLocks.length)];
+                orderLock.lock();
+                try {
+                    // Verfügbarkeit der Plätze nachrpüfen (Plätze müssen vorher über /hold reserviert worden sein)
+                    for (int index : seatIndizes) {
+                        if (occupancy.isBelegt(index))
+                            throw new ConflictException("Der Platz " + occupancy.layout.reihen[index] +
+                                    occupancy.layout.plaetze[index] + " ist bereits belegt!");
+                        if (!occupancy.isReserviertVon(index, authHash))
+                            throw new ConflictException("Der Platz " + occupancy.layout.reihen[index] +
+                                    occupancy.layout.plaetze[index] + " ist nicht (mehr) für Sie reserviert!");
                     }
-                }
 
-                // Bestellung eintragen
-                int bestellnummer;
-                try (PreparedStatement p = connection.prepareStatement("INSERT INTO bestellungen (vorstellungsid, " +
-                        "benutzerid, email, anrede, name, strasse, plz, stadt, telefon, preis, bezahlt) VALUES (?,(SELECT benutzerid FROM " +
-                        "authCodes WHERE auth_code = ?), ?, ?, ?, ?, ?, ?, ?, ?, ?)", Statement.RETURN_GENERATED_KEYS)) {
-                    p.setInt(1, vorstellungsId);
-                    p.setString(2, DigestUtils.md5Hex(authCode));
-                    p.setString(3, email);
-                    p.setString(4, rTitel);
-                    p.setString(5, rName);
-                    p.setString(6, rStrasse);
-                    p.setString(7, rPlz);
-                    p.setString(8, rStadt);
-                    if (rTelefon == null) p.setNull(9, Types.VARCHAR);
-                    else p.setString(9, rTelefon);
-                    p.setDouble(10, gesamtkosten);
-                    p.setBoolean(11, (paymentType == 1));
-                    p.executeUpdate();
-
-                    // Bestellnummer auslesen
-                    ResultSet rs = p.getGeneratedKeys();
-                    rs.next();
-                    bestellnummer = rs.getInt(1);
-                }
+                    // Alle Einträge der Bestellung (inkl. Ticket-Email) in einer Transaktion schreiben
+                    connection.setAutoCommit(false);
+                    try {
+                        // Kosten für die Plätze berechnen (aus den vorberechneten Preisen). Eine PayPal-Zahlung wird
+                        // erst nach dem Commit (ohne Verbindung) vom PaymentVerifier geprüft
+                        gesamtkosten = SeatPrices.get(connection, occupancy).summe(seatIndizes);
+
+                        // Bestellung eintragen
+                        try (PreparedStatement p = connection.prepareStatement("INSERT INTO bestellungen (vorstellungsid, " +
+                                "benutzerid, email, anrede, name, strasse, plz, stadt, telefon, preis, bezahlt, " +
+                                "zahlungsstatus, paypalTransaktion) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0, ?, ?)",
+                                Statement.RETURN_GENERATED_KEYS)) {
+                            p.setInt(1, vorstellungsId);
+                            p.setInt(2, benutzerid);
+                            p.setString(3, email);
+                            p.setString(4, rTitel);
+                            p.setString(5, rName);
+                            p.setString(6, rStrasse);
+                            p.setString(7, rPlz);
+                            p.setString(8, rStadt);
+                            if (rTelefon == null) p.setNull(9, Types.VARCHAR);
+                            else p.setString(9, rTelefon);
+                            p.setDouble(10, gesamtkosten);
+                            p.setInt(11, zahlungsstatus);
+                            if (paypalTransactionId == null) p.setNull(12, Types.VARCHAR);
+                            else p.setString(12, paypalTransactionId);
+                            try {
+                                p.executeUpdate();
+                            } catch (SQLIntegrityConstraintViolationException e) {
+                                throw new ConflictException("Die PayPal-Zahlung wurde bereits für eine andere Bestellung verwendet!");
+                            }
+
+                            // Bestellnummer auslesen
+                            ResultSet rs = p.getGeneratedKeys();
+                            rs.next();
+                            bestellnummer = rs.getInt(1);
+                        }
 
-                // Plätze in Datenbank einfügen
-                try (PreparedStatement p = connection.prepareStatement("INSERT INTO bestellungPlaetze(bestellnummer, platzid) VALUES (?, ?)")) {
-                    for (int temp : selectedSeats) {
-                        p.setInt(1, bestellnummer);
-                        p.setInt(2, temp);
-                        p.addBatch();
+                        // Plätze in Datenbank einfügen
+                        try (PreparedStatement p = connection.prepareStatement("INSERT INTO bestellungPlaetze(bestellnummer, platzid) VALUES (?, ?)")) {
+                            for (int temp : selectedSeats) {
+                                p.setInt(1, bestellnummer);
+                                p.setInt(2, temp);
+                                p.addBatch();
+                            }
+                            p.executeBatch();
+                        }
+
+                        // Belegung eintragen (der Primärschlüssel verhindert doppelte Buchungen auch auf Datenbankebene)
+                        try (PreparedStatement p = connection.prepareStatement("INSERT INTO vorstellungPlaetze(vorstellungsid, platzid, bestellnummer) VALUES (?, ?, ?)")) {
+                            for (int temp : selectedSeats) {
+                                p.setInt(1, vorstellungsId);
+                                p.setInt(2, temp);
+                                p.setInt(3, bestellnummer);
+                                p.addBatch();
+                            }
+                            p.executeBatch();
+                        }
+
+                        // Ticket-Email in die Outbox eintragen (wird nur mit der Bestellung zusammen festgeschrieben). Bei
+                        // PayPal erst, wenn die Zahlung bestätigt wurde
+                        if (zahlungsstatus == PaymentVerifier.OFFEN)
+                            Mail.queueTicketMail(connection, rName, email, vorstellungsId + selectedSeats.toString());
+                        connection.commit();
+                    } catch (BatchUpdateException e) {
+                        // Die Belegung im Speicher war veraltet (z.B. Buchung über eine andere Instanz). Nur die
+                        // gebuchten Plätze neu laden, die Reservierungen anderer laufender Bestellungen bleiben erhalten
+                        connection.rollback();
+                        occupancy.reloadBelegt(connection);
+                        if (e.getCause() instanceof SQLIntegrityConstraintViolationException)
+                            throw new ConflictException("Mindestens einer der Plätze ist bereits belegt!");
+                        throw e;
+                    } catch (Exception e) {
+                        connection.rollback();
+                        throw e;
+                    } finally {
+                        connection.setAutoCommit(true);
                     }
-                    p.executeBatch();
+                    occupancy.markBelegt(seatIndizes);
+                    occupancy.release(authHash, seatIndizes);
+                } finally {
+                    orderLock.unlock();
                 }
+                InvalidationBus.publish("bestellungen", "bestellungPlaetze", "vorstellungPlaetze");
+                if (zahlungsstatus == PaymentVerifier.PRUEFUNG)
+                    PaymentVerifier.submit(bestellnummer, paypalTransactionId, gesamtkosten);
+                else MailRelay.wakeUp();
+
+                JsonObject bestellung = new JsonObject();
+                bestellung.addProperty("bestellnummer", bestellnummer);
+                bestellung.addProperty("zahlungsstatus", PaymentVerifier.getStatusName(zahlungsstatus));
+                bestellung.addProperty("nachricht", zahlungsstatus == PaymentVerifier.PRUEFUNG ?
+                        "Ihre Zahlung wird geprüft" : "Viel Spaß mit Ihren Tickets");
+                return bestellung;
+            }
+        } catch (ClassCastException | IllegalStateException | NullPointerException e) {
+            throw new BadRequestException("Es sind nicht alle notwendigen Attribute vorhanden");
+        }
+    }
 
-                Mail.sendTicketMail(rName, email, vorstellungsId + selectedSeats.toString());
+    /**
+     * Reserviert Plätze einer Vorstellung für eine begrenzte Zeit, damit sie während des Bezahlvorgangs nicht von
+     * jemand anderem gebucht werden können. Das {@link JsonObject} benötigt die Attribute {@code presentationId} und
+     * {@code selectedSeats}, optional {@code minutes} (Standard: {@value DEFAULT_HOLD_MINUTES}, max.
+     * {@value MAX_HOLD_MINUTES}). Eine Reservierung kann durch eine erneute Anfrage verlängert werden. Pro Vorstellung
+     * kann ein AuthCode höchstens {@value MAX_HOLD_SEATS} Plätze gleichzeitig reservieren.
+     *
+     * @param pAuthCode   Ein AuthCode, mit dem der Benutzer sich identifizieren kann
+     * @param pJsonObject {@link JsonObject} mit den oben beschriebenen Attributen
+     * @return {@link JsonObject} mit dem Attribut {@code reserviertBis} (Zeitpunkt in ms seit Epoch)
+     * @throws BadRequestException   Falls die Anfrage ungültig ist
+     * @throws ConflictException     Falls ein Platz bereits belegt oder von jemand anderem reserviert ist oder damit
+     *                               mehr als {@value MAX_HOLD_SEATS} Plätze reserviert wären
+     * @throws NotFoundException     Falls die Vorstellung nicht existiert
+     * @throws SQLException          Falls ein Fehler in der Verbindung zu der Datenbank auftritt
+     * @throws UnauthorisedException Falls der AuthCode ungültig ist
+     * @throws NotActiveException    Falls das Konto nicht aktiv ist
+     */
+    static JsonObject holdSeats(String pAuthCode, JsonObject pJsonObject) throws BadRequestException, ConflictException, NotFoundException, SQLException, UnauthorisedException, NotActiveException {
+        authorizationBarriere(pAuthCode, 0);
+        try {
+            int vorstellungsId = pJsonObject.get("presentationId").getAsInt();
+            List<Integer> selectedSeats = new Gson().fromJson(pJsonObject.get("selectedSeats").getAsJsonArray(), new TypeToken<List<Integer>>() {
+            }.getType());
+            int minutes = (pJsonObject.has("minutes") ? pJsonObject.get("minutes").getAsInt() : DEFAULT_HOLD_MINUTES);
+            checkSeatSelection(selectedSeats);
+            if (minutes < 1 || minutes > MAX_HOLD_MINUTES)
+                throw new BadRequestException("Plätze können zwischen 1 und " + MAX_HOLD_MINUTES + " Minuten reserviert werden");
 
-                return "Viel Spaß mit Ihren Tickets";
+            try (Connection connection = basicDataSource.getConnection()) {
+                SeatOccupancy occupancy = SeatOccupancy.get(connection, vorstellungsId);
+                long bis = occupancy.hold(DigestUtils.md5Hex(pAuthCode), toSeatIndizes(occupancy, selectedSeats), minutes * 60000L,
+                        MAX_HOLD_SEATS);
+                JsonObject reVal = new JsonObject();
+                reVal.addProperty("reserviertBis", bis);
+                return reVal;
             }
         } catch (ClassCastException | IllegalStateException | NullPointerException e) {
             throw new BadRequestException("Es sind nicht alle notwendigen Attribute vorhanden");
         }
     }
 
+    /**
+     * Gibt Plätze frei, die zuvor mit {@link DataBase#holdSeats(String, JsonObject)} reserviert wurden. Das
+     * {@link JsonObject} benötigt die Attribute {@code presentationId} und {@code selectedSeats}.
+     *
+     * @param pAuthCode   Ein AuthCode, mit dem der Benutzer sich identifizieren kann
+     * @param pJsonObject {@link JsonObject} mit den oben beschriebenen Attributen
+     * @return "Ok", wenn es geklappt hat
+     * @throws BadRequestException Falls die Anfrage ungültig ist
+     * @throws NotFoundException   Falls die Vorstellung nicht existiert
+     * @throws SQLException        Falls ein Fehler in der Verbindung zu der Datenbank auftritt
+     */
+    static String releaseSeats(String pAuthCode, JsonObject pJsonObject) throws BadRequestException, NotFoundException, SQLException {
+        if (pAuthCode == null) throw new BadRequestException("Es wurde kein AuthCode bereigestellt");
+        try {
+            int vorstellungsId = pJsonObject.get("presentationId").getAsInt();
+            List<Integer> selectedSeats = new Gson().fromJson(pJsonObject.get("selectedSeats").getAsJsonArray(), new TypeToken<List<Integer>>() {
+            }.getType());
+            try (Connection connection = basicDataSource.getConnection()) {
+                SeatOccupancy occupancy = SeatOccupancy.get(connection, vorstellungsId);
+                occupancy.release(DigestUtils.md5Hex(pAuthCode), toSeatIndizes(occupancy, selectedSeats));
+            }
+            return "Ok";
+        } catch (ClassCastException | IllegalStateException | NullPointerException e) {
+            throw new BadRequestException("Es sind nicht alle notwendigen Attribute vorhanden");
+        }
+    }
+
+    /**
+     * Prüft die ausgewählten Plätze einer Reservierung oder Bestellung, bevor auf die Datenbank zugegriffen wird.
+     *
+     * @param pPlatzIds Die IDs der Plätze
+     * @throws BadRequestException Falls keine oder mehr als {@value MAX_HOLD_SEATS} Plätze ausgewählt sind oder ein Platz
+     *                             mehrfach vorkommt
+     */
+    private static void checkSeatSelection(List<Integer> pPlatzIds) throws BadRequestException {
+        if (pPlatzIds.size() == 0) throw new BadRequestException("Keine Sitze ausgewählt");
+        if (pPlatzIds.size() > MAX_HOLD_SEATS)
+            throw new BadRequestException("Es können maximal " + MAX_HOLD_SEATS + " Sitze ausgewählt werden");
+        if (new HashSet<>(pPlatzIds).size() != pPlatzIds.size())
+            throw new BadRequestException("Ein Sitz wurde mehrfach ausgewählt");
+    }
+
+    /**
+     * Wandelt eine Liste an Platz-IDs in die Indizes des {@link SaalLayout} einer Vorstellung um.
+     *
+     * @param pOccupancy Die Belegung der Vorstellung
+     * @param pPlatzIds  Die IDs der Plätze
+     * @return Die Indizes der Plätze
+     * @throws BadRequestException Falls ein Platz nicht zu dem Saal der Vorstellung gehört
+     */
+    private static int[] toSeatIndizes(SeatOccupancy pOccupancy, List<Integer> pPlatzIds) throws BadRequestException {
+        int[] indizes = new int[pPlatzIds.size()];
+        for (int i = 0; i < indizes.length; i++) {
+            indizes[i] = pOccupancy.layout.indexOf(pPlatzIds.get(i));
+            if (indizes[i] < 0) throw new BadRequestException("Ungültige Sitzplätze");
+        }
+        return indizes;
+    }
+
     static String updatePasswort(String pAuthCode, JsonObject pJsonObject) throws BadRequestException, SQLException, UnauthorisedException {
         try {
             String oldPasswort = pJsonObject.get("oldPasswort").getAsString();
             String newPasswort = pJsonObject.get("newPasswort").getAsString();
             if (oldPasswort.length() < MIN_PASSWORD_LENGTH || newPasswort.length() < MIN_PASSWORD_LENGTH)
                 throw new BadRequestException("Passwörter haben eine Mindestlänge von " + MIN_PASSWORD_LENGTH + " Zeichen");
-            try (Connection connection = basicDataSource.getConnection();
-                 PreparedStatement preparedStatement = connection.prepareStatement("UPDATE konten SET passwort='" + DigestUtils.md5Hex(newPasswort) +
-                         "' WHERE benutzerid = (SELECT benutzerid FROM authCodes WHERE auth_code='" + DigestUtils.md5Hex(pAuthCode) +
-                         "') AND passwort='" + DigestUtils.md5Hex(oldPasswort) + "';")) {
-                if (preparedStatement.executeUpdate() != 1)
-                    throw new UnauthorisedException("AuthCode oder Passwort ungültig");
+            int benutzerid;
+            try (Connection connection = basicDataSource.getConnection()) {
+                benutzerid = resolveAuthCode(connection, pAuthCode).benutzerid;
+                try (PreparedStatement preparedStatement = connection.prepareStatement("UPDATE konten SET passwort='" + DigestUtils.md5Hex(newPasswort) +
+                        "' WHERE benutzerid = " + benutzerid + " AND passwort='" + DigestUtils.md5Hex(oldPasswort) + "';")) {
+                    if (preparedStatement.executeUpdate() != 1)
+                        throw new UnauthorisedException("AuthCode oder Passwort ungültig");
+                }
             }
+            AuthCache.invalidateBenutzer(benutzerid);
+            InvalidationBus.publish("konten");
             return "Passwort wurde erfolgreich geändert";
         } catch (ClassCastException | IllegalStateException | NullPointerException e) {
             throw new BadRequestException("In der Anfrage fehlt das String-Attribut 'oldPasswort' oder 'newPasswort'");
@@ -830,9 +964,10 @@ abstract class DataBase {
                 throw new BadRequestException("Bitte geben Sie Ihren vollständigen Vor- und Nachnamen ein");
             try (Connection connection = basicDataSource.getConnection();
                  PreparedStatement preparedStatement = connection.prepareStatement("UPDATE konten SET name='" + name +
-                         "' WHERE benutzerid = (SELECT benutzerid FROM authCodes WHERE auth_code='" + DigestUtils.md5Hex(pAuthCode) + "');")) {
+                         "' WHERE benutzerid = " + resolveAuthCode(connection, pAuthCode).benutzerid + ";")) {
                 if (preparedStatement.executeUpdate() != 1) throw new UnauthorisedException("AuthCode ungültig");
             }
+            InvalidationBus.publish("konten");
             return "Name des Kontoinhabers wurde erfolgreich geändert";
         } catch (ClassCastException | IllegalStateException | NullPointerException e) {
             throw new BadRequestException("In der Anfrage fehlt das String-Attribut 'name'");
@@ -852,13 +987,7 @@ abstract class DataBase {
     static String deleteAdress(String authCode, int pId) throws SQLException, UnauthorisedException, BadRequestException {
         try (Connection connection = basicDataSource.getConnection()) {
             // Userid herausfinden
-            int userid;
-            try (PreparedStatement preparedStatement = connection.prepareStatement("SELECT benutzerid FROM authCodes WHERE auth_code='" +
-                    DigestUtils.md5Hex(authCode) + "';");
-                 ResultSet resultSet = preparedStatement.executeQuery()) {
-                if (!resultSet.next()) throw new UnauthorisedException("AuthCode ungültig!");
-                userid = resultSet.getInt("benutzerid");
-            }
+            int userid = resolveAuthCode(connection, authCode).benutzerid;
 
             // Adresse löschen
             try (PreparedStatement preparedStatement = connection.prepareStatement("DELETE FROM adressen WHERE adressenid=" + pId + " AND benutzerid=" + userid + ";")) {
@@ -866,6 +995,7 @@ abstract class DataBase {
                     throw new BadRequestException("Es wurde keine Adresse mit dieser ID gefunden");
             }
         }
+        InvalidationBus.publish("adressen");
         return "Ok";
     }
 
@@ -903,13 +1033,7 @@ abstract class DataBase {
             // SQL
             try (Connection connection = basicDataSource.getConnection()) {
                 //Userid herausfinden
-                int userid;
-                try (PreparedStatement preparedStatement = connection.prepareStatement("SELECT benutzerid FROM authCodes WHERE auth_code='" +
-                        DigestUtils.md5Hex(authCode) + "';");
-                     ResultSet resultSet = preparedStatement.executeQuery()) {
-                    if (!resultSet.next()) throw new UnauthorisedException("AuthCode ungültig!");
-                    userid = resultSet.getInt("benutzerid");
-                }
+                int userid = resolveAuthCode(connection, authCode).benutzerid;
 
                 try (PreparedStatement preparedStatement = connection.prepareStatement("INSERT INTO adressen(benutzerid, " +
                         "anrede, name, strasse, plz, stadt" + (telefon == null ? "" : ", telefon") +
@@ -918,6 +1042,7 @@ abstract class DataBase {
                     preparedStatement.executeUpdate();
                 }
             }
+            InvalidationBus.publish("adressen");
             return "OK";
         } catch (NullPointerException | ClassCastException exception) {
             throw new BadRequestException("Es wurden nicht alle Attribute erfolgreich mitgegeben. Notwendig sind (als Strings)" +
@@ -926,117 +1051,222 @@ abstract class DataBase {
     }
 
     /**
-     * Ermöglicht es einem Nutzer seine eigenen Nutzerinfos abzufragen.
+     * Ermöglicht es einem Nutzer seine eigenen Nutzerinfos abzufragen. Konto und Adressen werden in einer einzigen
+     * Abfrage gelesen. Von den Bestellungen wird nur die erste Seite (die neuesten) mitgegeben, weitere Seiten können
+     * über {@link DataBase#getBestellungen(String, int, int)} abgefragt werden.
      *
      * @param pAuthCode Ein AuthCode, mit dem der Benutzer sich identifizieren kann.
-     * @return {@link JsonObject}, dass die Nutzerinfos enthält
-     * @throws BadRequestException   Falls das Format des AuthCodes ungültig ist
+     * @param pLimit    Anzahl an Bestellungen auf der ersten Seite (0 für den Standardwert {@value DEFAULT_ORDER_PAGE},
+     *                  max. {@value MAX_ORDER_PAGE})
+     * @return Die Nutzerinfos als Json-Objekt (die Bestellungen werden direkt aus der Datenbank in die Antwort gestreamt)
+     * @throws BadRequestException   Falls das Format des AuthCodes oder das Limit ungültig ist
      * @throws SQLException          Falls es Problem mit der Verbindung zur Datenbank gibt
      * @throws UnauthorisedException Falls der AuthCode ungültig ist
      */
-    static JsonObject getUserInfos(String pAuthCode) throws BadRequestException, SQLException, UnauthorisedException {
-        // Parameterprüfung
-        if (pAuthCode == null || pAuthCode.length() != 36)
-            throw new BadRequestException("AuthCode hat ein falsches Format oder wurde nicht mitgegeben!");
-
-        // Konto anhand des AuthCodes finden
-        try (Connection connection = basicDataSource.getConnection();
-             PreparedStatement preparedStatement1 = connection.prepareStatement("SELECT * FROM konten " +
-                     "WHERE benutzerid=(SELECT benutzerid FROM authCodes WHERE auth_code='" + DigestUtils.md5Hex(pAuthCode) + "');");
-             ResultSet resultSet1 = preparedStatement1.executeQuery()) {
-
-            // Falls kein AuthCode gefunden wurde
-            if (!resultSet1.next()) throw new UnauthorisedException("AuthCode ungültig!");
-
-            // Hauptattribute in Rückgabeobjekt einfügen
-            JsonObject jsonObject = new JsonObject();
-            jsonObject.addProperty("name", resultSet1.getString("name"));
-            jsonObject.addProperty("email", resultSet1.getString("email"));
-            jsonObject.addProperty("erstellt", resultSet1.getTimestamp("erstellt").toString());
-            jsonObject.addProperty("rolle", resultSet1.getInt("rolle"));
+    static StreamingBody getUserInfos(String pAuthCode, int pLimit) throws BadRequestException, SQLException, UnauthorisedException {
+        int limit = checkOrderPage(pLimit);
+        int benutzerid;
+        JsonObject jsonObject = new JsonObject();
+        try (Connection connection = basicDataSource.getConnection()) {
+            benutzerid = resolveAuthCode(connection, pAuthCode).benutzerid;
 
-            // Adressen abfragen und der Rückgabe hinzufügen
+            // Konto und Adressen in einer Abfrage
             JsonArray adressen = new JsonArray();
-            try (PreparedStatement preparedStatement2 = connection.prepareStatement("SELECT * FROM adressen " +
-                    "WHERE benutzerid=" + resultSet1.getInt("benutzerid") + ";");
-                 ResultSet resultSet2 = preparedStatement2.executeQuery()) {
-                while (resultSet2.next()) {
-                    JsonObject temp = new JsonObject();
-                    temp.addProperty("adressenid", resultSet2.getString("adressenid"));
-                    temp.addProperty("anrede", resultSet2.getString("anrede"));
-                    temp.addProperty("name", resultSet2.getString("name"));
-                    temp.addProperty("strasse", resultSet2.getString("strasse"));
-                    temp.addProperty("plz", resultSet2.getString("plz"));
-                    temp.addProperty("stadt", resultSet2.getString("stadt"));
-                    String tel = resultSet2.getString("telefon");
-                    if (tel != null) temp.addProperty("telefon", tel);
-                    adressen.add(temp);
+            try (PreparedStatement preparedStatement = connection.prepareStatement("SELECT k.name AS kontoName, " +
+                    "k.email AS kontoEmail, k.erstellt AS kontoErstellt, k.rolle, a.adressenid, a.anrede, a.name, " +
+                    "a.strasse, a.plz, a.stadt, a.telefon FROM konten k LEFT JOIN adressen a ON " +
+                    "a.benutzerid = k.benutzerid WHERE k.benutzerid = ?")) {
+                preparedStatement.setInt(1, benutzerid);
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    // Falls das Konto nicht (mehr) existiert
+                    if (!resultSet.next()) throw new UnauthorisedException("AuthCode ungültig!");
+
+                    // Hauptattribute in Rückgabeobjekt einfügen
+                    jsonObject.addProperty("name", resultSet.getString("kontoName"));
+                    jsonObject.addProperty("email", resultSet.getString("kontoEmail"));
+                    jsonObject.addProperty("erstellt", resultSet.getTimestamp("kontoErstellt").toString());
+                    jsonObject.addProperty("rolle", resultSet.getInt("rolle"));
+
+                    // Adressen (eine Zeile pro Adresse, NULL falls keine vorhanden)
+                    do {
+                        if (resultSet.getString("adressenid") == null) continue;
+                        JsonObject temp = new JsonObject();
+                        temp.addProperty("adressenid", resultSet.getString("adressenid"));
+                        temp.addProperty("anrede", resultSet.getString("anrede"));
+                        temp.addProperty("name", resultSet.getString("name"));
+                        temp.addProperty("strasse", resultSet.getString("strasse"));
+                        temp.addProperty("plz", resultSet.getString("plz"));
+                        temp.addProperty("stadt", resultSet.getString("stadt"));
+                        String tel = resultSet.getString("telefon");
+                        if (tel != null) temp.addProperty("telefon", tel);
+                        adressen.add(temp);
+                    } while (resultSet.next());
                 }
             }
             if (adressen.size() > 0) jsonObject.add("adressen", adressen);
+        }
 
-            // Bestellungen mitgeben
-            JsonArray bestellungen = new JsonArray();
-            try (PreparedStatement preparedStatement3 = connection.prepareStatement("SELECT *, group_concat(reihe, platz) " +
-                    "AS plaetze FROM bestellungen INNER JOIN bestellungPlaetze bP on bestellungen.bestellnummer = bP.bestellnummer " +
-                    "LEFT JOIN saalPlaetze sP on bP.platzid = sP.platzid WHERE benutzerid=(SELECT benutzerid FROM authCodes " +
-                    "WHERE auth_code='" + DigestUtils.md5Hex(pAuthCode) + "') GROUP BY bestellungen.bestellnummer;");
-                 ResultSet resultSet3 = preparedStatement3.executeQuery()) {
-                while (resultSet3.next()) {
-                    JsonObject temp = new JsonObject();
-                    temp.addProperty("bestellnummer", resultSet3.getInt("bestellnummer"));
-                    temp.addProperty("bezahlt", resultSet3.getBoolean("bezahlt"));
-                    temp.addProperty("preis", resultSet3.getDouble("preis"));
-                    temp.addProperty("vorstellungsid", resultSet3.getInt("vorstellungsid"));
-                    temp.addProperty("saalid", resultSet3.getInt("saalid"));
-                    temp.addProperty("plaetze", resultSet3.getString("plaetze"));
-                    temp.addProperty("email", resultSet3.getString("email"));
-                    temp.addProperty("anrede", resultSet3.getString("anrede"));
-                    temp.addProperty("name", resultSet3.getString("name"));
-                    temp.addProperty("strasse", resultSet3.getString("strasse"));
-                    temp.addProperty("plz", resultSet3.getString("plz"));
-                    temp.addProperty("stadt", resultSet3.getString("stadt"));
-                    String tel = resultSet3.getString("telefon");
-                    if (tel != null) temp.addProperty("telefon", tel);
-                    bestellungen.add(temp);
-                }
+        // Konto und Adressen schreiben, danach die erste Seite der Bestellungen direkt aus dem ResultSet
+        return JsonStreaming.of(writer -> {
+            writer.beginObject();
+            for (Map.Entry<String, JsonElement> entry : jsonObject.entrySet()) {
+                writer.name(entry.getKey());
+                JsonStreaming.write(writer, entry.getValue());
+            }
+            try (Connection connection = basicDataSource.getConnection()) {
+                writeBestellungen(connection, benutzerid, 0, limit, writer, false);
             }
-            if (bestellungen.size() > 0) jsonObject.add("bestellungen", bestellungen);
+            writer.endObject();
+        });
+    }
 
-            // Zurückgeben
-            return jsonObject;
+    /**
+     * Fragt eine Seite der Bestellungen eines Kontos ab (die neuesten zuerst). Die Seiten werden über die Bestellnummer
+     * geblättert (Keyset-Pagination): Die Antwort enthält {@code naechsteSeite}, falls es ältere Bestellungen gibt. Dieser
+     * Wert wird bei der nächsten Anfrage als {@code pNach} mitgegeben.
+     *
+     * @param pAuthCode Ein AuthCode, mit dem der Benutzer sich identifizieren kann.
+     * @param pNach     Nur Bestellungen mit einer kleineren Bestellnummer (0 für die erste Seite)
+     * @param pLimit    Anzahl an Bestellungen (0 für den Standardwert {@value DEFAULT_ORDER_PAGE}, max.
+     *                  {@value MAX_ORDER_PAGE})
+     * @return Json-Objekt mit {@code bestellungen} und ggf. {@code naechsteSeite} (wird direkt in die Antwort gestreamt)
+     * @throws BadRequestException   Falls das Format des AuthCodes, der Cursor oder das Limit ungültig ist
+     * @throws SQLException          Falls es Problem mit der Verbindung zur Datenbank gibt
+     * @throws UnauthorisedException Falls der AuthCode ungültig ist
+     */
+    static StreamingBody getBestellungen(String pAuthCode, int pNach, int pLimit) throws BadRequestException, SQLException, UnauthorisedException {
+        int limit = checkOrderPage(pLimit);
+        if (pNach < 0) throw new BadRequestException("Ungültiger Cursor");
+        int benutzerid = resolveAuthCode(null, pAuthCode).benutzerid;
+        return JsonStreaming.of(writer -> {
+            writer.beginObject();
+            try (Connection connection = basicDataSource.getConnection()) {
+                writeBestellungen(connection, benutzerid, pNach, limit, writer, true);
+            }
+            writer.endObject();
+        });
+    }
+
+    /**
+     * Fragt den Zahlungsstatus einer eigenen Bestellung ab (z.B. um nach einer PayPal-Zahlung auf die Prüfung durch den
+     * {@link PaymentVerifier} zu warten).
+     *
+     * @param pAuthCode      Ein AuthCode, mit dem der Benutzer sich identifizieren kann.
+     * @param pBestellnummer Die Nummer der Bestellung
+     * @return Json-Objekt mit {@code bestellnummer}, {@code zahlungsstatus} und {@code bezahlt}
+     * @throws BadRequestException   Falls das Format des AuthCodes ungültig ist
+     * @throws SQLException          Falls es Problem mit der Verbindung zur Datenbank gibt
+     * @throws UnauthorisedException Falls der AuthCode ungültig ist
+     * @throws NotFoundException     Falls es keine Bestellung mit dieser Nummer zu dem Konto gibt
+     */
+    static String getZahlungsstatus(String pAuthCode, int pBestellnummer) throws BadRequestException, SQLException, UnauthorisedException, NotFoundException {
+        int benutzerid = resolveAuthCode(null, pAuthCode).benutzerid;
+        try (Connection connection = basicDataSource.getConnection();
+             PreparedStatement p = connection.prepareStatement("SELECT zahlungsstatus, bezahlt FROM bestellungen WHERE bestellnummer = ? AND benutzerid = ?")) {
+            p.setInt(1, pBestellnummer);
+            p.setInt(2, benutzerid);
+            try (ResultSet resultSet = p.executeQuery()) {
+                if (!resultSet.next()) throw new NotFoundException("Die Bestellung wurde nicht gefunden");
+                JsonObject status = new JsonObject();
+                status.addProperty("bestellnummer", pBestellnummer);
+                status.addProperty("zahlungsstatus", PaymentVerifier.getStatusName(resultSet.getInt("zahlungsstatus")));
+                status.addProperty("bezahlt", resultSet.getBoolean("bezahlt"));
+                return status.toString();
+            }
+        }
+    }
+
+    private static int checkOrderPage(int pLimit) throws BadRequestException {
+        if (pLimit == 0) return DEFAULT_ORDER_PAGE;
+        if (pLimit < 0 || pLimit > MAX_ORDER_PAGE)
+            throw new BadRequestException("Das Limit muss zwischen 1 und " + MAX_ORDER_PAGE + " liegen");
+        return pLimit;
+    }
+
+    /**
+     * Schreibt eine Seite der Bestellungen eines Kontos (Attribute {@code bestellungen} und ggf. {@code naechsteSeite})
+     * direkt aus dem {@link ResultSet} in einen {@link JsonWriter}. Es wird eine Bestellung mehr gelesen als angefordert,
+     * um zu erkennen, ob es eine weitere Seite gibt.
+     *
+     * @param pLeer Ob {@code bestellungen} auch geschrieben werden soll, wenn es keine Bestellungen gibt
+     */
+    private static void writeBestellungen(Connection pConnection, int pBenutzerid, int pNach, int pLimit, JsonWriter pWriter, boolean pLeer) throws SQLException, IOException {
+        int anzahl = 0, letzte = 0;
+        boolean weitere = false;
+        try (PreparedStatement preparedStatement = pConnection.prepareStatement("SELECT b.bestellnummer, b.bezahlt, b.zahlungsstatus, " +
+                "b.preis, b.vorstellungsid, v.saalid, b.email, b.anrede, b.name, b.strasse, b.plz, b.stadt, b.telefon, " +
+                "(SELECT group_concat(sP.reihe, sP.platz) FROM bestellungPlaetze bP INNER JOIN saalPlaetze sP ON " +
+                "bP.platzid = sP.platzid WHERE bP.bestellnummer = b.bestellnummer) AS plaetze FROM bestellungen b " +
+                "INNER JOIN vorstellungen v ON b.vorstellungsid = v.vorstellungsid WHERE b.benutzerid = ?" +
+                (pNach > 0 ? " AND b.bestellnummer < ?" : "") + " ORDER BY b.bestellnummer DESC LIMIT ?")) {
+            int index = 1;
+            preparedStatement.setInt(index++, pBenutzerid);
+            if (pNach > 0) preparedStatement.setInt(index++, pNach);
+            preparedStatement.setInt(index, pLimit + 1);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    if (anzahl == pLimit) {
+                        weitere = true;
+                        break;
+                    }
+                    if (anzahl++ == 0) pWriter.name("bestellungen").beginArray();
+                    letzte = resultSet.getInt("bestellnummer");
+                    pWriter.beginObject();
+                    pWriter.name("bestellnummer").value(letzte);
+                    pWriter.name("bezahlt").value(resultSet.getBoolean("bezahlt"));
+                    pWriter.name("zahlungsstatus").value(PaymentVerifier.getStatusName(resultSet.getInt("zahlungsstatus")));
+                    pWriter.name("preis").value(resultSet.getDouble("preis"));
+                    pWriter.name("vorstellungsid").value(resultSet.getInt("vorstellungsid"));
+                    pWriter.name("saalid").value(resultSet.getInt("saalid"));
+                    pWriter.name("plaetze").value(resultSet.getString("plaetze"));
+                    pWriter.name("email").value(resultSet.getString("email"));
+                    pWriter.name("anrede").value(resultSet.getString("anrede"));
+                    pWriter.name("name").value(resultSet.getString("name"));
+                    pWriter.name("strasse").value(resultSet.getString("strasse"));
+                    pWriter.name("plz").value(resultSet.getString("plz"));
+                    pWriter.name("stadt").value(resultSet.getString("stadt"));
+                    String tel = resultSet.getString("telefon");
+                    if (tel != null) pWriter.name("telefon").value(tel);
+                    pWriter.endObject();
+                }
+            }
         }
+        if (anzahl > 0) pWriter.endArray();
+        else if (pLeer) pWriter.name("bestellungen").beginArray().endArray();
+        if (weitere) pWriter.name("naechsteSeite").value(letzte);
     }
 
     /**
-     * Fragt alle Vorstellungen zu einem oder allen Filmen ab. Es werden nur zukünftige Vorstellungen zurück gegeben
+     * Fragt alle Vorstellungen zu einem oder allen Filmen ab. Es werden nur zukünftige Vorstellungen zurück gegeben. Die
+     * Vorstellungen kommen aus dem {@link ShowtimeIndex} im Speicher (aufsteigend nach Beginn sortiert).
      *
      * @param pFilmId Die ID des Filmes, von dem man die Vorstellung wissen will (0, wenn man alle Filme wissen will)
-     * @return Ein JsonArray, dass die Vorstellungen enthält
+     * @return Ein Json-Array, dass die Vorstellungen enthält (wird direkt in die Antwort gestreamt)
      * @throws SQLException      Falls ein Fehler in der Vebrindung zu der Datenbank auftritt
      * @throws NotFoundException Falls keine Vorstellung gefunden wurde
      */
-    static JsonArray getVorstellungen(int pFilmId) throws SQLException, NotFoundException {
-        try (Connection connection = basicDataSource.getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement("SELECT * FROM vorstellungen " +
-                     "INNER JOIN kinosaele on vorstellungen.saalid = kinosaele.saalid WHERE " +
-                     (pFilmId == 0 ? "" : "filmid=" + pFilmId + " AND ") + "vorstellungsbeginn > CURRENT_TIMESTAMP " +
-                     "ORDER BY vorstellungsbeginn;");
-             ResultSet resultSet = preparedStatement.executeQuery()) {
-            if (!resultSet.next()) throw new NotFoundException("Keine Vorstellung gefunden!");
-            JsonArray array = new JsonArray();
-            JsonObject temp;
-            do {
-                temp = new JsonObject();
-                temp.addProperty("vorstellungsid", resultSet.getInt("vorstellungsid"));
-                temp.addProperty("3d", resultSet.getBoolean("3d"));
-                if (pFilmId == 0) temp.addProperty("filmid", resultSet.getInt("filmid"));
-                temp.addProperty("saalName", resultSet.getString("name"));
-                temp.addProperty("vorstellungsbeginn", resultSet.getTimestamp("vorstellungsbeginn").toString());
-                temp.addProperty("basisPreis", resultSet.getDouble("basis_preis"));
-                array.add(temp);
-            } while (resultSet.next());
-            return array;
+    static StreamingBody getVorstellungen(int pFilmId) throws SQLException, NotFoundException {
+        NavigableSet<ShowtimeIndex.Vorstellung> vorstellungen = showtimes.get(0).upcoming(pFilmId);
+        if (vorstellungen.isEmpty()) throw new NotFoundException("Keine Vorstellung gefunden!");
+        return JsonStreaming.of(writer -> {
+            writer.beginArray();
+            for (ShowtimeIndex.Vorstellung vorstellung : vorstellungen) {
+                writer.beginObject();
+                writer.name("vorstellungsid").value(vorstellung.vorstellungsid);
+                writer.name("3d").value(vorstellung.dreiD);
+                if (pFilmId == 0) writer.name("filmid").value(vorstellung.filmid);
+                writer.name("saalName").value(vorstellung.saalName);
+                writer.name("vorstellungsbeginn").value(vorstellung.vorstellungsbeginn);
+                writer.name("basisPreis").value(vorstellung.basisPreis);
+                writer.endObject();
+            }
+            writer.endArray();
+        });
+    }
+
+    private static ShowtimeIndex loadShowtimes() throws SQLException {
+        try (Connection connection = basicDataSource.getConnection()) {
+            return ShowtimeIndex.load(connection);
         }
     }
 
@@ -1047,6 +1277,7 @@ abstract class DataBase {
      *   "3d": true,
      *   "filmid": 2,
      *   "basisPreis": 12.0,
+     *   "saalplanHash": "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08",
      *   "width": 368,
      *   "height": 184,
      *   "kategorien": [
@@ -1072,61 +1303,72 @@ abstract class DataBase {
      * }}
      *
      * @param pVorstellungsId Die ID von der Vorstellung, zu der man Details haben möchte
-     * @return Ein {@link JsonObject} mit dem oben beschriebene Inhalt
+     * @return Der oben beschriebene Inhalt (wird direkt in die Antwort gestreamt)
      * @throws SQLException Falls ein Fehler in der Verbindung zu der Datenbank auftritt
      * @throws NotFoundException Falls die Vorstellung nicht gefunden wurde
      * @throws BadRequestException Falls ID ungültig ist (d.h falls es eine Zahl < 0 ist)
      */
-    static JsonObject getVorstellungsDetails(int pVorstellungsId) throws SQLException, NotFoundException, BadRequestException {
+    static StreamingBody getVorstellungsDetails(int pVorstellungsId) throws SQLException, NotFoundException, BadRequestException {
         // Parameterprüfung
         if (pVorstellungsId < 1) throw new BadRequestException("Ungültige Vorstellungsid");
 
-        // Alle Infos zu der bestimmte Vorstellung abfragen
-        try (Connection connection = basicDataSource.getConnection();
-             PreparedStatement preparedStatement1 = connection.prepareStatement("SELECT * FROM vorstellungen INNER " +
-                     "JOIN kinosaele on vorstellungen.saalid = kinosaele.saalid WHERE vorstellungsid=" + pVorstellungsId + ";");
-             ResultSet resultSet1 = preparedStatement1.executeQuery()) {
-
-            // Filtern, falls nichts gefunden wurde
-            if (!resultSet1.next()) throw new NotFoundException("Die Vorstellung wurde nicht gefunden!");
-
-            // Metadaten zu der Vorstellung abfragen
-            JsonObject reVal = new JsonObject();
-            reVal.addProperty("saalName", resultSet1.getString("name"));
-            reVal.addProperty("3d", resultSet1.getBoolean("3d"));
-            reVal.addProperty("filmid", resultSet1.getInt("filmid"));
-            reVal.addProperty("basisPreis", resultSet1.getDouble("basis_preis"));
-            reVal.addProperty("width", resultSet1.getInt("width"));
-            reVal.addProperty("height", resultSet1.getInt("height"));
-            reVal.addProperty("vorstellungsbeginn", resultSet1.getTimestamp("vorstellungsbeginn").toString());
-            reVal.add("kategorien", getKategorienCached());
-
-            // Sitze abfragen
-            JsonArray sitze = new JsonArray();
-            try (PreparedStatement preparedStatement2 = connection.prepareStatement("SELECT * FROM saalPlaetze LEFT " +
-                    "JOIN (SELECT platzid from bestellungPlaetze p INNER JOIN bestellungen b ON p.bestellnummer = " +
-                    "b.bestellnummer WHERE vorstellungsid = " + pVorstellungsId + ") AS b ON saalPlaetze.platzid = b.platzid;");
-                 ResultSet resultSet2 = preparedStatement2.executeQuery()) {
-
-                // Alle Sitze in Array einfügen
-                JsonObject temp;
-                while (resultSet2.next()) {
-                    temp = new JsonObject();
-                    temp.addProperty("id", resultSet2.getInt("platzid"));
-                    temp.addProperty("reihe", resultSet2.getString("reihe"));
-                    temp.addProperty("platz", resultSet2.getInt("platz"));
-                    temp.addProperty("kategorie", resultSet2.getInt("kategorieid"));
-                    temp.addProperty("x", resultSet2.getInt("x"));
-                    temp.addProperty("y", resultSet2.getInt("y"));
-                    temp.addProperty("belegt", resultSet2.getInt("b.platzid") != 0);
-                    sitze.add(temp);
-                }
+        // Alle Infos zu der bestimmte Vorstellung abfragen (vor dem Streamen, damit Fehler noch einen Statuscode ergeben)
+        String saalName, vorstellungsbeginn;
+        boolean dreiD;
+        int filmid, width, height;
+        double basisPreis;
+        SeatOccupancy occupancy;
+        SeatPrices prices;
+        try (Connection connection = basicDataSource.getConnection()) {
+            try (PreparedStatement preparedStatement1 = connection.prepareStatement("SELECT * FROM vorstellungen INNER " +
+                    "JOIN kinosaele on vorstellungen.saalid = kinosaele.saalid WHERE vorstellungsid=" + pVorstellungsId + ";");
+                 ResultSet resultSet1 = preparedStatement1.executeQuery()) {
+
+                // Filtern, falls nichts gefunden wurde
+                if (!resultSet1.next()) throw new NotFoundException("Die Vorstellung wurde nicht gefunden!");
+                saalName = resultSet1.getString("name");
+                dreiD = resultSet1.getBoolean("3d");
+                filmid = resultSet1.getInt("filmid");
+                basisPreis = resultSet1.getDouble("basis_preis");
+                width = resultSet1.getInt("width");
+                height = resultSet1.getInt("height");
+                vorstellungsbeginn = resultSet1.getTimestamp("vorstellungsbeginn").toString();
             }
-            reVal.add("sitze", sitze);
-
-            // JsonObjekt zurück geben
-            return reVal;
+            occupancy = SeatOccupancy.get(connection, pVorstellungsId);
+            prices = SeatPrices.get(connection, occupancy);
         }
+        JsonArray kategorien = getKategorienCached();
+
+        // Metadaten und Sitze (aus dem Layout und der Belegung im Speicher) direkt in die Antwort schreiben
+        return JsonStreaming.of(writer -> {
+            SaalLayout layout = occupancy.layout;
+            writer.beginObject();
+            writer.name("saalName").value(saalName);
+            writer.name("3d").value(dreiD);
+            writer.name("filmid").value(filmid);
+            writer.name("basisPreis").value(basisPreis);
+            writer.name("width").value(width);
+            writer.name("height").value(height);
+            writer.name("vorstellungsbeginn").value(vorstellungsbeginn);
+            writer.name("kategorien");
+            JsonStreaming.write(writer, kategorien);
+            writer.name("saalplanHash").value(layout.hash);
+            writer.name("sitze").beginArray();
+            for (int i = 0; i < layout.size(); i++) {
+                writer.beginObject();
+                writer.name("id").value(layout.platzIds[i]);
+                writer.name("reihe").value(layout.reihen[i]);
+                writer.name("platz").value(layout.plaetze[i]);
+                writer.name("kategorie").value(layout.kategorien[i]);
+                writer.name("x").value(layout.x[i]);
+                writer.name("y").value(layout.y[i]);
+                writer.name("preis").value(prices.preis(i));
+                writer.name("belegt").value(!occupancy.isFrei(i));
+                writer.endObject();
+            }
+            writer.endArray();
+            writer.endObject();
+        });
     }
 
     static String insertVorstellung(String pAuthCode, JsonObject pJson) throws BadRequestException, SQLException, UnauthorisedException, NotFoundException, NotActiveException {
@@ -1151,6 +1393,7 @@ abstract class DataBase {
             p.setDouble(3, pJson.get("basis_preis").getAsDouble());
             p.setTimestamp(4, Util.stringToSQLTimestamp(pJson.get("vorstellungsbeginn").getAsString()));
             p.executeUpdate();
+            InvalidationBus.publish("vorstellungen");
             return "Vorstellung erstellt";
         } catch (SQLIntegrityConstraintViolationException e) {
             throw new NotFoundException("'saalid' oder 'filmid' konnte nicht zugeordnet werden!");
@@ -1163,17 +1406,23 @@ abstract class DataBase {
      *
      * @param pAuthCode Ein AuthCode um den Benutzer zu identifizieren
      * @param pPasswort Das Passwort zu zusätzlichen Bestätigung
-     * @throws SQLException      Falls ein Fehler in der Verbindung zur Datenbank auftritt
-     * @throws NotFoundException Falls ein Konto ungültig ist
+     * @throws SQLException          Falls ein Fehler in der Verbindung zur Datenbank auftritt
+     * @throws NotFoundException     Falls ein Konto ungültig ist
+     * @throws BadRequestException   Falls der AuthCode ein ungültiges Format hat
+     * @throws UnauthorisedException Falls der AuthCode ungültig ist
      */
-    static String kontoDeaktivieren(String pAuthCode, String pPasswort) throws SQLException, NotFoundException {
-        try (Connection connection = basicDataSource.getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement("UPDATE konten SET aktiv=2 WHERE passwort='" +
-                     DigestUtils.md5Hex(pPasswort) + "' AND benutzerid=(SELECT benutzerid FROM authCodes WHERE auth_code='" +
-                     DigestUtils.md5Hex(pAuthCode) + "');")) {
-            if (preparedStatement.executeUpdate() == 0) throw new NotFoundException("AuthCode oder Passwort falsch!");
-            return "Ihr Konto wurde erfolgreich deaktiviert";
+    static String kontoDeaktivieren(String pAuthCode, String pPasswort) throws SQLException, NotFoundException, BadRequestException, UnauthorisedException {
+        int benutzerid;
+        try (Connection connection = basicDataSource.getConnection()) {
+            benutzerid = resolveAuthCode(connection, pAuthCode).benutzerid;
+            try (PreparedStatement preparedStatement = connection.prepareStatement("UPDATE konten SET aktiv=2 WHERE passwort='" +
+                    DigestUtils.md5Hex(pPasswort) + "' AND benutzerid=" + benutzerid + ";")) {
+                if (preparedStatement.executeUpdate() == 0) throw new NotFoundException("AuthCode oder Passwort falsch!");
+            }
         }
+        AuthCache.invalidateBenutzer(benutzerid);
+        InvalidationBus.publish("konten");
+        return "Ihr Konto wurde erfolgreich deaktiviert";
     }
 
     /**
@@ -1193,8 +1442,9 @@ abstract class DataBase {
         String email = pJson.get("email").getAsString(), passwort = pJson.get("passwort").getAsString();
 
         // Zugehöriges Konto finden
+        long stamp = AuthCache.stamp();
         try (Connection connection = basicDataSource.getConnection();
-             PreparedStatement preparedStatement1 = connection.prepareStatement("SELECT benutzerid, name, aktiv FROM konten " +
+             PreparedStatement preparedStatement1 = connection.prepareStatement("SELECT benutzerid, name, rolle, aktiv FROM konten " +
                      "WHERE email='" + email + "' AND passwort='" + DigestUtils.md5Hex(passwort) + "';");
              ResultSet resultSet1 = preparedStatement1.executeQuery()) {
 
@@ -1208,11 +1458,14 @@ abstract class DataBase {
             jsonObject.addProperty("name", resultSet1.getString("name"));
             jsonObject.addProperty("authToken", authCode);
 
-            // AuthCode in Datenbank hochladen
+            // AuthCode in Datenbank hochladen (und direkt in den Cache legen)
+            String authHash = DigestUtils.md5Hex(authCode);
             try (PreparedStatement preparedStatement2 = connection.prepareStatement("INSERT INTO authCodes(benutzerid, " +
-                    "auth_code) VALUES (" + resultSet1.getInt("benutzerid") + ", '" + DigestUtils.md5Hex(authCode) + "');")) {
+                    "auth_code) VALUES (" + resultSet1.getInt("benutzerid") + ", '" + authHash + "');")) {
                 preparedStatement2.executeUpdate();
             }
+            InvalidationBus.publish("authCodes");
+            AuthCache.put(authHash, resultSet1.getInt("benutzerid"), resultSet1.getInt("rolle"), resultSet1.getInt("aktiv"), stamp);
 
             // Objekt zurückgeben
             return jsonObject;
@@ -1252,34 +1505,7 @@ abstract class DataBase {
             }
             preparedStatement2.executeBatch();
         }
-    }
-
-    /**
-     * Ein Cache-Objekt, dass Daten zwischenspeichert
-     *
-     * @param <T> Typ des Objektes, was geachet werden soll
-     */
-    private static class CacheObject<T> {
-        private final long aliveUntil;
-        private final T cache;
-
-        /**
-         * Erstellt ein Cache-Objekt.
-         *
-         * @param pCache Das Objekt, dass in dem Cache gespeichert werden soll
-         * @param ttl    Time To Live (Wie lange das JsonObject verwendet werden kann (in ms))
-         */
-        private CacheObject(T pCache, int ttl) {
-            cache = pCache;
-            aliveUntil = ttl + System.currentTimeMillis();
-        }
-
-        /**
-         * Fragt ab, ob das Objekt noch valide ({@code true}) ist oder erneutert ({@code false}) werden muss
-         */
-        private boolean isNotAlive() {
-            return System.currentTimeMillis() >= aliveUntil;
-        }
+        InvalidationBus.publish("kinosaele", "saalPlaetze");
     }
 
     static Connection getConnection() throws SQLException {
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) DHBW Mannheim - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ * Written by Noah Hoelterhoff <noah.hoelterhoff@gmail.com>, 10 2026
+ */
+
+package de.noamo.cinema.backend;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Verteilt Änderungen an Tabellen an alle Caches, die von diesen Tabellen abhängen. Jede schreibende Methode in
+ * {@link DataBase} meldet nach dem Schreiben die betroffenen Tabellen über {@link #publish(String...)}. Caches melden
+ * sich einmalig über {@link #subscribe(Runnable, String...)} für die Tabellen an, aus denen sie lesen. Dadurch können
+ * die TTLs der Caches sehr lang sein, ohne dass Änderungen aus dem Backend verzögert sichtbar werden.<br> Als Themen
+ * werden die Namen der Tabellen verwendet (z.B. {@code "kinosaele"}).
+ *
+ * @author Noah Hoelterhoff
+ * @version 17.10.2026
+ * @since 17.10.2026
+ */
+abstract class InvalidationBus {
+    private final static ConcurrentHashMap<String, List<Runnable>> listeners = new ConcurrentHashMap<>();
+
+    /**
+     * Meldet einen Listener für eine oder mehrere Tabellen an.
+     *
+     * @param pListener Wird nach jeder Änderung an einer der Tabellen aufgerufen (sollte kurz sein, da er auf dem
+     *                  schreibenden Thread läuft)
+     * @param pTables   Die Namen der Tabellen
+     */
+    static void subscribe(Runnable pListener, String... pTables) {
+        for (String table : pTables)
+            listeners.computeIfAbsent(table, k -> new CopyOnWriteArrayList<>()).add(pListener);
+    }
+
+    /**
+     * Meldet, dass sich eine oder mehrere Tabellen geändert haben. Jeder betroffene Listener wird genau einmal
+     * aufgerufen, auch wenn er für mehrere der Tabellen angemeldet ist.
+     *
+     * @param pTables Die Namen der geänderten Tabellen
+     */
+    static void publish(String... pTables) {
+        Set<Runnable> betroffen = new LinkedHashSet<>();
+        for (String table : pTables) {
+            List<Runnable> list = listeners.get(table);
+            if (list != null) betroffen.addAll(list);
+        }
+        for (Runnable listener : betroffen) {
+            try {
+                listener.run();
+            } catch (RuntimeException e) {
+                Start.log(2, "Cache konnte nicht invalidiert werden (" + e.getMessage() + ")");
+            }
+        }
+    }
+}
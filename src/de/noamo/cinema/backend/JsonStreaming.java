@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) DHBW Mannheim - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ * Written by Noah Hoelterhoff <noah.hoelterhoff@gmail.com>, 10 2026
+ */
+
+package de.noamo.cinema.backend;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.stream.JsonWriter;
+import spark.serialization.StreamingBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+
+/**
+ * Erstellt Antworten, die ihr Json direkt über einen {@link JsonWriter} in den Ausgabestrom der Antwort schreiben
+ * ({@link StreamingBody}). Dadurch entsteht weder ein Gson-Baum noch ein String der gesamten Antwort, der Speicher pro
+ * Anfrage bleibt unabhängig von der Größe des Ergebnisses konstant.<br> Der Inhalt wird erst geschrieben, nachdem die
+ * Route zurückgekehrt ist. Fehler, die zu einem Statuscode führen sollen (z.B. {@code 404}), müssen daher vorher
+ * erkannt werden.
+ *
+ * @author Noah Hoelterhoff
+ * @version 17.10.2026
+ * @since 17.10.2026
+ */
+abstract class JsonStreaming {
+    private final static Gson gson = new Gson();
+
+    /**
+     * Erstellt eine gestreamte Antwort.
+     *
+     * @param pContent Schreibt den Inhalt in den {@link JsonWriter}
+     * @return Die Antwort (für die Rückgabe aus einer Route)
+     */
+    static StreamingBody of(Content pContent) {
+        return outputStream -> {
+            JsonWriter writer = new JsonWriter(new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8)));
+            try {
+                pContent.write(writer);
+            } catch (SQLException e) {
+                Start.log(2, "Antwort konnte nicht vollständig gestreamt werden (" + e.getMessage() + ")");
+                throw new IOException(e);
+            }
+            writer.flush();
+        };
+    }
+
+    /**
+     * Schreibt ein bereits vorhandenes (kleines) Json-Element, z.B. einen gecachten Wert.
+     *
+     * @param pWriter  Der {@link JsonWriter}
+     * @param pElement Das Element
+     */
+    static void write(JsonWriter pWriter, JsonElement pElement) {
+        gson.toJson(pElement, pWriter);
+    }
+
+    /**
+     * Schreibt den Inhalt einer Antwort.
+     */
+    @FunctionalInterface
+    interface Content {
+        void write(JsonWriter pWriter) throws IOException, SQLException;
+    }
+}
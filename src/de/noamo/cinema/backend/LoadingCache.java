@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) DHBW Mannheim - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ * Written by Noah Hoelterhoff <noah.hoelterhoff@gmail.com>, 10 2026
+ */
+
+package de.noamo.cinema.backend;
+
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ein Cache, der seine Werte selbst über einen {@link Loader} lädt. Er ersetzt das frühere {@code CacheObject} und hat
+ * folgende Eigenschaften:
+ * <ul>
+ *     <li>Pro Schlüssel läuft immer nur ein Ladevorgang gleichzeitig. Alle anderen Anfragen warten auf dessen
+ *     Ergebnis, statt selbst die Datenbank abzufragen.</li>
+ *     <li>Ist ein Wert abgelaufen, wird er im Hintergrund neu geladen. Bis dahin wird der alte Wert weiter
+ *     ausgeliefert. Nur wenn noch gar kein Wert existiert, muss gewartet werden.</li>
+ *     <li>Treffer, Fehlschläge und Ladezeiten werden gezählt ({@link #getStats()}).</li>
+ *     <li>Einträge können über {@link #invalidate(Object)} bzw. {@link #invalidateAll()} verworfen werden.</li>
+ * </ul>
+ *
+ * @param <K> Typ der Schlüssel
+ * @param <V> Typ der Werte
+ * @author Noah Hoelterhoff
+ * @version 17.10.2026
+ * @since 17.10.2026
+ */
+final class LoadingCache<K, V> {
+    private final static ExecutorService refresher = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "CacheRefresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+    private final String name;
+    private final long ttl;
+    private final Loader<K, V> loader;
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong(), staleHits = new AtomicLong(), misses = new AtomicLong(),
+            loads = new AtomicLong(), loadFailures = new AtomicLong(), loadNanos = new AtomicLong();
+
+    /**
+     * Erstellt einen neuen Cache.
+     *
+     * @param pName   Name des Caches (für Logs und Statistiken)
+     * @param pTtl    Time To Live (Wie lange ein Wert ohne erneutes Laden verwendet werden kann (in ms))
+     * @param pLoader Lädt den Wert zu einem Schlüssel (z.B. aus der Datenbank)
+     */
+    LoadingCache(String pName, long pTtl, Loader<K, V> pLoader) {
+        name = pName;
+        ttl = pTtl;
+        loader = pLoader;
+    }
+
+    /**
+     * Fragt den Wert zu einem Schlüssel ab. Ein abgelaufener Wert wird trotzdem zurückgegeben, während er im
+     * Hintergrund neu geladen wird.
+     *
+     * @param pKey Der Schlüssel
+     * @return Der (ggf. veraltete) Wert
+     * @throws SQLException Falls noch kein Wert existiert und das Laden fehlschlägt
+     */
+    V get(K pKey) throws SQLException {
+        Entry<V> entry = entries.get(pKey);
+        if (entry != null) {
+            if (System.currentTimeMillis() < entry.aliveUntil) {
+                hits.incrementAndGet();
+            } else {
+                staleHits.incrementAndGet();
+                refresh(pKey, true);
+            }
+            return entry.value;
+        }
+
+        // Noch kein Wert vorhanden: auf den (einzigen) Ladevorgang warten
+        misses.incrementAndGet();
+        try {
+            return refresh(pKey, false).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException) throw (SQLException) e.getCause();
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new SQLException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Beim Warten auf den Cache " + name + " unterbrochen", e);
+        }
+    }
+
+    /**
+     * Verwirft den Wert zu einem Schlüssel. Die nächste Anfrage lädt ihn neu.
+     *
+     * @param pKey Der Schlüssel
+     */
+    void invalidate(K pKey) {
+        generation.incrementAndGet();
+        loading.remove(pKey);
+        entries.remove(pKey);
+    }
+
+    /**
+     * Verwirft alle Werte des Caches.
+     */
+    void invalidateAll() {
+        generation.incrementAndGet();
+        loading.clear();
+        entries.clear();
+    }
+
+    /**
+     * Gibt die Statistiken des Caches als lesbaren Text zurück.
+     */
+    String getStats() {
+        long l = loads.get();
+        return name + ": hits=" + hits.get() + ", staleHits=" + staleHits.get() + ", misses=" + misses.get() +
+                ", loads=" + l + ", loadFailures=" + loadFailures.get() + ", avgLoadMs=" +
+                (l == 0 ? 0 : loadNanos.get() / l / 1000000);
+    }
+
+    /**
+     * Startet einen Ladevorgang für einen Schlüssel, falls nicht schon einer läuft.
+     *
+     * @param pKey        Der Schlüssel
+     * @param pBackground Ob der Ladevorgang im Hintergrund laufen soll (sonst auf dem aufrufenden Thread)
+     * @return Das Ergebnis des (ggf. bereits laufenden) Ladevorgangs
+     */
+    private CompletableFuture<V> refresh(K pKey, boolean pBackground) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> running = loading.putIfAbsent(pKey, future);
+        if (running != null) return running;
+
+        long startGeneration = generation.get();
+        Runnable load = () -> {
+            long start = System.nanoTime();
+            try {
+                V value = loader.load(pKey);
+                // Wurde während des Ladens invalidiert, ist der Wert evtl. schon veraltet und wird nicht gespeichert.
+                // Prüfen und Speichern passieren atomar, da invalidate erst die Generation erhöht und danach den
+                // Eintrag entfernt (was auf das Ende von compute wartet)
+                Entry<V> entry = new Entry<>(value, System.currentTimeMillis() + ttl);
+                entries.compute(pKey, (k, old) -> generation.get() == startGeneration ? entry : old);
+                loads.incrementAndGet();
+                future.complete(value);
+            } catch (SQLException | RuntimeException e) {
+                loadFailures.incrementAndGet();
+                if (pBackground) Start.log(2, "Cache " + name + " konnte nicht aktualisiert werden (" + e.getMessage() + ")");
+                future.completeExceptionally(e);
+            } finally {
+                loadNanos.addAndGet(System.nanoTime() - start);
+                loading.remove(pKey, future);
+            }
+        };
+        if (pBackground) refresher.execute(load);
+        else load.run();
+        return future;
+    }
+
+    /**
+     * Lädt den Wert zu einem Schlüssel.
+     *
+     * @param <K> Typ der Schlüssel
+     * @param <V> Typ der Werte
+     */
+    @FunctionalInterface
+    interface Loader<K, V> {
+        V load(K pKey) throws SQLException;
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long aliveUntil;
+
+        private Entry(V pValue, long pAliveUntil) {
+            value = pValue;
+            aliveUntil = pAliveUntil;
+        }
+    }
+}
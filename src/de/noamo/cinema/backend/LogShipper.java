@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) DHBW Mannheim - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ * Written by Noah Hoelterhoff <noah.hoelterhoff@gmail.com>, 10 2026
+ */
+
+package de.noamo.cinema.backend;
+
+import com.google.gson.JsonObject;
+import org.apache.http.Header;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Sendet Fehlermeldungen aus {@link Start#log(int, String)} asynchron an einen WebHook. Meldungen landen in einem
+ * begrenzten Puffer, gleiche Meldungen werden zusammengefasst (mit Anzahl). Ein einzelner Thread sendet sie über einen
+ * wiederverwendeten HTTP-Client in Blöcken, zwischen zwei Anfragen liegen mindestens {@code minIntervalMs} ms. Ist der
+ * Puffer voll, werden neue Meldungen nur gezählt und mit dem nächsten Block als Anzahl gemeldet, der aufrufende Thread
+ * wartet nie.
+ *
+ * @author Noah Hoelterhoff
+ * @version 17.10.2026
+ * @since 17.10.2026
+ */
+final class LogShipper {
+    private final static int MAX_CONTENT = 2000; // Maximale Länge einer Nachricht (Discord)
+    private final static int HTTP_TIMEOUT_MS = 5000;
+    private final String url;
+    private final int capacity, maxBatch;
+    private final long minIntervalMs;
+    private final LinkedHashMap<String, Integer> pending = new LinkedHashMap<>();
+    private final CloseableHttpClient client;
+    private final Thread thread;
+    private long dropped, droppedTotal, coalesced, shipped, batches, failed;
+    private long nextSend;
+    private boolean stopped;
+
+    /**
+     * Erstellt einen neuen Shipper und startet den zugehörigen Thread.
+     *
+     * @param pUrl           URL des WebHooks
+     * @param pCapacity      Maximale Anzahl an unterschiedlichen wartenden Meldungen
+     * @param pMaxBatch      Maximale Anzahl an Meldungen pro Anfrage
+     * @param pMinIntervalMs Minimaler Abstand zwischen zwei Anfragen in ms
+     */
+    LogShipper(String pUrl, int pCapacity, int pMaxBatch, long pMinIntervalMs) {
+        this(pUrl, pCapacity, pMaxBatch, pMinIntervalMs, true);
+    }
+
+    /**
+     * Erstellt einen neuen Shipper.
+     *
+     * @param pUrl           URL des WebHooks
+     * @param pCapacity      Maximale Anzahl an unterschiedlichen wartenden Meldungen
+     * @param pMaxBatch      Maximale Anzahl an Meldungen pro Anfrage
+     * @param pMinIntervalMs Minimaler Abstand zwischen zwei Anfragen in ms
+     * @param pStart         Ob der Thread sofort gestartet werden soll (sonst über {@link #start()}, z.B. in Tests)
+     */
+    LogShipper(String pUrl, int pCapacity, int pMaxBatch, long pMinIntervalMs, boolean pStart) {
+        url = pUrl;
+        capacity = pCapacity;
+        maxBatch = pMaxBatch;
+        minIntervalMs = pMinIntervalMs;
+        client = HttpClients.custom().setDefaultRequestConfig(RequestConfig.custom().setConnectTimeout(HTTP_TIMEOUT_MS)
+                .setConnectionRequestTimeout(HTTP_TIMEOUT_MS).setSocketTimeout(HTTP_TIMEOUT_MS).build()).build();
+        thread = new Thread(this::run, "LogShipper");
+        thread.setDaemon(true);
+        if (pStart) thread.start();
+    }
+
+    /**
+     * Startet den Thread (nur nötig, falls er nicht schon beim Erstellen gestartet wurde).
+     */
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Reiht eine Meldung ein (blockiert nie).
+     *
+     * @param pMessage Die Meldung
+     */
+    synchronized void offer(String pMessage) {
+        if (stopped) return;
+        Integer anzahl = pending.get(pMessage);
+        if (anzahl != null) {
+            pending.put(pMessage, anzahl + 1);
+            coalesced++;
+        } else if (pending.size() >= capacity) {
+            dropped++;
+            droppedTotal++;
+        } else {
+            pending.put(pMessage, 1);
+            notifyAll();
+        }
+    }
+
+    /**
+     * Sendet alle wartenden Meldungen (unter Einhaltung des Intervalls) und beendet danach den Thread.
+     *
+     * @param pTimeoutMs Maximale Wartezeit in ms
+     */
+    void shutdown(long pTimeoutMs) {
+        synchronized (this) {
+            stopped = true;
+            notifyAll();
+        }
+        try {
+            thread.join(pTimeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            client.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Gibt die Statistiken des Shippers zurück.
+     */
+    synchronized String getStats() {
+        return "logShipper: pending=" + pending.size() + ", coalesced=" + coalesced + ", dropped=" + droppedTotal +
+                ", shipped=" + shipped + ", batches=" + batches + ", failed=" + failed;
+    }
+
+    private void run() {
+        while (true) {
+            String content;
+            synchronized (this) {
+                try {
+                    while (true) {
+                        boolean leer = (pending.isEmpty() && dropped == 0);
+                        if (leer && stopped) return; // Heruntergefahren und alles gesendet
+                        long warten = nextSend - System.currentTimeMillis();
+                        if (leer) wait();
+                        else if (warten > 0) wait(warten);
+                        else break;
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                content = nextBatch();
+            }
+            send(content);
+            synchronized (this) {
+                // Abstand ab dem Ende der Anfrage (ein langsamer WebHook wird dadurch seltener angefragt)
+                nextSend = Math.max(nextSend, System.currentTimeMillis() + minIntervalMs);
+            }
+        }
+    }
+
+    /**
+     * Entnimmt die nächsten Meldungen (max. {@code maxBatch} und {@value MAX_CONTENT} Zeichen) und fasst sie zu einem
+     * Text zusammen.
+     */
+    private String nextBatch() {
+        StringBuilder builder = new StringBuilder();
+        int anzahl = 0;
+        Iterator<Map.Entry<String, Integer>> iterator = pending.entrySet().iterator();
+        while (iterator.hasNext() && anzahl < maxBatch) {
+            Map.Entry<String, Integer> entry = iterator.next();
+            String line = entry.getKey() + (entry.getValue() > 1 ? " (" + entry.getValue() + "x)" : "");
+            if (line.length() > MAX_CONTENT) line = line.substring(0, MAX_CONTENT - 3) + "...";
+            if (anzahl > 0 && builder.length() + 1 + line.length() > MAX_CONTENT) break;
+            if (builder.length() > 0) builder.append('\n');
+            builder.append(line);
+            anzahl++;
+            shipped += entry.getValue();
+            iterator.remove();
+        }
+        if (dropped > 0) {
+            String line = dropped + " weitere Fehler verworfen (Puffer voll)";
+            if (builder.length() + 1 + line.length() <= MAX_CONTENT) {
+                if (builder.length() > 0) builder.append('\n');
+                builder.append(line);
+                dropped = 0;
+            }
+        }
+        return builder.toString();
+    }
+
+    private void send(String pContent) {
+        JsonObject body = new JsonObject();
+        body.addProperty("content", pContent);
+        HttpPost post = new HttpPost(url);
+        post.setEntity(new StringEntity(body.toString(), ContentType.create("application/json", "UTF-8")));
+        try (CloseableHttpResponse response = client.execute(post)) {
+            EntityUtils.consume(response.getEntity()); // Verbindung wieder freigeben
+            int status = response.getStatusLine().getStatusCode();
+            synchronized (this) {
+                batches++;
+                if (status == 429) {
+                    // Vom WebHook vorgegebene Wartezeit einhalten
+                    Header retryAfter = response.getFirstHeader("Retry-After");
+                    nextSend = System.currentTimeMillis() + parseRetryAfter(retryAfter);
+                }
+                if (status > 299) failed++;
+            }
+            // Nicht über Start.log, sonst würde der Fehler erneut eingereiht
+            if (status > 299)
+                System.out.println("Could not send Log to WebHook (" + status + " " + response.getStatusLine().getReasonPhrase() + ")");
+        } catch (IOException e) {
+            synchronized (this) {
+                batches++;
+                failed++;
+            }
+            System.out.println("Could not send Log to WebHook (" + e.getMessage() + ")");
+        }
+    }
+
+    private long parseRetryAfter(Header pHeader) {
+        try {
+            return Math.max((long) (Double.parseDouble(pHeader.getValue()) * 1000), minIntervalMs);
+        } catch (NullPointerException | NumberFormatException e) {
+            return minIntervalMs * 10;
+        }
+    }
+}
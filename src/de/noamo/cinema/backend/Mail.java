@@ -7,23 +7,52 @@
 
 package de.noamo.cinema.backend;
 
-
-import org.simplejavamail.api.email.Email;
-import org.simplejavamail.api.mailer.Mailer;
-import org.simplejavamail.api.mailer.config.TransportStrategy;
-import org.simplejavamail.email.EmailBuilder;
-import org.simplejavamail.mailer.MailerBuilder;
+import java.sql.Connection;
+import java.sql.SQLException;
 
 /**
- * Diese Klasse ist für alle Interaktionen mit Emails (senden, empfangen, etc.) zuständig
+ * Diese Klasse ist für alle Interaktionen mit Emails (senden, empfangen, etc.) zuständig. Der eigentliche Versand
+ * läuft asynchron über eine {@link MailOutbox}.
  *
  * @author Noah Hoelterhoff
  * @version 21.09.2020
  * @since 15.09.2020
  */
 abstract class Mail {
-    static String emailAdresse, emailPasswort, emailHost;
-    static int emailPort;
+    private final static int WORKERS = 2;
+    private final static int QUEUE_CAPACITY = 1000;
+    private final static int MAX_ATTEMPTS = 5;
+    private final static int BASE_BACKOFF_MS = 2000;
+    private static volatile MailOutbox outbox;
+
+    /**
+     * Konfiguriert den SMTP-Server und startet den Mailversand.
+     *
+     * @param pHost     SMTP-Host
+     * @param pPort     SMTP-Port
+     * @param pAdresse  Email-Adresse (Absender und Benutzername)
+     * @param pPasswort Passwort für den SMTP-Server
+     */
+    static void setup(String pHost, int pPort, String pAdresse, String pPasswort) {
+        outbox = new MailOutbox(pHost, pPort, pAdresse, pPasswort, pAdresse, true, WORKERS, QUEUE_CAPACITY,
+                MAX_ATTEMPTS, BASE_BACKOFF_MS);
+    }
+
+    /**
+     * Wartet (beim Herunterfahren), bis alle eingereihten Emails versendet wurden.
+     *
+     * @param pTimeoutMs Maximale Wartezeit in ms
+     */
+    static void shutdown(long pTimeoutMs) {
+        if (outbox != null && outbox.shutdown(pTimeoutMs)) Start.log(1, "Alle Emails wurden versendet");
+    }
+
+    /**
+     * Gibt die Statistiken des Mailversands zurück.
+     */
+    static String getStats() {
+        return (outbox == null ? "mail: nicht konfiguriert" : outbox.getStats());
+    }
 
     /**
      * Sendet eine Aktivierungs-Email an eine Person
@@ -48,13 +77,44 @@ abstract class Mail {
         sendMail(pName, pNewEmail, "DHBW Kino - Email ändern", htmlText2);
     }
 
-    static void sendTicketMail(final String pName, final String pEmail, final String pCode) {
+    /**
+     * Trägt die Ticket-Email einer Bestellung in die Outbox ein (in der Transaktion der Bestellung). Der Versand
+     * erfolgt über {@link MailRelay}.
+     *
+     * @param pConnection Die Verbindung mit der offenen Transaktion der Bestellung
+     * @param pName       Name der Person
+     * @param pEmail      Email-Adresse der Person
+     * @param pCode       Code der Tickets
+     * @throws SQLException Falls ein Fehler in der Verbindung zu der Datenbank auftritt
+     */
+    static void queueTicketMail(Connection pConnection, final String pName, final String pEmail, final String pCode) throws SQLException {
         String htmlText = Resources.getTicketMail(pName, pCode);
-        sendMail(pName, pEmail, "DHBW Kino - Ihre Bestellung", htmlText);
+        MailRelay.enqueue(pConnection, pName, pEmail, "DHBW Kino - Ihre Bestellung", htmlText);
+    }
+
+    /**
+     * Übergibt eine Email direkt an die {@link MailOutbox} (für {@link MailRelay}).
+     *
+     * @param pMail Die Email
+     */
+    static void deliver(MailOutbox.OutgoingMail pMail) {
+        if (outbox == null) {
+            if (pMail.onResult != null) pMail.onResult.accept(MailOutbox.Ergebnis.FEHLGESCHLAGEN);
+            return;
+        }
+        outbox.submit(pMail);
     }
 
     /**
-     * Sendet eine verschlüsselte Email über den angegeben SMTP-Server.
+     * Gibt zurück, wie viele Emails noch ohne Warten übergeben werden können (0, falls kein SMTP-Server konfiguriert
+     * ist).
+     */
+    static int remainingCapacity() {
+        return (outbox == null ? 0 : outbox.remainingCapacity());
+    }
+
+    /**
+     * Reiht eine Email zum Versand über den angegeben SMTP-Server ein.
      *
      * @param pName     Name der Person, die die EMail empfangen soll
      * @param pEmail    Die Email-Adresse des Empfängers
@@ -62,17 +122,10 @@ abstract class Mail {
      * @param pHtmlText Der Inhalt der Email (als HTML-Code)
      */
     private static void sendMail(String pName, String pEmail, String pSubject, String pHtmlText) {
-        new Thread(() -> {
-            // Email vorbereiten
-            Email mail = EmailBuilder.startingBlank().to(pName, pEmail).withSubject(pSubject).
-                    withHTMLText(pHtmlText).from("DHBW Kino", emailAdresse).buildEmail();
-
-            // Mailer vorbereiten
-            Mailer mailer = MailerBuilder.withSMTPServer(emailHost, emailPort, emailAdresse, emailPasswort).
-                    withTransportStrategy(TransportStrategy.SMTP_TLS).buildMailer();
-
-            // Email send
-            mailer.sendMail(mail);
-        }).start();
+        if (outbox == null) {
+            Start.log(2, "Email an " + pEmail + " nicht versendet (kein SMTP-Server konfiguriert)");
+            return;
+        }
+        outbox.submit(new MailOutbox.OutgoingMail(pName, pEmail, pSubject, pHtmlText));
     }
 }
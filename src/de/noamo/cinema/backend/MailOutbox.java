@@ -0,0 +1,363 @@
+/*
+ * Copyright (c) DHBW Mannheim - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ * Written by Noah Hoelterhoff <noah.hoelterhoff@gmail.com>, 10 2026
+ */
+
+package de.noamo.cinema.backend;
+
+import com.sun.mail.smtp.SMTPAddressFailedException;
+import com.sun.mail.smtp.SMTPSendFailedException;
+
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import javax.mail.Session;
+import javax.mail.Transport;
+import javax.mail.internet.AddressException;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+import java.io.UnsupportedEncodingException;
+import java.util.Date;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Eine begrenzte Warteschlange für ausgehende Emails, die von einer festen Anzahl an Worker-Threads abgearbeitet wird.
+ * Jeder Worker hält eine eigene SMTP-Verbindung offen und verwendet sie für alle folgenden Emails wieder, sodass nicht
+ * für jede Email ein neuer Thread und ein neuer TLS-Handshake nötig ist. Ungenutzte Verbindungen werden nach
+ * {@value IDLE_CLOSE_MS} ms geschlossen.<br><br>
+ * Vorübergehende Fehler werden mit exponentiell wachsendem Abstand bis zu {@code maxAttempts} mal wiederholt (über
+ * ein {@link TimerWheel}). Ist die Warteschlange voll, wartet {@link #submit(OutgoingMail)} höchstens
+ * {@value OFFER_TIMEOUT_MS} ms und verwirft die Email danach. Die Auslastung kann über {@link #getStats()} abgefragt
+ * werden.
+ *
+ * @author Noah Hoelterhoff
+ * @version 17.10.2026
+ * @since 17.10.2026
+ */
+final class MailOutbox {
+    private final static int IDLE_CLOSE_MS = 30000;
+    private final static int MAX_BACKOFF_MS = 60000;
+    private final static int OFFER_TIMEOUT_MS = 2000;
+    private final static int POLL_MS = 1000;
+    private final static int SMTP_TIMEOUT_MS = 15000;
+    private final static TimerWheel retryTimer = new TimerWheel("MailRetry", 250, 256);
+    private final Session session;
+    private final String host, user, password, absender;
+    private final int port, maxAttempts, baseBackoffMs;
+    private final ArrayBlockingQueue<Job> queue;
+    private final Thread[] workers;
+    private final AtomicInteger inFlight = new AtomicInteger(), pendingRetries = new AtomicInteger();
+    private final AtomicLong submitted = new AtomicLong(), sent = new AtomicLong(), failed = new AtomicLong(),
+            retried = new AtomicLong(), rejected = new AtomicLong(), connections = new AtomicLong(),
+            queueMillis = new AtomicLong(), sendMillis = new AtomicLong(), maxQueued = new AtomicLong();
+    private volatile boolean accepting = true, stopped = false;
+
+    /**
+     * Erstellt eine neue Warteschlange und startet die Worker-Threads.
+     *
+     * @param pHost          SMTP-Host
+     * @param pPort          SMTP-Port
+     * @param pUser          Benutzername für den SMTP-Server (oder {@code null} ohne Anmeldung)
+     * @param pPassword      Passwort für den SMTP-Server
+     * @param pAbsender      Absender-Adresse
+     * @param pTls           Ob STARTTLS verpflichtend verwendet werden soll
+     * @param pWorkers       Anzahl an Worker-Threads (= max. gleichzeitige SMTP-Verbindungen)
+     * @param pCapacity      Maximale Anzahl an wartenden Emails
+     * @param pMaxAttempts   Maximale Anzahl an Zustellversuchen pro Email
+     * @param pBaseBackoffMs Wartezeit vor der ersten Wiederholung (verdoppelt sich bei jedem weiteren Versuch)
+     */
+    MailOutbox(String pHost, int pPort, String pUser, String pPassword, String pAbsender, boolean pTls, int pWorkers,
+               int pCapacity, int pMaxAttempts, int pBaseBackoffMs) {
+        host = pHost;
+        port = pPort;
+        user = pUser;
+        password = pPassword;
+        absender = pAbsender;
+        maxAttempts = pMaxAttempts;
+        baseBackoffMs = pBaseBackoffMs;
+        queue = new ArrayBlockingQueue<>(pCapacity);
+
+        Properties properties = new Properties();
+        properties.put("mail.smtp.auth", String.valueOf(pUser != null));
+        properties.put("mail.smtp.starttls.enable", String.valueOf(pTls));
+        properties.put("mail.smtp.starttls.required", String.valueOf(pTls));
+        properties.put("mail.smtp.connectiontimeout", String.valueOf(SMTP_TIMEOUT_MS));
+        properties.put("mail.smtp.timeout", String.valueOf(SMTP_TIMEOUT_MS));
+        properties.put("mail.smtp.writetimeout", String.valueOf(SMTP_TIMEOUT_MS));
+        session = Session.getInstance(properties);
+
+        workers = new Thread[pWorkers];
+        for (int i = 0; i < pWorkers; i++) {
+            workers[i] = new Thread(this::work, "MailWorker-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * Reiht eine Email in die Warteschlange ein. Ist die Warteschlange voll, wird kurz gewartet.
+     *
+     * @param pMail Die Email
+     * @return {@code false}, falls die Email verworfen wurde (Warteschlange voll oder bereits heruntergefahren)
+     */
+    boolean submit(OutgoingMail pMail) {
+        if (!accepting) {
+            rejected.incrementAndGet();
+            Start.log(2, "Email an " + pMail.email + " verworfen (Mailversand wird heruntergefahren)");
+            report(pMail, Ergebnis.FEHLGESCHLAGEN);
+            return false;
+        }
+        try {
+            if (!queue.offer(new Job(pMail), OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                rejected.incrementAndGet();
+                Start.log(2, "Email an " + pMail.email + " verworfen (Warteschlange voll)");
+                report(pMail, Ergebnis.FEHLGESCHLAGEN);
+                return false;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            rejected.incrementAndGet();
+            report(pMail, Ergebnis.FEHLGESCHLAGEN);
+            return false;
+        }
+        submitted.incrementAndGet();
+        maxQueued.accumulateAndGet(queue.size(), Math::max);
+        return true;
+    }
+
+    /**
+     * Nimmt keine neuen Emails mehr an und wartet, bis alle wartenden Emails (inkl. geplanter Wiederholungen) versendet
+     * wurden. Danach werden die Worker beendet und ihre Verbindungen geschlossen.
+     *
+     * @param pTimeoutMs Maximale Wartezeit in ms
+     * @return {@code true}, falls alle Emails abgearbeitet wurden
+     */
+    boolean shutdown(long pTimeoutMs) {
+        accepting = false;
+        long deadline = System.currentTimeMillis() + pTimeoutMs;
+        while (!isIdle() && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        boolean drained = isIdle();
+        if (!drained)
+            Start.log(2, (queue.size() + inFlight.get() + pendingRetries.get()) + " Emails konnten vor dem Herunterfahren nicht versendet werden");
+        stopped = true;
+        for (Thread worker : workers) {
+            try {
+                worker.join(POLL_MS * 2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return drained;
+    }
+
+    /**
+     * Gibt zurück, wie viele Emails noch ohne Warten eingereiht werden können.
+     */
+    int remainingCapacity() {
+        return (accepting ? queue.remainingCapacity() : 0);
+    }
+
+    private boolean isIdle() {
+        return queue.isEmpty() && inFlight.get() == 0 && pendingRetries.get() == 0;
+    }
+
+    /**
+     * Gibt die Statistiken des Mailversands als lesbaren Text zurück (u.a. aktuelle und maximale Länge der
+     * Warteschlange, verworfene Emails und durchschnittliche Warte- und Sendezeit).
+     */
+    String getStats() {
+        long s = sent.get();
+        return "mail: queued=" + queue.size() + ", maxQueued=" + maxQueued.get() + ", capacity=" +
+                (queue.size() + queue.remainingCapacity()) + ", inFlight=" + inFlight.get() + ", pendingRetries=" +
+                pendingRetries.get() + ", submitted=" + submitted.get() + ", sent=" + s + ", retried=" + retried.get() +
+                ", failed=" + failed.get() + ", rejected=" + rejected.get() + ", connections=" + connections.get() +
+                ", avgQueueMs=" + (s == 0 ? 0 : queueMillis.get() / s) + ", avgSendMs=" + (s == 0 ? 0 : sendMillis.get() / s);
+    }
+
+    private void work() {
+        Transport transport = null;
+        long lastUse = 0;
+        while (!stopped || !queue.isEmpty()) {
+            Job job;
+            try {
+                job = queue.poll(POLL_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                continue;
+            }
+            if (job == null) {
+                // Ungenutzte Verbindung schließen (der Server würde sie sonst irgendwann selbst trennen)
+                if (transport != null && System.currentTimeMillis() - lastUse > IDLE_CLOSE_MS) transport = close(transport);
+                continue;
+            }
+
+            inFlight.incrementAndGet();
+            try {
+                long start = System.currentTimeMillis();
+                MimeMessage message = job.toMessage();
+                boolean reused = (transport != null);
+                try {
+                    if (transport == null) transport = connect();
+                    transport.sendMessage(message, message.getAllRecipients());
+                } catch (MessagingException e) {
+                    // Eine wiederverwendete Verbindung kann inzwischen vom Server getrennt worden sein (hat der Server
+                    // dagegen geantwortet, ist es ein echter Fehler)
+                    if (!reused || e instanceof SendFailedException) throw e;
+                    close(transport);
+                    transport = connect();
+                    transport.sendMessage(message, message.getAllRecipients());
+                }
+                lastUse = System.currentTimeMillis();
+                sent.incrementAndGet();
+                queueMillis.addAndGet(start - job.eingereiht);
+                sendMillis.addAndGet(lastUse - start);
+                report(job.mail, Ergebnis.GESENDET);
+            } catch (MessagingException | UnsupportedEncodingException | RuntimeException e) {
+                // Auch unerwartete Fehler wiederholen und melden, der Worker darf dabei nicht beendet werden
+                if (transport != null) transport = close(transport);
+                retry(job, e);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+        if (transport != null) close(transport);
+    }
+
+    private Transport connect() throws MessagingException {
+        Transport transport = session.getTransport("smtp");
+        transport.connect(host, port, user, password);
+        connections.incrementAndGet();
+        return transport;
+    }
+
+    private static Transport close(Transport pTransport) {
+        try {
+            pTransport.close();
+        } catch (MessagingException ignored) {
+        }
+        return null;
+    }
+
+    /**
+     * Plant eine erneute Zustellung ein oder gibt die Email auf (bei dauerhaften Fehlern oder zu vielen Versuchen).
+     */
+    private void retry(Job pJob, Exception pException) {
+        boolean permanent = isPermanent(pException);
+        if (permanent || pJob.versuche >= maxAttempts) {
+            failed.incrementAndGet();
+            Start.log(2, "Email an " + pJob.mail.email + " konnte nach " + pJob.versuche + " Versuch(en) nicht versendet " +
+                    "werden (" + pException.getMessage() + ")");
+            report(pJob.mail, permanent ? Ergebnis.DAUERHAFT_FEHLGESCHLAGEN : Ergebnis.FEHLGESCHLAGEN);
+            return;
+        }
+        retried.incrementAndGet();
+        pendingRetries.incrementAndGet();
+        long backoff = Math.min((long) baseBackoffMs << (pJob.versuche - 1), MAX_BACKOFF_MS);
+        pJob.versuche++;
+        retryTimer.schedule(System.currentTimeMillis() + backoff, () -> {
+            // Beim erneuten Einreihen nicht blockieren (läuft auf dem Thread des TimerWheels)
+            if (!queue.offer(pJob)) {
+                failed.incrementAndGet();
+                Start.log(2, "Email an " + pJob.mail.email + " verworfen (Warteschlange voll)");
+                report(pJob.mail, Ergebnis.FEHLGESCHLAGEN);
+            }
+            pendingRetries.decrementAndGet();
+        });
+    }
+
+    private static void report(OutgoingMail pMail, Ergebnis pErgebnis) {
+        if (pMail.onResult == null) return;
+        try {
+            pMail.onResult.accept(pErgebnis);
+        } catch (RuntimeException e) {
+            Start.log(2, "Ergebnis des Mailversands konnte nicht verarbeitet werden (" + e.getMessage() + ")");
+        }
+    }
+
+    private static boolean isPermanent(Exception pException) {
+        if (pException instanceof AddressException || pException instanceof UnsupportedEncodingException) return true;
+        int code = 0;
+        if (pException instanceof SMTPSendFailedException)
+            code = ((SMTPSendFailedException) pException).getReturnCode();
+        else if (pException instanceof SMTPAddressFailedException)
+            code = ((SMTPAddressFailedException) pException).getReturnCode();
+        return code >= 500 && code < 600;
+    }
+
+    /**
+     * Das Ergebnis des Versands einer Email.
+     */
+    enum Ergebnis {
+        GESENDET, // Die Email wurde zugestellt
+        FEHLGESCHLAGEN, // Vorübergehender Fehler (oder verworfen), ein späterer Versuch kann noch gelingen
+        DAUERHAFT_FEHLGESCHLAGEN // Der Server hat die Email dauerhaft abgelehnt (5xx, ungültige Adresse, ...)
+    }
+
+    /**
+     * Eine Email, die versendet werden soll.
+     */
+    static final class OutgoingMail {
+        final String name, email, betreff, html;
+        final Consumer<Ergebnis> onResult;
+
+        /**
+         * @param pName    Name des Empfängers
+         * @param pEmail   Email-Adresse des Empfängers
+         * @param pBetreff Betreff der Email
+         * @param pHtml    Inhalt der Email (als HTML-Code)
+         */
+        OutgoingMail(String pName, String pEmail, String pBetreff, String pHtml) {
+            this(pName, pEmail, pBetreff, pHtml, null);
+        }
+
+        /**
+         * @param pName     Name des Empfängers
+         * @param pEmail    Email-Adresse des Empfängers
+         * @param pBetreff  Betreff der Email
+         * @param pHtml     Inhalt der Email (als HTML-Code)
+         * @param pOnResult Wird genau einmal mit dem {@link Ergebnis} des Versands aufgerufen
+         */
+        OutgoingMail(String pName, String pEmail, String pBetreff, String pHtml, Consumer<Ergebnis> pOnResult) {
+            name = pName;
+            email = pEmail;
+            betreff = pBetreff;
+            html = pHtml;
+            onResult = pOnResult;
+        }
+    }
+
+    private final class Job {
+        private final OutgoingMail mail;
+        private final long eingereiht = System.currentTimeMillis();
+        private int versuche = 1;
+
+        private Job(OutgoingMail pMail) {
+            mail = pMail;
+        }
+
+        private MimeMessage toMessage() throws MessagingException, UnsupportedEncodingException {
+            MimeMessage message = new MimeMessage(session);
+            message.setFrom(new InternetAddress(absender, "DHBW Kino", "UTF-8"));
+            message.setRecipient(Message.RecipientType.TO, new InternetAddress(mail.email, mail.name, "UTF-8"));
+            message.setSubject(mail.betreff, "UTF-8");
+            message.setContent(mail.html, "text/html; charset=utf-8");
+            message.setSentDate(new Date());
+            // Header und Inhalt schon hier erzeugen, damit Fehler im Inhalt nicht erst mitten in der SMTP-Sitzung auftreten
+            message.saveChanges();
+            return message;
+        }
+    }
+}
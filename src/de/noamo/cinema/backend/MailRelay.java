@@ -0,0 +1,291 @@
+/*
+ * Copyright (c) DHBW Mannheim - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ * Written by Noah Hoelterhoff <noah.hoelterhoff@gmail.com>, 10 2026
+ */
+
+package de.noamo.cinema.backend;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Versendet die Emails aus der Tabelle {@code mailOutbox}. Emails werden über {@link #enqueue(Connection, String,
+ * String, String, String)} in derselben Transaktion wie die zugehörigen Daten eingetragen, sodass sie weder bei einem
+ * Absturz noch bei einem langsamen SMTP-Server verloren gehen.<br><br>
+ * Ein Hintergrund-Thread liest fällige Emails in Blöcken, reserviert sie für {@value LEASE_SECONDS} Sekunden (damit
+ * keine andere Instanz sie gleichzeitig versendet) und übergibt sie an die {@link MailOutbox}. Solange eine Email dort
+ * noch wartet oder wiederholt wird, wird ihre Reservierung regelmäßig verlängert und sie wird von dieser Instanz nicht
+ * erneut reserviert. Nach dem Versand werden sie als gesendet markiert, vorübergehend fehlgeschlagene Emails werden
+ * später erneut versucht, dauerhaft abgelehnte Emails werden aufgegeben. Stürzt das Backend zwischen Versand und
+ * Markierung ab, wird die Email nach Ablauf der Reservierung ein zweites Mal versendet (mindestens einmal).
+ *
+ * @author Noah Hoelterhoff
+ * @version 17.10.2026
+ * @since 17.10.2026
+ */
+abstract class MailRelay {
+    private final static int BATCH_SIZE = 50;
+    private final static int LEASE_SECONDS = 300;
+    private final static int MAX_BACKOFF_SECONDS = 3600;
+    private final static int MAX_VERSUCHE = 8;
+    private final static int POLL_MS = 5000;
+    private final static Semaphore signal = new Semaphore(0);
+    private final static ConcurrentLinkedQueue<Integer> gesendet = new ConcurrentLinkedQueue<>();
+    private final static ConcurrentLinkedQueue<Integer> fehlgeschlagen = new ConcurrentLinkedQueue<>();
+    private final static ConcurrentLinkedQueue<Integer> dauerhaftFehlgeschlagen = new ConcurrentLinkedQueue<>();
+    private final static ConcurrentHashMap<Integer, Long> inFlight = new ConcurrentHashMap<>(); // id -> nächste Verlängerung
+    private final static AtomicLong claimed = new AtomicLong(), sent = new AtomicLong(), rescheduled = new AtomicLong(),
+            abandoned = new AtomicLong();
+    private static volatile boolean running;
+    private static Thread thread;
+
+    /**
+     * Trägt eine Email in die Outbox ein. Wird die Methode innerhalb einer Transaktion aufgerufen, wird die Email nur
+     * versendet, wenn die Transaktion erfolgreich abgeschlossen wird.
+     *
+     * @param pConnection Die Verbindung (mit der offenen Transaktion)
+     * @param pName       Name des Empfängers
+     * @param pEmail      Email-Adresse des Empfängers
+     * @param pBetreff    Betreff der Email
+     * @param pHtml       Inhalt der Email (als HTML-Code)
+     * @throws SQLException Falls ein Fehler in der Verbindung zu der Datenbank auftritt
+     */
+    static void enqueue(Connection pConnection, String pName, String pEmail, String pBetreff, String pHtml) throws SQLException {
+        try (PreparedStatement p = pConnection.prepareStatement("INSERT INTO mailOutbox(name, email, betreff, html) VALUES (?, ?, ?, ?)")) {
+            p.setString(1, pName);
+            p.setString(2, pEmail);
+            p.setString(3, pBetreff);
+            p.setString(4, pHtml);
+            p.executeUpdate();
+        }
+    }
+
+    /**
+     * Weckt den Relay-Thread auf (z.B. nach dem Commit einer Bestellung), damit die Email nicht bis zur nächsten
+     * regulären Abfrage wartet.
+     */
+    static void wakeUp() {
+        if (signal.availablePermits() == 0) signal.release();
+    }
+
+    /**
+     * Startet den Relay-Thread. Die Datenbank muss bereits verbunden sein.
+     */
+    static synchronized void start() {
+        if (running) return;
+        running = true;
+        thread = new Thread(MailRelay::run, "MailRelay");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Beendet den Relay-Thread, versendet die bereits übergebenen Emails (über {@link Mail#shutdown(long)}) und
+     * markiert sie in der Datenbank. Noch nicht übergebene Emails bleiben in der Outbox und werden nach dem nächsten
+     * Start versendet.
+     *
+     * @param pTimeoutMs Maximale Wartezeit für den Versand in ms
+     */
+    static void shutdown(long pTimeoutMs) {
+        Thread relay;
+        synchronized (MailRelay.class) {
+            running = false;
+            relay = thread;
+        }
+        if (relay != null) {
+            wakeUp();
+            try {
+                relay.join(POLL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        Mail.shutdown(pTimeoutMs);
+        if (relay == null) return;
+        try (Connection connection = DataBase.getConnection()) {
+            markResults(connection);
+        } catch (SQLException e) {
+            Start.log(2, "Versendete Emails konnten nicht markiert werden (" + e.getMessage() + ")");
+        }
+    }
+
+    /**
+     * Gibt die Statistiken des Relays zurück.
+     */
+    static String getStats() {
+        return "mailRelay: claimed=" + claimed.get() + ", inFlight=" + inFlight.size() + ", sent=" + sent.get() +
+                ", rescheduled=" + rescheduled.get() + ", abandoned=" + abandoned.get();
+    }
+
+    private static void run() {
+        while (running) {
+            try (Connection connection = DataBase.getConnection()) {
+                markResults(connection);
+                renewLeases(connection);
+                relayBatch(connection);
+            } catch (SQLException e) {
+                Start.log(2, "Mail-Outbox konnte nicht abgearbeitet werden (" + e.getMessage() + ")");
+            }
+            try {
+                signal.tryAcquire(POLL_MS, TimeUnit.MILLISECONDS);
+                signal.drainPermits();
+            } catch (InterruptedException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Reserviert einen Block fälliger Emails und übergibt sie an die {@link MailOutbox}. Es werden nie mehr Emails
+     * reserviert, als die Warteschlange ohne Warten aufnehmen kann. Emails, die bereits in der {@link MailOutbox}
+     * liegen, werden übersprungen.
+     */
+    private static void relayBatch(Connection pConnection) throws SQLException {
+        int limit = Math.min(BATCH_SIZE, Mail.remainingCapacity());
+        if (limit <= 0) return;
+
+        List<MailOutbox.OutgoingMail> mails = new ArrayList<>();
+        List<Integer> ids = new ArrayList<>();
+        pConnection.setAutoCommit(false);
+        try {
+            try (PreparedStatement p = pConnection.prepareStatement("SELECT id, name, email, betreff, html FROM mailOutbox " +
+                    "WHERE gesendet IS NULL AND naechsterVersuch <= CURRENT_TIMESTAMP AND versuche < ? ORDER BY id LIMIT ? FOR UPDATE")) {
+                p.setInt(1, MAX_VERSUCHE);
+                p.setInt(2, limit);
+                try (ResultSet resultSet = p.executeQuery()) {
+                    while (resultSet.next()) {
+                        int id = resultSet.getInt("id");
+                        if (inFlight.containsKey(id)) continue;
+                        ids.add(id);
+                        mails.add(new MailOutbox.OutgoingMail(resultSet.getString("name"), resultSet.getString("email"),
+                                resultSet.getString("betreff"), resultSet.getString("html"), ergebnis -> {
+                            if (ergebnis == MailOutbox.Ergebnis.GESENDET) gesendet.add(id);
+                            else if (ergebnis == MailOutbox.Ergebnis.DAUERHAFT_FEHLGESCHLAGEN) dauerhaftFehlgeschlagen.add(id);
+                            else fehlgeschlagen.add(id);
+                        }));
+                    }
+                }
+            }
+            if (!ids.isEmpty()) {
+                try (PreparedStatement p = pConnection.prepareStatement("UPDATE mailOutbox SET versuche = versuche + 1, " +
+                        "naechsterVersuch = CURRENT_TIMESTAMP + INTERVAL ? SECOND WHERE id IN (" + placeholders(ids.size()) + ")")) {
+                    p.setInt(1, LEASE_SECONDS);
+                    for (int i = 0; i < ids.size(); i++) p.setInt(i + 2, ids.get(i));
+                    p.executeUpdate();
+                }
+            }
+            pConnection.commit();
+        } catch (SQLException e) {
+            pConnection.rollback();
+            throw e;
+        } finally {
+            pConnection.setAutoCommit(true);
+        }
+
+        claimed.addAndGet(ids.size());
+        long verlaengern = System.currentTimeMillis() + LEASE_SECONDS * 500L;
+        for (int id : ids) inFlight.put(id, verlaengern);
+        for (MailOutbox.OutgoingMail mail : mails) Mail.deliver(mail);
+    }
+
+    /**
+     * Verlängert die Reservierung von Emails, die noch in der {@link MailOutbox} warten oder wiederholt werden (z.B.
+     * bei einem langsamen SMTP-Server). Verlängert wird jeweils nach der Hälfte der Reservierung.
+     */
+    private static void renewLeases(Connection pConnection) throws SQLException {
+        long now = System.currentTimeMillis();
+        List<Integer> ids = new ArrayList<>();
+        for (Map.Entry<Integer, Long> entry : inFlight.entrySet()) if (entry.getValue() <= now) ids.add(entry.getKey());
+        if (ids.isEmpty()) return;
+        try (PreparedStatement p = pConnection.prepareStatement("UPDATE mailOutbox SET naechsterVersuch = " +
+                "CURRENT_TIMESTAMP + INTERVAL ? SECOND WHERE gesendet IS NULL AND id IN (" + placeholders(ids.size()) + ")")) {
+            p.setInt(1, LEASE_SECONDS);
+            for (int i = 0; i < ids.size(); i++) p.setInt(i + 2, ids.get(i));
+            p.executeUpdate();
+        }
+        for (int id : ids) inFlight.replace(id, now + LEASE_SECONDS * 500L);
+    }
+
+    /**
+     * Markiert versendete Emails, gibt dauerhaft abgelehnte Emails auf und plant vorübergehend fehlgeschlagene Emails
+     * (mit wachsendem Abstand) erneut ein. Die Ergebnisse werden erst entfernt, nachdem sie eingetragen wurden, damit
+     * sie bei einem Fehler in der Verbindung beim nächsten Durchlauf erneut eingetragen werden.
+     */
+    private static void markResults(Connection pConnection) throws SQLException {
+        List<Integer> ids = new ArrayList<>(gesendet);
+        if (!ids.isEmpty()) {
+            try (PreparedStatement p = pConnection.prepareStatement("UPDATE mailOutbox SET gesendet = CURRENT_TIMESTAMP " +
+                    "WHERE id IN (" + placeholders(ids.size()) + ")")) {
+                for (int i = 0; i < ids.size(); i++) p.setInt(i + 1, ids.get(i));
+                p.executeUpdate();
+            }
+            done(gesendet, ids);
+            sent.addAndGet(ids.size());
+        }
+
+        ids = new ArrayList<>(dauerhaftFehlgeschlagen);
+        if (!ids.isEmpty()) {
+            // Weitere Versuche wären zwecklos (die MailOutbox hat den Grund bereits geloggt)
+            try (PreparedStatement p = pConnection.prepareStatement("UPDATE mailOutbox SET versuche = GREATEST(versuche, ?) " +
+                    "WHERE id IN (" + placeholders(ids.size()) + ")")) {
+                p.setInt(1, MAX_VERSUCHE);
+                for (int i = 0; i < ids.size(); i++) p.setInt(i + 2, ids.get(i));
+                p.executeUpdate();
+            }
+            done(dauerhaftFehlgeschlagen, ids);
+            abandoned.addAndGet(ids.size());
+            Start.log(2, "Email(s) " + ids + " wurden dauerhaft abgelehnt und aufgegeben");
+        }
+
+        ids = new ArrayList<>(fehlgeschlagen);
+        if (ids.isEmpty()) return;
+        try (PreparedStatement p = pConnection.prepareStatement("UPDATE mailOutbox SET naechsterVersuch = " +
+                "CURRENT_TIMESTAMP + INTERVAL LEAST(60 * POW(2, versuche - 1), ?) SECOND WHERE id = ?")) {
+            for (int id : ids) {
+                p.setInt(1, MAX_BACKOFF_SECONDS);
+                p.setInt(2, id);
+                p.addBatch();
+            }
+            p.executeBatch();
+        }
+        done(fehlgeschlagen, ids);
+        rescheduled.addAndGet(ids.size());
+        try (PreparedStatement p = pConnection.prepareStatement("SELECT id, email FROM mailOutbox WHERE versuche >= ? " +
+                "AND gesendet IS NULL AND id IN (" + placeholders(ids.size()) + ")")) {
+            p.setInt(1, MAX_VERSUCHE);
+            for (int i = 0; i < ids.size(); i++) p.setInt(i + 2, ids.get(i));
+            try (ResultSet resultSet = p.executeQuery()) {
+                while (resultSet.next())
+                    Start.log(2, "Email " + resultSet.getInt("id") + " an " + resultSet.getString("email") +
+                            " wurde nach " + MAX_VERSUCHE + " Versuchen aufgegeben");
+            }
+        }
+    }
+
+    /**
+     * Entfernt eingetragene Ergebnisse. Die Emails sind danach nicht mehr in Bearbeitung und können (falls noch nicht
+     * gesendet) wieder reserviert werden.
+     */
+    private static void done(ConcurrentLinkedQueue<Integer> pQueue, List<Integer> pIds) {
+        pQueue.removeAll(new HashSet<>(pIds));
+        for (int id : pIds) inFlight.remove(id);
+    }
+
+    private static String placeholders(int pCount) {
+        StringBuilder builder = new StringBuilder(pCount * 2);
+        for (int i = 0; i < pCount; i++) builder.append(i == 0 ? "?" : ", ?");
+        return builder.toString();
+    }
+}
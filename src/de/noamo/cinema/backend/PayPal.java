@@ -10,33 +10,118 @@ package de.noamo.cinema.backend;
 import com.paypal.core.PayPalEnvironment;
 import com.paypal.core.PayPalHttpClient;
 import com.paypal.http.HttpResponse;
+import com.paypal.http.exceptions.HttpException;
 import com.paypal.orders.Order;
 import com.paypal.orders.OrdersGetRequest;
 import com.paypal.orders.PurchaseUnit;
 
 import java.io.IOException;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Prüft Zahlungen über die PayPal-API. Alle Anfragen laufen mit Timeouts über einen {@link CircuitBreaker}, sodass ein
+ * langsamer oder nicht erreichbarer PayPal-Dienst keine Threads blockiert, sondern sofort fehlschlägt. Bereits
+ * bestätigte Transaktionen werden (begrenzt auf {@value MAX_VERIFIED} Einträge) gespeichert: Eine erneute Prüfung
+ * derselben Transaktion benötigt keine Anfrage und eine Transaktion kann nicht für eine zweite Bestellung verwendet
+ * werden.
+ *
+ * @author Noah Hoelterhoff
+ * @version 17.10.2026
+ * @since 11.2020
+ */
 public abstract class PayPal {
+    private final static int CONNECT_TIMEOUT_MS = 5000;
+    private final static int READ_TIMEOUT_MS = 10000;
+    private final static int MAX_VERIFIED = 10000;
+    private final static CircuitBreaker breaker = new CircuitBreaker("paypal", 5, 30000);
+    private final static ConcurrentHashMap<String, Double> verified = new ConcurrentHashMap<>();
+    private final static AtomicLong cacheHits = new AtomicLong();
     private static PayPalHttpClient client;
 
     static void setupPayPal(String pClientId, String pClientSecret) {
         PayPalEnvironment environment = new PayPalEnvironment.Sandbox(pClientId, pClientSecret);
         client = new PayPalHttpClient(environment);
+        client.setConnectTimeout(CONNECT_TIMEOUT_MS);
+        client.setReadTimeout(READ_TIMEOUT_MS);
     }
 
+    /**
+     * Prüft, ob eine PayPal-Order mit dem erwarteten Betrag existiert.
+     *
+     * @param pOrderId      Die ID der Order
+     * @param pTargetAmount Der erwartete Betrag
+     * @return {@code true}, falls die Order den Betrag hat, {@code false}, falls sie nicht existiert oder der Betrag
+     * abweicht
+     * @throws IOException Bei vorübergehenden Fehlern (keine Verbindung, Timeout, Fehler 5xx oder 429 von PayPal oder
+     *                     geöffneter {@link CircuitBreaker})
+     */
     static boolean confirmPayment(String pOrderId, double pTargetAmount) throws IOException {
+        Double value = verified.get(pOrderId);
+        if (value != null) cacheHits.incrementAndGet();
+        else value = breaker.call(() -> fetchAmount(pOrderId));
+        if (value == null) return false;
+        if (value == pTargetAmount) {
+            remember(pOrderId, value);
+            return true;
+        }
+        Start.log(2, "Möglicher Betrug über PayPal bei OrderId " + pOrderId + " erkannt (Zielbetrag: " + pTargetAmount + ", gezahlter Betrag: " + value + ")");
+        return false;
+    }
+
+    /**
+     * Prüft, ob eine Transaktion bereits für eine Bestellung bestätigt wurde.
+     *
+     * @param pOrderId Die ID der Order
+     */
+    static boolean isVerified(String pOrderId) {
+        return verified.containsKey(pOrderId);
+    }
+
+    /**
+     * Gibt die Statistiken der PayPal-Anfragen zurück (Zustand des Circuit Breakers, Latenzen und Cache).
+     */
+    static String getStats() {
+        return breaker.getStats() + ", verified=" + verified.size() + ", cacheHits=" + cacheHits.get();
+    }
+
+    /**
+     * Fragt den Betrag einer Order bei PayPal ab.
+     *
+     * @return Der Betrag oder {@code null}, falls die Order nicht existiert (ein endgültiges Ergebnis, das nicht als
+     * Fehler des Dienstes zählt)
+     * @throws IOException Bei allen anderen Fehlern (die Prüfung wird später wiederholt)
+     */
+    private static Double fetchAmount(String pOrderId) throws IOException {
         try {
             OrdersGetRequest request = new OrdersGetRequest(pOrderId);
             HttpResponse<Order> response = client.execute(request);
             List<PurchaseUnit> purchaseUnits = response.result().purchaseUnits();
-            if (purchaseUnits.size() == 0) return false;
-            double value = Double.parseDouble(purchaseUnits.get(0).amountWithBreakdown().value());
-            if (value == pTargetAmount) return true;
-            Start.log(2, "Möglicher Betrug über PayPal bei OrderId " + pOrderId + " erkannt (Zielbetrag: " + pTargetAmount + ", gezahlter Betrag: " + value + ")");
-        } catch (Exception ex) {
+            if (purchaseUnits.size() == 0) return null;
+            return Double.parseDouble(purchaseUnits.get(0).amountWithBreakdown().value());
+        } catch (HttpException ex) {
+            // Nur eine unbekannte (404) oder ungültige (422) Order ist endgültig, alles andere (z.B. 401/403 bei
+            // abgelaufenen Zugangsdaten, 429 oder 5xx) wird später erneut geprüft
+            if (ex.statusCode() != 404 && ex.statusCode() != 422) throw ex;
             Start.log(2, ex.getMessage());
+            return null;
+        } catch (RuntimeException ex) {
+            // Unerwartete Antwort (z.B. fehlender Betrag), kein Grund die Zahlung endgültig abzulehnen
+            throw new IOException("Unerwartete Antwort von PayPal (" + ex + ")", ex);
         }
-        return false;
+    }
+
+    private static void remember(String pOrderId, double pValue) {
+        if (verified.size() >= MAX_VERIFIED) {
+            // Platz schaffen (die Datenbank verhindert die doppelte Verwendung auch ohne Cache)
+            Iterator<String> iterator = verified.keySet().iterator();
+            while (verified.size() > MAX_VERIFIED * 3 / 4 && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+        verified.put(pOrderId, pValue);
     }
 }
@@ -0,0 +1,283 @@
+/*
+ * Copyright (c) DHBW Mannheim - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ * Written by Noah Hoelterhoff <noah.hoelterhoff@gmail.com>, 10 2026
+ */
+
+package de.noamo.cinema.backend;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Prüft PayPal-Zahlungen von Bestellungen asynchron. Bestellungen mit PayPal werden von {@link DataBase#placeOrder}
+ * im Zustand {@link #PRUEFUNG} angenommen und hier übergeben. Die Anfrage an PayPal läuft auf einem eigenen Executor,
+ * ohne dass dabei eine Verbindung aus dem Pool belegt ist. Erst für das Ergebnis wird kurz eine Verbindung geholt:
+ * Bestätigte Bestellungen werden als {@code bezahlt} markiert (inkl. Ticket-Email), abgelehnte Bestellungen geben ihre
+ * Plätze wieder frei.<br><br>
+ * Ein Hintergrund-Thread sucht alle {@value SWEEP_MS} ms nach Bestellungen, die noch geprüft werden müssen (z.B. nach
+ * einem Neustart, einem vollen Executor oder einem vorübergehenden Fehler bei PayPal). Den Zustand einer Bestellung
+ * können Clients über {@code /bestellung/:nummer/status} abfragen. Der verwendete {@link PaymentClient} kann
+ * (z.B. für Tests) über {@link #setClient(PaymentClient)} ersetzt werden.
+ *
+ * @author Noah Hoelterhoff
+ * @version 17.10.2026
+ * @since 17.10.2026
+ */
+abstract class PaymentVerifier {
+    final static int OFFEN = 0; // Keine Online-Zahlung (Zahlung an der Kasse)
+    final static int PRUEFUNG = 1; // Zahlung wird bei PayPal geprüft
+    final static int BEZAHLT = 2;
+    final static int ABGELEHNT = 3;
+    private final static String[] STATUS_NAMEN = {"OFFEN", "PRUEFUNG", "BEZAHLT", "ABGELEHNT"};
+    private final static int THREADS = 4;
+    private final static int QUEUE_CAPACITY = 500;
+    private final static int SWEEP_MS = 30000;
+    private final static ThreadPoolExecutor executor;
+    private final static Set<Integer> inPruefung = ConcurrentHashMap.newKeySet();
+    private final static AtomicLong bestaetigt = new AtomicLong(), abgelehnt = new AtomicLong(),
+            fehler = new AtomicLong(), zurueckgestellt = new AtomicLong();
+    private static volatile PaymentClient client = PayPal::confirmPayment;
+    private static volatile boolean running;
+
+    static {
+        AtomicInteger nummer = new AtomicInteger();
+        executor = new ThreadPoolExecutor(THREADS, THREADS, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), r -> {
+            Thread thread = new Thread(r, "PaymentVerifier-" + nummer.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Ersetzt den Client, über den Zahlungen geprüft werden (z.B. durch einen lokalen Stub).
+     *
+     * @param pClient Der neue Client
+     */
+    static void setClient(PaymentClient pClient) {
+        client = pClient;
+    }
+
+    /**
+     * Gibt den Namen eines Zahlungsstatus zurück (für die Json-Antworten).
+     *
+     * @param pStatus Der Status ({@link #OFFEN}, {@link #PRUEFUNG}, {@link #BEZAHLT} oder {@link #ABGELEHNT})
+     */
+    static String getStatusName(int pStatus) {
+        return STATUS_NAMEN[pStatus];
+    }
+
+    /**
+     * Übergibt eine Bestellung zur Prüfung. Ist der Executor ausgelastet, wird sie beim nächsten Durchlauf des
+     * Hintergrund-Threads erneut übergeben.
+     *
+     * @param pBestellnummer Die Nummer der Bestellung (im Zustand {@link #PRUEFUNG})
+     * @param pTransaktion   Die ID der PayPal-Transaktion
+     * @param pBetrag        Der erwartete Betrag
+     */
+    static void submit(int pBestellnummer, String pTransaktion, double pBetrag) {
+        if (!inPruefung.add(pBestellnummer)) return; // Wird bereits geprüft
+        try {
+            executor.execute(() -> verify(pBestellnummer, pTransaktion, pBetrag));
+        } catch (RejectedExecutionException e) {
+            inPruefung.remove(pBestellnummer);
+            zurueckgestellt.incrementAndGet();
+        }
+    }
+
+    /**
+     * Startet den Hintergrund-Thread, der offene Prüfungen (erneut) übergibt. Die Datenbank muss bereits verbunden
+     * sein.
+     */
+    static synchronized void start() {
+        if (running) return;
+        running = true;
+        Thread thread = new Thread(PaymentVerifier::sweep, "PaymentSweep");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Gibt die Statistiken der Prüfungen zurück.
+     */
+    static String getStats() {
+        return "paymentVerifier: inPruefung=" + inPruefung.size() + ", queued=" + executor.getQueue().size() +
+                ", bestaetigt=" + bestaetigt.get() + ", abgelehnt=" + abgelehnt.get() + ", fehler=" + fehler.get() +
+                ", zurueckgestellt=" + zurueckgestellt.get();
+    }
+
+    @SuppressWarnings({"BusyWait", "InfiniteLoopStatement"})
+    private static void sweep() {
+        while (true) {
+            try (Connection connection = DataBase.getConnection();
+                 PreparedStatement p = connection.prepareStatement("SELECT bestellnummer, paypalTransaktion, preis " +
+                         "FROM bestellungen WHERE zahlungsstatus = " + PRUEFUNG)) {
+                try (ResultSet resultSet = p.executeQuery()) {
+                    while (resultSet.next())
+                        submit(resultSet.getInt("bestellnummer"), resultSet.getString("paypalTransaktion"),
+                                resultSet.getDouble("preis"));
+                }
+            } catch (SQLException e) {
+                Start.log(2, "Offene Zahlungen konnten nicht geladen werden (" + e.getMessage() + ")");
+            }
+            try {
+                Thread.sleep(SWEEP_MS);
+            } catch (InterruptedException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Prüft die Zahlung einer Bestellung synchron im aufrufenden Thread und speichert das Ergebnis. Normalerweise läuft
+     * dies über {@link #submit} auf dem Executor.
+     *
+     * @param pBestellnummer Die Nummer der Bestellung (im Zustand {@link #PRUEFUNG})
+     * @param pTransaktion   Die ID der PayPal-Transaktion
+     * @param pBetrag        Der erwartete Betrag
+     */
+    static void verify(int pBestellnummer, String pTransaktion, double pBetrag) {
+        try {
+            // Die Anfrage an PayPal läuft ohne Verbindung zu der Datenbank
+            boolean bezahlt;
+            try {
+                bezahlt = client.confirmPayment(pTransaktion, pBetrag);
+            } catch (IOException e) {
+                fehler.incrementAndGet();
+                Start.log(2, "Zahlung der Bestellung " + pBestellnummer + " konnte nicht geprüft werden (" + e.getMessage() + ")");
+                return; // Bleibt in Prüfung und wird beim nächsten Durchlauf erneut geprüft
+            }
+
+            try (Connection connection = DataBase.getConnection()) {
+                if (bezahlt) markBezahlt(connection, pBestellnummer);
+                else markAbgelehnt(connection, pBestellnummer);
+            }
+        } catch (SQLException e) {
+            Start.log(2, "Ergebnis der Zahlung von Bestellung " + pBestellnummer + " konnte nicht gespeichert werden (" + e.getMessage() + ")");
+        } finally {
+            inPruefung.remove(pBestellnummer);
+        }
+    }
+
+    /**
+     * Markiert eine Bestellung als bezahlt und trägt in derselben Transaktion die Ticket-Email ein.
+     */
+    private static void markBezahlt(Connection pConnection, int pBestellnummer) throws SQLException {
+        pConnection.setAutoCommit(false);
+        try {
+            if (!updateStatus(pConnection, pBestellnummer, BEZAHLT)) {
+                pConnection.rollback();
+                return;
+            }
+            try (PreparedStatement p = pConnection.prepareStatement("SELECT name, email, vorstellungsid FROM bestellungen WHERE bestellnummer = ?")) {
+                p.setInt(1, pBestellnummer);
+                try (ResultSet resultSet = p.executeQuery()) {
+                    resultSet.next();
+                    Mail.queueTicketMail(pConnection, resultSet.getString("name"), resultSet.getString("email"),
+                            resultSet.getInt("vorstellungsid") + getPlaetze(pConnection, pBestellnummer).toString());
+                }
+            }
+            pConnection.commit();
+        } catch (SQLException e) {
+            pConnection.rollback();
+            throw e;
+        } finally {
+            pConnection.setAutoCommit(true);
+        }
+        bestaetigt.incrementAndGet();
+        InvalidationBus.publish("bestellungen");
+        MailRelay.wakeUp();
+    }
+
+    /**
+     * Markiert eine Bestellung als abgelehnt und gibt ihre Plätze wieder frei.
+     */
+    private static void markAbgelehnt(Connection pConnection, int pBestellnummer) throws SQLException {
+        int vorstellungsid;
+        List<Integer> plaetze;
+        pConnection.setAutoCommit(false);
+        try {
+            if (!updateStatus(pConnection, pBestellnummer, ABGELEHNT)) {
+                pConnection.rollback();
+                return;
+            }
+            try (PreparedStatement p = pConnection.prepareStatement("SELECT vorstellungsid FROM bestellungen WHERE bestellnummer = ?")) {
+                p.setInt(1, pBestellnummer);
+                try (ResultSet resultSet = p.executeQuery()) {
+                    resultSet.next();
+                    vorstellungsid = resultSet.getInt("vorstellungsid");
+                }
+            }
+            plaetze = getPlaetze(pConnection, pBestellnummer);
+            try (PreparedStatement p = pConnection.prepareStatement("DELETE FROM vorstellungPlaetze WHERE bestellnummer = ?")) {
+                p.setInt(1, pBestellnummer);
+                p.executeUpdate();
+            }
+            pConnection.commit();
+        } catch (SQLException e) {
+            pConnection.rollback();
+            throw e;
+        } finally {
+            pConnection.setAutoCommit(true);
+        }
+        abgelehnt.incrementAndGet();
+        SeatOccupancy.freigeben(vorstellungsid, plaetze);
+        InvalidationBus.publish("bestellungen", "vorstellungPlaetze");
+        Start.log(2, "Zahlung der Bestellung " + pBestellnummer + " wurde von PayPal nicht bestätigt, die Plätze wurden freigegeben");
+    }
+
+    /**
+     * Setzt den Status einer Bestellung, die sich noch in Prüfung befindet.
+     *
+     * @return {@code false}, falls die Bestellung nicht (mehr) in Prüfung ist (z.B. von einer anderen Instanz geprüft)
+     */
+    private static boolean updateStatus(Connection pConnection, int pBestellnummer, int pStatus) throws SQLException {
+        try (PreparedStatement p = pConnection.prepareStatement("UPDATE bestellungen SET zahlungsstatus = ?, bezahlt = ? " +
+                "WHERE bestellnummer = ? AND zahlungsstatus = " + PRUEFUNG)) {
+            p.setInt(1, pStatus);
+            p.setBoolean(2, pStatus == BEZAHLT);
+            p.setInt(3, pBestellnummer);
+            return p.executeUpdate() == 1;
+        }
+    }
+
+    private static List<Integer> getPlaetze(Connection pConnection, int pBestellnummer) throws SQLException {
+        List<Integer> plaetze = new ArrayList<>();
+        try (PreparedStatement p = pConnection.prepareStatement("SELECT platzid FROM bestellungPlaetze WHERE bestellnummer = ?")) {
+            p.setInt(1, pBestellnummer);
+            try (ResultSet resultSet = p.executeQuery()) {
+                while (resultSet.next()) plaetze.add(resultSet.getInt("platzid"));
+            }
+        }
+        return plaetze;
+    }
+
+    /**
+     * Prüft, ob eine Zahlung erfolgreich war.
+     */
+    @FunctionalInterface
+    interface PaymentClient {
+        /**
+         * @param pTransaktion Die ID der Transaktion
+         * @param pBetrag      Der erwartete Betrag
+         * @return {@code true}, falls die Zahlung mit dem Betrag bestätigt ist, {@code false}, falls sie dauerhaft
+         * abgelehnt wurde
+         * @throws IOException Bei vorübergehenden Fehlern (die Prüfung wird später wiederholt)
+         */
+        boolean confirmPayment(String pTransaktion, double pBetrag) throws IOException;
+    }
+}
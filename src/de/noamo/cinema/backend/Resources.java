@@ -18,10 +18,10 @@ import java.util.Scanner;
  * @since 16.09.2020
  */
 abstract class Resources {
-    private static String activationMail;
-    private static String activationSite;
-    private static String changeEmailMail;
-    private static String ticketMail;
+    private static Template activationMail;
+    private static Template activationSite;
+    private static Template changeEmailMail;
+    private static Template ticketMail;
 
     /**
      * Gibt den HTML-Code der Aktiverungsmail zurück. Dabei wird ein Platzhalter für den Aktivierungslink durch den
@@ -31,7 +31,7 @@ abstract class Resources {
      * @return Ein String mit dem HTML Code für die Email
      */
     public static String getActivationMail(String pLink) {
-        return activationMail.replaceAll("REPLACE_WITH_LINK", pLink);
+        return activationMail.render(pLink);
     }
 
     /**
@@ -43,15 +43,15 @@ abstract class Resources {
      * @return Ein String mit dem HTML Code für die Webseite
      */
     public static String getActivationSite(String pTitle, String pSubTitle) {
-        return activationSite.replace("REPLACE_TITLE", pTitle).replace("REPLACE_SUBTITLE", pSubTitle);
+        return activationSite.render(pTitle, pSubTitle);
     }
 
     public static String getChangeEmailMail(String name, int code, boolean old) {
-        return changeEmailMail.replace("REPLACE_WITH_NAME", name).replace("REPLACE_WITH_CODE", "" + code).replaceAll("REPLACE_WITH_OLD_NEW", (old ? "alte" : "neue"));
+        return changeEmailMail.render(name, String.valueOf(code), (old ? "alte" : "neue"));
     }
 
     public static String getTicketMail(String name, String code) {
-        return ticketMail.replace("REPLACE_WITH_NAME", name).replace("REPLACE_WITH_CODE", code);
+        return ticketMail.render(name, code);
     }
 
     /**
@@ -124,15 +124,17 @@ abstract class Resources {
     }
 
     /**
-     * Lädt alle Resourcen, die verwendet werden in diese Klasse.
+     * Lädt alle Resourcen, die verwendet werden in diese Klasse. Vorlagen werden dabei einmalig in {@link Template}s
+     * zerlegt.
      *
      * @throws Exception Falls Fehler bei dem Laden auftreten
      */
     static void loadResources() throws Exception {
-        activationMail = loadResourceIntoString("/mails/ActivationMail.html");
-        ticketMail = loadResourceIntoString("/mails/TicketMail.html");
-        activationSite = loadResourceIntoString("/sites/ActivationSite.html");
-        changeEmailMail = loadResourceIntoString("/mails/ChangeEmailMail.html");
+        activationMail = Template.compile(loadResourceIntoString("/mails/ActivationMail.html"), "REPLACE_WITH_LINK");
+        ticketMail = Template.compile(loadResourceIntoString("/mails/TicketMail.html"), "REPLACE_WITH_NAME", "REPLACE_WITH_CODE");
+        activationSite = Template.compile(loadResourceIntoString("/sites/ActivationSite.html"), "REPLACE_TITLE", "REPLACE_SUBTITLE");
+        changeEmailMail = Template.compile(loadResourceIntoString("/mails/ChangeEmailMail.html"), "REPLACE_WITH_NAME",
+                "REPLACE_WITH_CODE", "REPLACE_WITH_OLD_NEW");
         importCertificateInJKS();
     }
 }
@@ -13,6 +13,7 @@ import com.google.gson.JsonParseException;
 import de.noamo.cinema.backend.exceptions.*;
 import spark.Request;
 import spark.Response;
+import spark.utils.GzipUtils;
 
 import java.io.File;
 import java.sql.SQLException;
@@ -73,6 +74,38 @@ abstract class RestServer {
         return "Ihr Konto wurde erstellt. Bitte aktivieren Sie das Konto nun mit Aktivierungslink, den Sie per Mail erhalten haben";
     }
 
+    /**
+     * Gibt eine fertig serialisierte Antwort mit einem starken ETag zurück. Akzeptiert der Client gzip, wird die bereits
+     * komprimierte Variante (mit eigenem ETag) gesendet. Falls der Client den Inhalt bereits hat (passender
+     * {@code If-None-Match}-Header), wird nur {@code 304 Not Modified} ohne Inhalt gesendet.
+     *
+     * @param request    Reqeust der Anfrage
+     * @param response   Response der Anfrage
+     * @param pBody      Die fertig serialisierte Antwort
+     * @param pImmutable Ob sich der Inhalt unter dieser URL nie ändert (dann darf er dauerhaft gecacht werden)
+     * @return Der Inhalt oder ein leerer String (bei 304)
+     */
+    private static Object sendCacheable(Request request, Response response, CachedResponse pBody, boolean pImmutable) {
+        String acceptEncoding = request.headers("Accept-Encoding");
+        boolean gzip = pBody.gzip != null && acceptEncoding != null && acceptEncoding.contains("gzip");
+        response.header("ETag", '"' + pBody.hash + (gzip ? "-gzip\"" : "\""));
+        response.header("Cache-Control", pImmutable ? "public, max-age=31536000, immutable" : "no-cache");
+        response.header("Vary", "Accept-Encoding");
+        String ifNoneMatch = request.headers("If-None-Match");
+        if (ifNoneMatch != null && (ifNoneMatch.contains('"' + pBody.hash) || ifNoneMatch.trim().equals("*"))) {
+            response.status(304);
+            return "";
+        }
+        if (!gzip) {
+            response.raw().setContentLength(pBody.identity.length);
+            return pBody.identity;
+        }
+        request.attribute(GzipUtils.PRE_COMPRESSED, true);
+        response.header("Content-Encoding", "gzip");
+        response.raw().setContentLength(pBody.gzip.length);
+        return pBody.gzip;
+    }
+
     /**
      * Aktiviert CORS (Cross-Origin Resource Sharing). Dies wird z.B. für den Flutter Client benötigt um einwandfrei zu
      * funktionieren. CORS erlaubt, dass Resourcen (wie Bilder) von anderen Servern abgefragt wird.
@@ -173,16 +206,36 @@ abstract class RestServer {
         post("/deactivateAccount", (req, res) -> DataBase.kontoDeaktivieren(req.headers("Auth"), req.body()));
         post("/changeName", (req, res) -> DataBase.updateName(req.headers("Auth"), gson.fromJson(req.body(), JsonObject.class)));
         post("/changePasswort", (req, res) -> DataBase.updatePasswort(req.headers("Auth"), gson.fromJson(req.body(), JsonObject.class)));
-        post("/placeOrder", (req, res) -> DataBase.placeOrder(req.headers("Auth"), gson.fromJson(req.body(), JsonObject.class)));
+        post("/hold", (req, res) -> DataBase.holdSeats(req.headers("Auth"), gson.fromJson(req.body(), JsonObject.class)));
+        post("/hold/release", (req, res) -> DataBase.releaseSeats(req.headers("Auth"), gson.fromJson(req.body(), JsonObject.class)));
+        post("/placeOrder", (req, res) -> {
+            JsonObject bestellung = DataBase.placeOrder(req.headers("Auth"), gson.fromJson(req.body(), JsonObject.class));
+            // Die Zahlung wird noch geprüft (Status über /bestellung/:nummer/status)
+            if (PaymentVerifier.getStatusName(PaymentVerifier.PRUEFUNG).equals(bestellung.get("zahlungsstatus").getAsString()))
+                res.status(202);
+            return bestellung.toString();
+        });
+        get("/bestellung/:nummer/status", (req, res) -> DataBase.getZahlungsstatus(req.headers("Auth"),
+                Integer.parseInt(req.params("nummer"))));
         get("/activate/:key", RestServer::activateAccount);
-        get("/get-movies", ((req, res) -> DataBase.getAktiveFilmeCached()));
-        get("/get-kategorien", (req, res) -> DataBase.getKategorienCached().toString());
-        get("/get-saalplan/:id", ((req, res) -> DataBase.getSaalPlan(Integer.parseInt(req.params("id"))).toString()));
+        get("/get-movies", ((req, res) -> sendCacheable(req, res, DataBase.getAktiveFilmeCached(), false)));
+        get("/get-kategorien", (req, res) -> sendCacheable(req, res, DataBase.getKategorienResponseCached(), false));
+        get("/get-saalplan/:id", ((req, res) -> {
+            SaalLayout layout = DataBase.getSaalPlan(Integer.parseInt(req.params("id")));
+            return sendCacheable(req, res, layout.response, false);
+        }));
+        get("/saalplan/:hash", ((req, res) -> {
+            SaalLayout layout = DataBase.getSaalPlan(req.params("hash"));
+            return sendCacheable(req, res, layout.response, true);
+        }));
         get("/vorstellungen/:filmid", (req, res) -> DataBase.getVorstellungen(Integer.parseInt(req.params("filmid"))));
         get("/vorstellungen", (req, res) -> DataBase.getVorstellungen(0));
         get("/vorstellung-details/:id", (req, res) -> DataBase.getVorstellungsDetails(Integer.parseInt(req.params("id"))));
-        get("/get-userinfos", (req, res) -> DataBase.getUserInfos(req.headers("Auth")));
-        get("/saele", (req, res) -> DataBase.getAllSaeleCached());
+        get("/get-userinfos", (req, res) -> DataBase.getUserInfos(req.headers("Auth"),
+                Integer.parseInt(req.queryParamOrDefault("limit", "0"))));
+        get("/get-bestellungen", (req, res) -> DataBase.getBestellungen(req.headers("Auth"),
+                Integer.parseInt(req.queryParamOrDefault("nach", "0")), Integer.parseInt(req.queryParamOrDefault("limit", "0"))));
+        get("/saele", (req, res) -> sendCacheable(req, res, DataBase.getAllSaeleCached(), false));
 
         // Admin Commands
         path("/admin", () -> {
@@ -191,6 +244,14 @@ abstract class RestServer {
                 res.type(TEXT_PLAIN);
                 return DataBase.insertVorstellung(req.headers("Auth"), gson.fromJson(req.body(), JsonObject.class));
             });
+            get("/cache-stats", (req, res) -> {
+                res.type(TEXT_PLAIN);
+                return DataBase.getCacheStats(req.headers("Auth"));
+            });
+            post("/invalidate/:table", (req, res) -> {
+                res.type(TEXT_PLAIN);
+                return DataBase.invalidateTable(req.headers("Auth"), req.params("table"));
+            });
         });
     }
 
@@ -227,6 +288,8 @@ abstract class RestServer {
         exceptionHandeling();
         // Port einstellen
         port(pPort);
+        // Anfragen auf virtuellen Threads bearbeiten (ab Java 21, sonst wird der normale Thread-Pool verwendet)
+        if (Start.useVirtualThreads()) threadPool(-1, -1, -1, true);
         // HTTPS aktivieren
         if (Start.getCertificatePath() != null) secure(System.getProperty("user.home") + File.separator + "cinema" +
                 File.separator + "cinema.jks", "temppw", Start.getHost(), null, null);
@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) DHBW Mannheim - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ * Written by Noah Hoelterhoff <noah.hoelterhoff@gmail.com>, 10 2026
+ */
+
+package de.noamo.cinema.backend;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import de.noamo.cinema.backend.exceptions.NotFoundException;
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Unveränderliche Abbildung der Sitzplätze eines Kinosaals. Die Plätze sind nach ihrer {@code platzid} sortiert,
+ * sodass die Position eines Platzes in diesem Layout als Index für Bitmaps, Preisvektoren o.ä. verwendet werden kann.
+ * Layouts werden beim ersten Zugriff aus der Datenbank geladen und danach im Speicher gehalten (Säle ändern sich nach
+ * dem Hochladen nicht mehr).<br><br>
+ * Zu jedem Layout wird einmalig die Json-Darstellung (siehe {@link DataBase#getSaalPlan(int)}) als Byte-Array erzeugt
+ * und über ihren SHA-256-Hash adressiert. Da sich der Inhalt hinter einem Hash nie ändert, können Clients ein Layout
+ * dauerhaft zwischenspeichern und für alle Vorstellungen in demselben Saal wiederverwenden.
+ *
+ * @author Noah Hoelterhoff
+ * @version 17.10.2026
+ * @since 17.10.2026
+ */
+final class SaalLayout {
+    private final static ConcurrentHashMap<String, SaalLayout> layoutsByHash = new ConcurrentHashMap<>();
+    private final static ConcurrentHashMap<Integer, SaalLayout> layouts = new ConcurrentHashMap<>();
+    private final static AtomicLong generation = new AtomicLong();
+    private final static ReentrantLock loadAllLock = new ReentrantLock(); // Kein Monitor, da währenddessen JDBC läuft
+    private static volatile long vollstaendigBei = -1;
+    final int saalid;
+    final String name;
+    final int width, height;
+    final int[] platzIds, kategorien, plaetze, x, y;
+    final String[] reihen;
+    final byte[] json;
+    final String hash;
+    final CachedResponse response;
+
+    static {
+        InvalidationBus.subscribe(SaalLayout::invalidateAll, "kinosaele", "saalPlaetze");
+    }
+
+    private SaalLayout(int pSaalid, String pName, int pWidth, int pHeight, List<int[]> pPlaetze, List<String> pReihen) {
+        saalid = pSaalid;
+        name = pName;
+        width = pWidth;
+        height = pHeight;
+        int size = pPlaetze.size();
+        platzIds = new int[size];
+        kategorien = new int[size];
+        plaetze = new int[size];
+        x = new int[size];
+        y = new int[size];
+        reihen = pReihen.toArray(new String[0]);
+        for (int i = 0; i < size; i++) {
+            int[] temp = pPlaetze.get(i);
+            platzIds[i] = temp[0];
+            kategorien[i] = temp[1];
+            plaetze[i] = temp[2];
+            x[i] = temp[3];
+            y[i] = temp[4];
+        }
+        json = toJson().toString().getBytes(StandardCharsets.UTF_8);
+        hash = DigestUtils.sha256Hex(json);
+        response = new CachedResponse(json, hash);
+    }
+
+    /**
+     * Gibt das Layout eines Saals zurück. Falls es noch nicht im Speicher liegt, wird es über die mitgegebene
+     * Verbindung geladen.
+     *
+     * @param pConnection Eine offene Verbindung zu der Datenbank (wird nur bei Bedarf verwendet)
+     * @param pSaalid     Die ID des Saals
+     * @return Das Layout des Saals
+     * @throws SQLException      Falls ein Fehler in der Verbindung zu der Datenbank auftritt
+     * @throws NotFoundException Falls kein Saal mit dieser ID existiert
+     */
+    static SaalLayout get(Connection pConnection, int pSaalid) throws SQLException, NotFoundException {
+        SaalLayout layout = layouts.get(pSaalid);
+        if (layout != null) return layout;
+        layout = load(pConnection, pSaalid);
+        SaalLayout old = layouts.putIfAbsent(pSaalid, layout);
+        if (old != null) return old;
+        layoutsByHash.put(layout.hash, layout);
+        return layout;
+    }
+
+    /**
+     * Gibt das Layout eines Saals zurück, falls es bereits im Speicher liegt.
+     *
+     * @param pSaalid Die ID des Saals
+     * @return Das Layout oder {@code null}, falls es noch nicht geladen wurde
+     */
+    static SaalLayout getCached(int pSaalid) {
+        return layouts.get(pSaalid);
+    }
+
+    /**
+     * Sucht ein bereits geladenes Layout anhand seines Hashes.
+     *
+     * @param pHash Der SHA-256-Hash der Json-Darstellung
+     * @return Das Layout oder {@code null}, falls kein geladenes Layout diesen Hash hat
+     */
+    static SaalLayout getCachedByHash(String pHash) {
+        return layoutsByHash.get(pHash);
+    }
+
+    /**
+     * Prüft, ob seit der letzten Invalidierung alle Säle geladen wurden. Ist das der Fall, gibt es zu einem Hash, der
+     * nicht im Speicher liegt, auch keinen Saal in der Datenbank.
+     */
+    static boolean isVollstaendig() {
+        return vollstaendigBei == generation.get();
+    }
+
+    /**
+     * Lädt alle Säle, die noch nicht im Speicher liegen. Bis zur nächsten Invalidierung ({@link #invalidateAll()}) wird
+     * danach nichts mehr geladen, auch wenn unbekannte Hashes angefragt werden.
+     *
+     * @param pConnection Eine offene Verbindung zu der Datenbank
+     * @throws SQLException      Falls ein Fehler in der Verbindung zu der Datenbank auftritt
+     * @throws NotFoundException Falls ein Saal während des Ladens gelöscht wurde
+     */
+    static void loadAll(Connection pConnection) throws SQLException, NotFoundException {
+        loadAllLock.lock();
+        try {
+            long start = generation.get();
+            if (vollstaendigBei == start) return;
+            try (PreparedStatement p = pConnection.prepareStatement("SELECT saalid FROM kinosaele");
+                 ResultSet resultSet = p.executeQuery()) {
+                while (resultSet.next()) get(pConnection, resultSet.getInt("saalid"));
+            }
+            // Wurde währenddessen invalidiert, ist der Stand bereits veraltet und muss beim nächsten Mal neu geladen werden
+            vollstaendigBei = start;
+        } finally {
+            loadAllLock.unlock();
+        }
+    }
+
+    /**
+     * Entfernt alle Layouts aus dem Speicher.
+     */
+    static void invalidateAll() {
+        generation.incrementAndGet();
+        layouts.clear();
+        layoutsByHash.clear();
+    }
+
+    private static SaalLayout load(Connection pConnection, int pSaalid) throws SQLException, NotFoundException {
+        String name;
+        int width, height;
+        try (PreparedStatement p = pConnection.prepareStatement("SELECT name, width, height FROM kinosaele WHERE saalid = ?")) {
+            p.setInt(1, pSaalid);
+            try (ResultSet resultSet = p.executeQuery()) {
+                if (!resultSet.next()) throw new NotFoundException("Kein Saal mit dieser Id gefunden");
+                name = resultSet.getString("name");
+                width = resultSet.getInt("width");
+                height = resultSet.getInt("height");
+            }
+        }
+
+        List<int[]> plaetze = new ArrayList<>();
+        List<String> reihen = new ArrayList<>();
+        try (PreparedStatement p = pConnection.prepareStatement("SELECT platzid, kategorieid, reihe, platz, x, y " +
+                "FROM saalPlaetze WHERE saalid = ? ORDER BY platzid")) {
+            p.setInt(1, pSaalid);
+            try (ResultSet resultSet = p.executeQuery()) {
+                while (resultSet.next()) {
+                    plaetze.add(new int[]{resultSet.getInt("platzid"), resultSet.getInt("kategorieid"),
+                            resultSet.getInt("platz"), resultSet.getInt("x"), resultSet.getInt("y")});
+                    reihen.add(resultSet.getString("reihe"));
+                }
+            }
+        }
+        return new SaalLayout(pSaalid, name, width, height, plaetze, reihen);
+    }
+
+    private JsonObject toJson() {
+        JsonObject saal = new JsonObject();
+        saal.addProperty("name", name);
+        saal.addProperty("width", width);
+        saal.addProperty("height", height);
+
+        JsonArray sitze = new JsonArray();
+        saal.add("sitze", sitze);
+        for (int i = 0; i < platzIds.length; i++) {
+            JsonObject temp = new JsonObject();
+            temp.addProperty("id", platzIds[i]);
+            temp.addProperty("kategorie", kategorien[i]);
+            temp.addProperty("reihe", reihen[i]);
+            temp.addProperty("platz", plaetze[i]);
+            temp.addProperty("x", x[i]);
+            temp.addProperty("y", y[i]);
+            sitze.add(temp);
+        }
+        return saal;
+    }
+
+    /**
+     * Sucht den Index eines Platzes in diesem Layout.
+     *
+     * @param pPlatzId Die ID des Platzes
+     * @return Der Index des Platzes oder eine negative Zahl, falls der Platz nicht zu diesem Saal gehört
+     */
+    int indexOf(int pPlatzId) {
+        return Arrays.binarySearch(platzIds, pPlatzId);
+    }
+
+    /**
+     * Fragt die Anzahl der Plätze in dem Saal ab.
+     */
+    int size() {
+        return platzIds.length;
+    }
+}
@@ -0,0 +1,465 @@
+/*
+ * Copyright (c) DHBW Mannheim - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ * Written by Noah Hoelterhoff <noah.hoelterhoff@gmail.com>, 10 2026
+ */
+
+package de.noamo.cinema.backend;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.SQLSyntaxErrorException;
+import java.sql.Statement;
+
+/**
+ * Versionierte Migrationen des Datenbankschemas. Ersetzt das frühere {@code dataBaseSetup}, das bei jedem Start alle
+ * {@code CREATE TABLE IF NOT EXISTS}-Statements ausgeführt hat.<br> Die angewendeten Versionen werden in der Tabelle
+ * {@code schemaVersion} gespeichert. Ist das Schema bereits aktuell, besteht der Start nur aus einer einzigen Abfrage.
+ * Neue Migrationen werden mit der nächsten Versionsnummer an {@link #MIGRATIONS} angehängt und dürfen danach nicht
+ * mehr verändert werden.
+ *
+ * @author Noah Hoelterhoff
+ * @version 17.10.2026
+ * @since 17.10.2026
+ */
+abstract class SchemaMigrations {
+    private final static int LOCK_TIMEOUT = 60; // Sekunden
+    private final static String LOCK_NAME = "cinema_schema_migration";
+    private final static Migration[] MIGRATIONS = {
+            new Migration(1, "Basisschema (Tabellen und initiales Admin-Konto)", new String[0],
+                    SchemaMigrations::basisSchema),
+            new Migration(2, "Indizes für häufige Filter", new String[]{
+                    "vorstellungen(filmid, vorstellungsbeginn): Vorstellungen eines Films ab jetzt, sortiert nach Beginn",
+                    "vorstellungen(vorstellungsbeginn): Laden aller zukünftigen Vorstellungen (ShowtimeIndex)",
+                    "bestellungen(vorstellungsid): Belegung einer Vorstellung laden (SeatOccupancy)",
+                    "bestellungen(benutzerid, bestellnummer): Bestellungen eines Kontos (getUserInfos)",
+                    "bestellungPlaetze(bestellnummer, platzid): Plätze einer Bestellung (getUserInfos, SeatOccupancy)"},
+                    pConnection -> {
+                        createIndex(pConnection, "vorstellungen", "idx_vorstellungen_film_beginn", "filmid", "vorstellungsbeginn");
+                        createIndex(pConnection, "vorstellungen", "idx_vorstellungen_beginn", "vorstellungsbeginn");
+                        createIndex(pConnection, "bestellungen", "idx_bestellungen_vorstellung", "vorstellungsid");
+                        createIndex(pConnection, "bestellungen", "idx_bestellungen_benutzer", "benutzerid", "bestellnummer");
+                        createIndex(pConnection, "bestellungPlaetze", "idx_bestellungPlaetze_bestellung", "bestellnummer", "platzid");
+                    }),
+            new Migration(3, "Belegung bestehender Bestellungen in vorstellungPlaetze übernehmen", new String[]{
+                    "vorstellungPlaetze(vorstellungsid, platzid): Belegung einer Vorstellung ohne Join laden (SeatOccupancy)"},
+                    SchemaMigrations::belegungUebernehmen),
+            new Migration(4, "Mail-Outbox für transaktional eingetragene Emails", new String[]{
+                    "mailOutbox(gesendet, naechsterVersuch): Fällige Emails für den Versand laden (MailRelay)"},
+                    SchemaMigrations::mailOutbox),
+            new Migration(5, "Zahlungsstatus für asynchron geprüfte PayPal-Zahlungen", new String[]{
+                    "bestellungen(zahlungsstatus): Bestellungen in Prüfung laden (PaymentVerifier)",
+                    "bestellungen(paypalTransaktion): Eine PayPal-Transaktion kann nur für eine Bestellung verwendet werden"},
+                    SchemaMigrations::zahlungsstatus)
+    };
+
+    /**
+     * Bringt das Schema der Datenbank auf den aktuellen Stand. Es werden nur die Migrationen ausgeführt, die noch nicht
+     * in der Tabelle {@code schemaVersion} eingetragen sind. Laufen mehrere Instanzen gleichzeitig an, migriert über
+     * eine Datenbank-Sperre ({@code GET_LOCK}) immer nur eine.
+     *
+     * @param pConnection Die Verbindung zu der Datenbank
+     * @throws SQLException Falls eine Migration fehlschlägt (die bereits erfolgreichen bleiben eingetragen)
+     */
+    static void migrate(Connection pConnection) throws SQLException {
+        int latest = MIGRATIONS[MIGRATIONS.length - 1].version;
+        int version = getVersion(pConnection);
+        if (version >= latest) {
+            Start.log(1, "Datenbankschema ist aktuell (Version " + version + ")");
+            return;
+        }
+
+        execute(pConnection, "CREATE TABLE IF NOT EXISTS schemaVersion(" +
+                "version INT UNSIGNED NOT NULL, " + // Nummer der Migration
+                "beschreibung VARCHAR(200) NOT NULL, " + // Was die Migration ändert
+                "angewendet DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP, " + // Zeitpunkt der Migration
+                "dauer_ms INT UNSIGNED NOT NULL, " + // Dauer der Migration
+                "PRIMARY KEY (version));");
+        lock(pConnection);
+        try {
+            // Nach dem Warten auf die Sperre kann eine andere Instanz bereits migriert haben
+            version = getVersion(pConnection);
+            for (Migration migration : MIGRATIONS) {
+                if (migration.version <= version) continue;
+                long start = System.currentTimeMillis();
+                migration.step.apply(pConnection);
+                long dauer = System.currentTimeMillis() - start;
+                try (PreparedStatement p = pConnection.prepareStatement("INSERT INTO schemaVersion(version, beschreibung, dauer_ms) VALUES (?, ?, ?)")) {
+                    p.setInt(1, migration.version);
+                    p.setString(2, migration.beschreibung);
+                    p.setLong(3, dauer);
+                    p.executeUpdate();
+                }
+                Start.log(1, "Migration " + migration.version + " angewendet: " + migration.beschreibung + " (" + dauer + " ms)");
+                for (String query : migration.beschleunigt) Start.log(0, "  beschleunigt " + query);
+            }
+        } finally {
+            unlock(pConnection);
+        }
+    }
+
+    /**
+     * Fragt die Version des Schemas ab.
+     *
+     * @param pConnection Die Verbindung zu der Datenbank
+     * @return Die höchste angewendete Migration (0, falls noch keine angewendet wurde)
+     * @throws SQLException Falls ein Fehler in der Verbindung zu der Datenbank auftritt
+     */
+    static int getVersion(Connection pConnection) throws SQLException {
+        try (PreparedStatement p = pConnection.prepareStatement("SELECT MAX(version) FROM schemaVersion");
+             ResultSet resultSet = p.executeQuery()) {
+            return resultSet.next() ? resultSet.getInt(1) : 0;
+        } catch (SQLSyntaxErrorException e) {
+            return 0; // Tabelle existiert noch nicht
+        }
+    }
+
+    private static void lock(Connection pConnection) throws SQLException {
+        try (PreparedStatement p = pConnection.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            p.setString(1, LOCK_NAME);
+            p.setInt(2, LOCK_TIMEOUT);
+            try (ResultSet resultSet = p.executeQuery()) {
+                if (!resultSet.next() || resultSet.getInt(1) != 1)
+                    throw new SQLException("Sperre für die Migration des Schemas konnte nicht gesetzt werden");
+            }
+        }
+    }
+
+    private static void unlock(Connection pConnection) throws SQLException {
+        try (PreparedStatement p = pConnection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            p.setString(1, LOCK_NAME);
+            p.executeQuery().close();
+        }
+    }
+
+    private static void execute(Connection pConnection, String pSql) throws SQLException {
+        try (Statement statement = pConnection.createStatement()) {
+            statement.executeUpdate(pSql);
+        }
+    }
+
+    /**
+     * Legt einen Index an, falls noch kein Index mit diesen führenden Spalten existiert. InnoDB legt z.B. für jeden
+     * Fremdschlüssel automatisch einen Index an, der dann nicht doppelt erstellt wird.
+     *
+     * @param pConnection Die Verbindung zu der Datenbank
+     * @param pTable      Die Tabelle
+     * @param pName       Der Name des neuen Index
+     * @param pColumns    Die Spalten des Index (in dieser Reihenfolge)
+     * @throws SQLException Falls ein Fehler in der Verbindung zu der Datenbank auftritt
+     */
+    static void createIndex(Connection pConnection, String pTable, String pName, String... pColumns) throws SQLException {
+        String columns = String.join(",", pColumns);
+        try (PreparedStatement p = pConnection.prepareStatement("SELECT INDEX_NAME, GROUP_CONCAT(COLUMN_NAME ORDER BY " +
+                "SEQ_IN_INDEX) AS spalten FROM information_schema.STATISTICS WHERE TABLE_SCHEMA = DATABASE() AND " +
+                "TABLE_NAME = ? GROUP BY INDEX_NAME")) {
+            p.setString(1, pTable);
+            try (ResultSet resultSet = p.executeQuery()) {
+                while (resultSet.next()) {
+                    String vorhanden = resultSet.getString("spalten");
+                    if (resultSet.getString("INDEX_NAME").equals(pName) || vorhanden.equals(columns) ||
+                            vorhanden.startsWith(columns + ",")) {
+                        Start.log(0, "Index " + pTable + "(" + columns + ") existiert bereits (" + resultSet.getString("INDEX_NAME") + ")");
+                        return;
+                    }
+                }
+            }
+        }
+        execute(pConnection, "CREATE INDEX " + pName + " ON " + pTable + "(" + columns + ")");
+    }
+
+    /**
+     * Legt einen eindeutigen Index an, falls noch kein Index mit diesem Namen existiert.
+     *
+     * @param pConnection Die Verbindung zu der Datenbank
+     * @param pTable      Die Tabelle
+     * @param pName       Der Name des neuen Index
+     * @param pColumns    Die Spalten des Index (in dieser Reihenfolge)
+     * @throws SQLException Falls ein Fehler in der Verbindung zu der Datenbank auftritt
+     */
+    static void createUniqueIndex(Connection pConnection, String pTable, String pName, String... pColumns) throws SQLException {
+        try (PreparedStatement p = pConnection.prepareStatement("SELECT 1 FROM information_schema.STATISTICS WHERE " +
+                "TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND INDEX_NAME = ?")) {
+            p.setString(1, pTable);
+            p.setString(2, pName);
+            try (ResultSet resultSet = p.executeQuery()) {
+                if (resultSet.next()) {
+                    Start.log(0, "Index " + pName + " existiert bereits");
+                    return;
+                }
+            }
+        }
+        execute(pConnection, "CREATE UNIQUE INDEX " + pName + " ON " + pTable + "(" + String.join(",", pColumns) + ")");
+    }
+
+    /**
+     * Fügt eine Spalte hinzu, falls sie noch nicht existiert. Dadurch kann eine Migration, die nach dem Hinzufügen
+     * abgebrochen ist, beim nächsten Start erneut ausgeführt werden.
+     *
+     * @param pConnection Die Verbindung zu der Datenbank
+     * @param pTable      Die Tabelle
+     * @param pColumn     Der Name der Spalte
+     * @param pDefinition Typ und Optionen der Spalte (z.B. {@code "INT NOT NULL DEFAULT 0"})
+     * @throws SQLException Falls ein Fehler in der Verbindung zu der Datenbank auftritt
+     */
+    static void addColumn(Connection pConnection, String pTable, String pColumn, String pDefinition) throws SQLException {
+        try (PreparedStatement p = pConnection.prepareStatement("SELECT 1 FROM information_schema.COLUMNS WHERE " +
+                "TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = ?")) {
+            p.setString(1, pTable);
+            p.setString(2, pColumn);
+            try (ResultSet resultSet = p.executeQuery()) {
+                if (resultSet.next()) {
+                    Start.log(0, "Spalte " + pTable + "." + pColumn + " existiert bereits");
+                    return;
+                }
+            }
+        }
+        execute(pConnection, "ALTER TABLE " + pTable + " ADD COLUMN " + pColumn + " " + pDefinition);
+    }
+
+    /**
+     * Migration 1: Erstellt die benötigen Tabellen, falls diese noch nicht existieren (bestehende Datenbanken aus der
+     * Zeit vor den Migrationen bleiben dadurch unverändert). Ebenfalls wird ein initialer Admin Account erstellt, der
+     * dafür da ist, das Admin Panl zu öffnen und die Starteinstellungen vor zu nehmen.
+     *
+     * @param pConnection Die Verbindung zu der Datenbank
+     */
+    private static void basisSchema(Connection pConnection) throws SQLException {
+        // --- Kinosäle ---
+        execute(pConnection, "CREATE TABLE IF NOT EXISTS kinosaele(" +
+                "saalid INT UNSIGNED NOT NULL AUTO_INCREMENT, " + // Eindeutige ID eines Kinosaals
+                "name VARCHAR(20) NOT NULL, " + // Der Name des Kinosaals
+                "width INT NOT NULL, " + // Die Breite des Saals in Pixeln
+                "height INT NOT NULL, " + // Die Höhe des Saals in Pixeln
+                "PRIMARY KEY (saalid)," + // SaalId als eindeutiger Schlüssel
+                "UNIQUE (name));"); // Saalname als eindeutige Bezeichnung
+
+        execute(pConnection, "CREATE TABLE IF NOT EXISTS kategorien(" +
+                "kategorieid INT UNSIGNED NOT NULL AUTO_INCREMENT, " + // Eindeutige ID für die Kategorie
+                "name VARCHAR(20) NOT NULL, " + // Name der Kategorie
+                "aufpreis DECIMAL(4,2) NOT NULL, " + // Aufpreis für dies Kategorie (z.B. +0.5 für 50ct teurer; negativ möglich)
+                "faktor DOUBLE UNSIGNED NOT NULL, " + // Faktor für einen Sitzplatz (z.B. 2 für doppelt so teuer wie normal)
+                "width INT UNSIGNED NOT NULL, " + // Breite eines Sitzes in Pixeln
+                "height INT UNSIGNED NOT NULL ," + // Höhe eines Sitzes in Pixeln
+                "color_hex VARCHAR(6) NOT NULL," + // HEX-Farbcode des Sitzes
+                "icon TEXT, " + // Icon für die Sitzplatzkategorie
+                "PRIMARY KEY (kategorieid), " + // kategorieid als eindeutiger Schlüssel
+                "UNIQUE (name));"); // Name als eindeutige Bezeichnung (da es sonst zu Verwirrungen kommt)
+
+        execute(pConnection, "CREATE TABLE IF NOT EXISTS saalPlaetze(" +
+                "platzid INT UNSIGNED NOT NULL AUTO_INCREMENT, " + // Eindeutige ID für jeden Platz
+                "saalid INT UNSIGNED NOT NULL, " + // Referenz auf den Saal, in dem der Platz ist
+                "kategorieid INT UNSIGNED NOT NULL," + // Referenz auf die Kategorie, zu der der Saal gehört
+                "reihe VARCHAR(1) NOT NULL, " + // Reihe des Platzes (für die Verständlichkeit bei Menschen)
+                "platz INT(2) NOT NULL, " + // Sitz des Platzes (für die Verständlichkeit bei Menschen)
+                "x INT UNSIGNED NOT NULL, " + // x-Koordinate des Platzes (ausgeend von der linken oberen Ecke)
+                "y INT UNSIGNED NOT NULL, " + // y-Koordinate des Platzes (ausgeend von der linken oberen Ecke)
+                "PRIMARY KEY (platzid), " + // Platz ID des eindeutiger Schlüssel
+                "UNIQUE (saalid,reihe,platz), " + // Eindeutige Kombination aus Saal Reihe und Platz (um Verwechlungen zu vermeiden)
+                "FOREIGN KEY (saalid) REFERENCES kinosaele(saalid), " +
+                "FOREIGN KEY (kategorieid) REFERENCES kategorien(kategorieid));");
+
+        // --- Konten ---
+        execute(pConnection, "CREATE TABLE IF NOT EXISTS konten(" +
+                "benutzerid INT UNSIGNED NOT NULL AUTO_INCREMENT, " + // Eindeutige ID des Benutzers
+                "rolle INT(3) UNSIGNED NOT NULL DEFAULT 0, " + // Rolle des Nutzers (spielt für den Zugriff eine Rolle)
+                "aktiv TINYINT(1) UNSIGNED NOT NULL DEFAULT 0, " + // Ob das Konto inaktiv(0), aktiv(1), deaktiviert(2) ist
+                "erstellt DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP, " + // Erstellungszeitpunkt des Accounts
+                "passwort VARCHAR(50) NOT NULL, " + // Das Passwort (für die Anmeldung)
+                "email VARCHAR(254) NOT NULL, " + // Eine Email-Adresse des Benutzers (für Infos über Probleme)
+                "name VARCHAR(60) NOT NULL, " + // Der Name der Person
+                "PRIMARY KEY (benutzerid), " + // Eindeutige ID des Benutzers als Key
+                "UNIQUE (email));"); // Email einzigartig (da sie zur Anmeldung dient)
+
+        execute(pConnection, "CREATE TABLE IF NOT EXISTS authCodes(" +
+                "benutzerid INT UNSIGNED NOT NULL, " + // Referenz auf die eindeutige ID des Benutzers
+                "auth_code VARCHAR(36) NOT NULL, " + // Der Autorisierungscode des Benutzers
+                "erstellt DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP, " + // Erstellungszeitpunkt des Codes
+                "FOREIGN KEY (benutzerid) REFERENCES konten(benutzerid), " +
+                "UNIQUE (auth_code));"); // Der AuthCode muss eindeutig sein um Fehler zu verhindern
+
+        execute(pConnection, "CREATE TABLE IF NOT EXISTS aktivierungsSchluessel(" +
+                "benutzerid INT UNSIGNED NOT NULL, " + // Referenz auf die eindeutige ID des Benutzers
+                "aktivierungs_schluessel VARCHAR(36) NOT NULL, " + // Aktivierungsschlüssel für das Konto
+                "erstellt DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP, " + // Zeitpunkt der Erstellung des Schlüssels
+                "UNIQUE (aktivierungs_schluessel), " + // Der Schlüssel muss eindeutig sein
+                "FOREIGN KEY (benutzerid) REFERENCES konten(benutzerid));");
+
+        execute(pConnection, "CREATE TABLE IF NOT EXISTS adressen(" +
+                "adressenid INT UNSIGNED NOT NULL AUTO_INCREMENT, " +
+                "benutzerid INT UNSIGNED NOT NULL, " + // Eindeutige ID des Benutzers, zu dem dise Adresse gehört
+                "erstellt DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP, " + // Zeitpunkt des Hinzufügens der Adresse
+                "anrede VARCHAR(30) NOT NULL, " + // Anrede ("Herr"/"Frau" + ggf. "Dr." oder "Prof.) der Person an der Rechnungsadresse
+                "name VARCHAR(50) NOT NULL, " + // Der Name der Person an der Rechnungsadresse
+                "strasse VARCHAR(100) NOT NULL, " + // Straße inkl. Hausnummer
+                "plz INT(5) NOT NULL, " + // PLZ der Adresse
+                "stadt VARCHAR(30) NOT NULL, " + // Stadt der Adresse
+                "telefon VARCHAR(20), " +
+                "PRIMARY KEY (adressenid), " + // Telefonnummer der Rechnungsadresse
+                "FOREIGN KEY (benutzerid) REFERENCES konten(benutzerid));");
+
+        execute(pConnection, "CREATE TABLE IF NOT EXISTS changeEmail(" +
+                "benutzerid INT UNSIGNED NOT NULL, " +
+                "neue_email VARCHAR(254) NOT NULL, " +
+                "alte_email_key INT(5) UNSIGNED NOT NULL, " +
+                "neue_email_key INT(5) UNSIGNED NOT NULL, " +
+                "erstellt DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP, " +
+                "UNIQUE (benutzerid), " + // Zeitpunkt des Hinzufügens der Keys
+                "FOREIGN KEY (benutzerid) REFERENCES konten(benutzerid));");
+
+        // --- Filme ---
+        execute(pConnection, "CREATE TABLE IF NOT EXISTS filme(" +
+                "filmid INT UNSIGNED NOT NULL AUTO_INCREMENT, " + // Eindeutige ID des Films
+                "name VARCHAR(100) NOT NULL, " + // Name des Films
+                "bild_link TEXT NOT NULL, " + // Link zu dem Cover des Films
+                "hintergrund_bild_link TEXT NOT NULL, " + // Link zu einem Hintergundbild für den Film
+                "trailer_youtube VARCHAR(11) NOT NULL, " + // YouTube-ID des Trailers
+                "kurze_beschreibung TEXT NOT NULL, " + // Kurzbeschreibung des Films
+                "beschreibung TEXT NOT NULL, " + // Lange Beschreibung des Films
+                "fsk TINYINT(2) UNSIGNED NOT NULL, " + // FSK Angabe des Films
+                "dauer TINYINT UNSIGNED NOT NULL," + // Dauer des Films in Minuten
+                "land VARCHAR(20) NOT NULL, " + // Produktionsland des Films
+                "filmstart DATE NOT NULL, " + // Startzeitpunkt des Films
+                "empfohlen BIT NOT NULL DEFAULT 0, " + // Ob der Film empfohlen wird, oder nicht
+                "aktiv BIT NOT NULL DEFAULT 1, " + // Ob der Film aktuell aktiv ist (oder nur noch für ehmalige Bestellungen)
+                "PRIMARY KEY (filmid));");
+
+        execute(pConnection, "CREATE TABLE IF NOT EXISTS vorstellungen(" +
+                "vorstellungsid INT UNSIGNED NOT NULL AUTO_INCREMENT, " + // Eindeutige ID der Vorstellung
+                "filmid INT UNSIGNED NOT NULL, " + // Referenz auf dem Film
+                "saalid INT UNSIGNED NOT NULL, " + // Referenz auf den Saal
+                "basis_preis DOUBLE UNSIGNED NOT NULL, " + // Preis für den günstigsten Platz
+                "vorstellungsbeginn DATETIME NOT NULL, " + // Zeitpunkt, zu dem die Vorstellung beginnt
+                "3d bit NOT NULL DEFAULT 0, " +
+                "PRIMARY KEY (vorstellungsid), " +
+                "FOREIGN KEY (filmid) REFERENCES filme(filmid), " +
+                "FOREIGN KEY (saalid) REFERENCES kinosaele(saalid)" +
+                ");");
+
+        execute(pConnection, "CREATE TABLE IF NOT EXISTS bestellungen(" +
+                "bestellnummer INT UNSIGNED NOT NULL AUTO_INCREMENT, " +
+                "vorstellungsid INT UNSIGNED NOT NULL, " +
+                "benutzerid INT UNSIGNED NOT NULL, " +
+                "anrede VARCHAR(30) NOT NULL, " + // Anrede ("Herr"/"Frau" + ggf. "Dr." oder "Prof.) der Person an der Rechnungsadresse
+                "name VARCHAR(50) NOT NULL, " + // Der Name der Person an der Rechnungsadresse
+                "strasse VARCHAR(100) NOT NULL, " + // Straße inkl. Hausnummer
+                "plz INT(5) NOT NULL, " + // PLZ der Adresse
+                "stadt VARCHAR(30) NOT NULL, " + // Stadt der Adresse
+                "telefon VARCHAR(20), " + // Telefonnummer der Rechnungsadresse
+                "preis DOUBLE NOT NULL, " +
+                "bezahlt BIT(1) NOT NULL DEFAULT 0, " +
+                "PRIMARY KEY (bestellnummer), " +
+                "FOREIGN KEY (benutzerid) REFERENCES konten(benutzerid), " +
+                "FOREIGN KEY (vorstellungsid) REFERENCES vorstellungen(vorstellungsid)" +
+                ");");
+
+        execute(pConnection, "CREATE TABLE IF NOT EXISTS bestellungPlaetze(" +
+                "bestellnummer INT UNSIGNED NOT NULL, " +
+                "platzid INT UNSIGNED NOT NULL, " +
+                "UNIQUE (platzid, bestellnummer)" +
+                ");");
+
+        execute(pConnection, "CREATE TABLE IF NOT EXISTS vorstellungPlaetze(" +
+                "vorstellungsid INT UNSIGNED NOT NULL, " +
+                "platzid INT UNSIGNED NOT NULL, " +
+                "bestellnummer INT UNSIGNED NOT NULL, " +
+                "PRIMARY KEY (vorstellungsid, platzid), " + // Ein Platz kann pro Vorstellung nur einmal gebucht werden
+                "FOREIGN KEY (bestellnummer) REFERENCES bestellungen(bestellnummer)" +
+                ");");
+
+        try (PreparedStatement ps_adminAccount = pConnection.prepareStatement("INSERT INTO konten(passwort, name, " +
+                "email, rolle, aktiv) VALUES ('" + DigestUtils.md5Hex("Initial123") + "', 'Admin', 'info@noamo.de', 999, 1);")) {
+            ps_adminAccount.executeUpdate();
+        } catch (SQLIntegrityConstraintViolationException ignored) {
+        } // Tritt immer auf, wenn der Admin Account schon existiert
+    }
+
+    /**
+     * Migration 3: Überträgt die Belegung aller Bestellungen, die vor der Tabelle {@code vorstellungPlaetze} angelegt
+     * wurden. Wurde ein Platz (durch die frühere fehlerhafte Prüfung) doppelt gebucht, wird die erste Bestellung
+     * eingetragen und die Doppelbuchung geloggt.
+     *
+     * @param pConnection Die Verbindung zu der Datenbank
+     */
+    private static void belegungUebernehmen(Connection pConnection) throws SQLException {
+        try (PreparedStatement p = pConnection.prepareStatement("SELECT b.vorstellungsid, p.platzid, COUNT(*) AS anzahl " +
+                "FROM bestellungPlaetze p INNER JOIN bestellungen b ON p.bestellnummer = b.bestellnummer " +
+                "GROUP BY b.vorstellungsid, p.platzid HAVING COUNT(*) > 1");
+             ResultSet resultSet = p.executeQuery()) {
+            while (resultSet.next())
+                Start.log(0, "Doppelbuchung: Vorstellung " + resultSet.getInt("vorstellungsid") + ", Platz " +
+                        resultSet.getInt("platzid") + " (" + resultSet.getInt("anzahl") + " Bestellungen)");
+        }
+        execute(pConnection, "INSERT IGNORE INTO vorstellungPlaetze(vorstellungsid, platzid, bestellnummer) " +
+                "SELECT b.vorstellungsid, p.platzid, MIN(b.bestellnummer) FROM bestellungPlaetze p INNER JOIN " +
+                "bestellungen b ON p.bestellnummer = b.bestellnummer GROUP BY b.vorstellungsid, p.platzid");
+    }
+
+    /**
+     * Migration 4: Legt die Tabelle {@code mailOutbox} an. Emails werden in derselben Transaktion wie die zugehörigen
+     * Daten (z.B. eine Bestellung) eingetragen und anschließend von {@link MailRelay} versendet.
+     *
+     * @param pConnection Die Verbindung zu der Datenbank
+     */
+    private static void mailOutbox(Connection pConnection) throws SQLException {
+        execute(pConnection, "CREATE TABLE IF NOT EXISTS mailOutbox(" +
+                "id INT UNSIGNED NOT NULL AUTO_INCREMENT, " +
+                "name VARCHAR(60) NOT NULL, " + // Name des Empfängers
+                "email VARCHAR(254) NOT NULL, " + // Email-Adresse des Empfängers
+                "betreff VARCHAR(200) NOT NULL, " +
+                "html MEDIUMTEXT NOT NULL, " + // Fertig erstellter Inhalt der Email
+                "versuche INT UNSIGNED NOT NULL DEFAULT 0, " + // Anzahl an Zustellversuchen
+                "naechsterVersuch DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP, " + // Frühester (nächster) Versand
+                "erstellt DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP, " +
+                "gesendet DATETIME NULL DEFAULT NULL, " + // NULL, solange die Email nicht versendet wurde
+                "PRIMARY KEY (id), " +
+                "INDEX idx_mailOutbox_faellig (gesendet, naechsterVersuch));");
+    }
+
+    /**
+     * Migration 5: Ergänzt die Bestellungen um den Zahlungsstatus ({@link PaymentVerifier}) und die ID der
+     * PayPal-Transaktion. Bereits bezahlte Bestellungen werden als bezahlt (2) übernommen. Alle Schritte prüfen vorher,
+     * ob sie bereits ausgeführt wurden, falls die Migration zuvor abgebrochen ist.
+     *
+     * @param pConnection Die Verbindung zu der Datenbank
+     */
+    private static void zahlungsstatus(Connection pConnection) throws SQLException {
+        addColumn(pConnection, "bestellungen", "zahlungsstatus", "TINYINT UNSIGNED NOT NULL DEFAULT 0"); // Siehe PaymentVerifier
+        addColumn(pConnection, "bestellungen", "paypalTransaktion", "VARCHAR(64) NULL DEFAULT NULL");
+        createIndex(pConnection, "bestellungen", "idx_bestellungen_zahlungsstatus", "zahlungsstatus");
+        createUniqueIndex(pConnection, "bestellungen", "idx_bestellungen_paypal", "paypalTransaktion");
+        // Fester Wert statt PaymentVerifier.BEZAHLT, damit spätere Änderungen die Migration nicht verändern
+        execute(pConnection, "UPDATE bestellungen SET zahlungsstatus = 2 WHERE bezahlt = 1 AND zahlungsstatus = 0;");
+    }
+
+    /**
+     * Ein einzelner Schritt einer Migration.
+     */
+    @FunctionalInterface
+    private interface Step {
+        void apply(Connection pConnection) throws SQLException;
+    }
+
+    /**
+     * Eine Migration mit Versionsnummer, Beschreibung und den Abfragen, die sie beschleunigt.
+     */
+    private static final class Migration {
+        private final int version;
+        private final String beschreibung;
+        private final String[] beschleunigt;
+        private final Step step;
+
+        private Migration(int pVersion, String pBeschreibung, String[] pBeschleunigt, Step pStep) {
+            version = pVersion;
+            beschreibung = pBeschreibung;
+            beschleunigt = pBeschleunigt;
+            step = pStep;
+        }
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ * Copyright (c) DHBW Mannheim - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ * Written by Noah Hoelterhoff <noah.hoelterhoff@gmail.com>, 10 2026
+ */
+
+package de.noamo.cinema.backend;
+
+import de.noamo.cinema.backend.exceptions.ConflictException;
+import de.noamo.cinema.backend.exceptions.NotFoundException;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Hält die Belegung der Plätze einer Vorstellung als kompakte Bitmap im Speicher (ein Bit pro Platz). Der Index eines
+ * Platzes ergibt sich aus dem {@link SaalLayout} des Saals. Die Belegung wird beim ersten Zugriff aus der Datenbank
+ * geladen und danach bei jeder Bestellung direkt im Speicher aktualisiert, sodass Abfragen der Belegung keine
+ * Datenbankzugriffe mehr benötigen.<br><br>
+ * Zusätzlich können Plätze für eine begrenzte Zeit reserviert werden ({@link #hold(String, int[], long)}). Jeder Platz
+ * hat dafür einen Eintrag in einem Array, der nur per Compare-And-Set geändert wird. Gleichzeitige Reservierungen
+ * blockieren sich dadurch nie gegenseitig. Abgelaufene Reservierungen werden über ein gemeinsames {@link TimerWheel}
+ * freigegeben.<br><br>
+ * Belegungen von Vorstellungen, die bereits begonnen haben, werden beim Laden einer neuen Belegung aus dem Speicher
+ * entfernt (wie in {@link ShowtimeIndex}). Wird eine solche Vorstellung später erneut abgefragt, wird sie wieder aus
+ * der Datenbank geladen.
+ *
+ * @author Noah Hoelterhoff
+ * @version 17.10.2026
+ * @since 17.10.2026
+ */
+final class SeatOccupancy {
+    private final static ConcurrentHashMap<Integer, SeatOccupancy> occupancies = new ConcurrentHashMap<>();
+    private final static TimerWheel holdTimer = new TimerWheel("SeatHoldTimer", 1000, 512);
+    final int vorstellungsid;
+    final SaalLayout layout;
+    final long beginn; // Beginn der Vorstellung (in ms seit Epoch)
+    private final AtomicLongArray belegt;
+    private final AtomicReferenceArray<Hold> holds;
+
+    private SeatOccupancy(int pVorstellungsid, SaalLayout pLayout, long pBeginn) {
+        vorstellungsid = pVorstellungsid;
+        layout = pLayout;
+        beginn = pBeginn;
+        belegt = new AtomicLongArray((pLayout.size() + 63) >>> 6);
+        holds = new AtomicReferenceArray<>(pLayout.size());
+    }
+
+    /**
+     * Gibt die Belegung einer Vorstellung zurück. Falls sie noch nicht im Speicher liegt, wird sie über die mitgegebene
+     * Verbindung geladen.
+     *
+     * @param pConnection     Eine offene Verbindung zu der Datenbank (wird nur bei Bedarf verwendet)
+     * @param pVorstellungsid Die ID der Vorstellung
+     * @return Die Belegung der Vorstellung
+     * @throws SQLException      Falls ein Fehler in der Verbindung zu der Datenbank auftritt
+     * @throws NotFoundException Falls die Vorstellung nicht existiert
+     */
+    static SeatOccupancy get(Connection pConnection, int pVorstellungsid) throws SQLException, NotFoundException {
+        SeatOccupancy occupancy = occupancies.get(pVorstellungsid);
+        if (occupancy != null) return occupancy;
+        occupancy = load(pConnection, pVorstellungsid);
+        SeatOccupancy old = occupancies.putIfAbsent(pVorstellungsid, occupancy);
+        prune();
+        return old == null ? occupancy : old;
+    }
+
+    /**
+     * Entfernt die Belegungen aller Vorstellungen, die bereits begonnen haben.
+     */
+    private static void prune() {
+        long now = System.currentTimeMillis();
+        occupancies.values().removeIf(occupancy -> occupancy.beginn <= now);
+    }
+
+    private static SeatOccupancy load(Connection pConnection, int pVorstellungsid) throws SQLException, NotFoundException {
+        int saalid;
+        long beginn;
+        try (PreparedStatement p = pConnection.prepareStatement("SELECT saalid, vorstellungsbeginn FROM vorstellungen WHERE vorstellungsid = ?")) {
+            p.setInt(1, pVorstellungsid);
+            try (ResultSet resultSet = p.executeQuery()) {
+                if (!resultSet.next()) throw new NotFoundException("Die Vorstellung wurde nicht gefunden!");
+                saalid = resultSet.getInt("saalid");
+                beginn = resultSet.getTimestamp("vorstellungsbeginn").getTime();
+            }
+        }
+
+        SeatOccupancy occupancy = new SeatOccupancy(pVorstellungsid, SaalLayout.get(pConnection, saalid), beginn);
+        occupancy.reloadBelegt(pConnection);
+        return occupancy;
+    }
+
+    /**
+     * Lädt die gebuchten Plätze der Vorstellung neu aus der Datenbank (z.B. wenn die Belegung im Speicher veraltet war,
+     * weil über eine andere Instanz gebucht wurde). Die Reservierungen bleiben dabei erhalten.
+     *
+     * @param pConnection Eine offene Verbindung zu der Datenbank
+     * @throws SQLException Falls ein Fehler in der Verbindung zu der Datenbank auftritt
+     */
+    void reloadBelegt(Connection pConnection) throws SQLException {
+        long[] words = new long[belegt.length()];
+        // Ein Bereichszugriff auf den Primärschlüssel (vorstellungsid, platzid), kein Join über die Bestellungen
+        try (PreparedStatement p = pConnection.prepareStatement("SELECT platzid FROM vorstellungPlaetze WHERE vorstellungsid = ?")) {
+            p.setInt(1, vorstellungsid);
+            try (ResultSet resultSet = p.executeQuery()) {
+                while (resultSet.next()) {
+                    int index = layout.indexOf(resultSet.getInt("platzid"));
+                    if (index >= 0) words[index >>> 6] |= 1L << index;
+                }
+            }
+        }
+        for (int i = 0; i < words.length; i++) belegt.set(i, words[i]);
+    }
+
+    /**
+     * Prüft, ob der Platz an einem Index belegt ist.
+     *
+     * @param pIndex Index des Platzes im {@link SaalLayout}
+     */
+    boolean isBelegt(int pIndex) {
+        return (belegt.get(pIndex >>> 6) & (1L << pIndex)) != 0;
+    }
+
+    /**
+     * Prüft, ob der Platz an einem Index weder belegt noch (von irgendjemandem) reserviert ist.
+     *
+     * @param pIndex Index des Platzes im {@link SaalLayout}
+     */
+    boolean isFrei(int pIndex) {
+        if (isBelegt(pIndex)) return false;
+        Hold hold = holds.get(pIndex);
+        return hold == null || hold.isAbgelaufen(System.currentTimeMillis());
+    }
+
+    /**
+     * Prüft, ob der Platz an einem Index aktuell von dem Konto mit dem mitgegebenen (gehashten) AuthCode reserviert ist.
+     *
+     * @param pIndex    Index des Platzes im {@link SaalLayout}
+     * @param pAuthHash md5-Hash des AuthCodes
+     */
+    boolean isReserviertVon(int pIndex, String pAuthHash) {
+        Hold hold = holds.get(pIndex);
+        return hold != null && !hold.isAbgelaufen(System.currentTimeMillis()) && hold.authHash.equals(pAuthHash);
+    }
+
+    /**
+     * Reserviert mehrere Plätze atomar für eine bestimmte Zeit. Entweder werden alle Plätze reserviert oder keiner.
+     * Plätze, die bereits von demselben AuthCode reserviert sind, werden dabei verlängert. Ein AuthCode kann in der
+     * Vorstellung insgesamt höchstens {@code pMaxPlaetze} Plätze gleichzeitig reservieren, sonst könnte ein einzelnes
+     * Konto durch wiederholtes Verlängern den ganzen Saal blockieren.
+     *
+     * @param pAuthHash   md5-Hash des AuthCodes, für den reserviert wird
+     * @param pIndizes    Indizes der Plätze im {@link SaalLayout} (ohne Duplikate)
+     * @param pTtl        Dauer der Reservierung in ms
+     * @param pMaxPlaetze Maximale Anzahl an Plätzen, die der AuthCode gleichzeitig reserviert haben darf
+     * @return Zeitpunkt (in ms seit Epoch), bis zu dem die Reservierung gilt
+     * @throws ConflictException Falls ein Platz belegt oder von einem anderen Konto reserviert ist oder der AuthCode
+     *                           damit zu viele Plätze reserviert hätte
+     */
+    long hold(String pAuthHash, int[] pIndizes, long pTtl, int pMaxPlaetze) throws ConflictException {
+        long now = System.currentTimeMillis();
+        Hold hold = new Hold(pAuthHash, now + pTtl, pIndizes);
+        Hold[] vorher = new Hold[pIndizes.length];
+        for (int i = 0; i < pIndizes.length; i++) {
+            int index = pIndizes[i];
+            while (true) {
+                Hold current = holds.get(index);
+                if (isBelegt(index) || (current != null && !current.isAbgelaufen(now) && !current.authHash.equals(pAuthHash))) {
+                    // Bereits gesetzte Reservierungen zurücknehmen
+                    for (int j = 0; j < i; j++) holds.compareAndSet(pIndizes[j], hold, vorher[j]);
+                    throw new ConflictException("Der Platz " + layout.reihen[index] + layout.plaetze[index] +
+                            " ist bereits belegt oder reserviert!");
+                }
+                if (holds.compareAndSet(index, current, hold)) {
+                    vorher[i] = current;
+                    break;
+                }
+            }
+        }
+        // Erst nach dem Setzen zählen, so werden auch gleichzeitige Anfragen desselben AuthCodes erfasst
+        if (countReserviertVon(pAuthHash, now) > pMaxPlaetze) {
+            for (int i = 0; i < pIndizes.length; i++) holds.compareAndSet(pIndizes[i], hold, vorher[i]);
+            throw new ConflictException("Es können maximal " + pMaxPlaetze + " Plätze gleichzeitig reserviert werden!");
+        }
+        holdTimer.schedule(hold.bis, () -> release(hold));
+        return hold.bis;
+    }
+
+    private int countReserviertVon(String pAuthHash, long pNow) {
+        int count = 0;
+        for (int i = 0; i < holds.length(); i++) {
+            Hold hold = holds.get(i);
+            if (hold != null && !hold.isAbgelaufen(pNow) && hold.authHash.equals(pAuthHash)) count++;
+        }
+        return count;
+    }
+
+    /**
+     * Gibt alle Reservierungen eines AuthCodes an den mitgegebenen Indizes frei.
+     *
+     * @param pAuthHash md5-Hash des AuthCodes
+     * @param pIndizes  Indizes der Plätze im {@link SaalLayout}
+     */
+    void release(String pAuthHash, int[] pIndizes) {
+        for (int index : pIndizes) {
+            Hold current = holds.get(index);
+            if (current != null && current.authHash.equals(pAuthHash)) holds.compareAndSet(index, current, null);
+        }
+    }
+
+    private void release(Hold pHold) {
+        for (int index : pHold.indizes) holds.compareAndSet(index, pHold, null);
+    }
+
+    /**
+     * Markiert die Plätze an den mitgegebenen Indizes als belegt (z.B. nachdem eine Bestellung eingetragen wurde).
+     *
+     * @param pIndizes Indizes der Plätze im {@link SaalLayout}
+     */
+    void markBelegt(int[] pIndizes) {
+        for (int index : pIndizes) set(index);
+    }
+
+    /**
+     * Gibt gebuchte Plätze einer Vorstellung wieder frei (z.B. wenn die Zahlung einer Bestellung abgelehnt wurde). Liegt
+     * die Belegung nicht im Speicher, muss nichts getan werden, sie wird beim nächsten Zugriff neu geladen.
+     *
+     * @param pVorstellungsid Die ID der Vorstellung
+     * @param pPlatzIds       Die IDs der Plätze
+     */
+    static void freigeben(int pVorstellungsid, List<Integer> pPlatzIds) {
+        SeatOccupancy occupancy = occupancies.get(pVorstellungsid);
+        if (occupancy == null) return;
+        for (int platzId : pPlatzIds) {
+            int index = occupancy.layout.indexOf(platzId);
+            if (index >= 0) occupancy.clear(index);
+        }
+    }
+
+    /**
+     * Zählt die belegten Plätze der Vorstellung.
+     */
+    int countBelegt() {
+        int count = 0;
+        for (int i = 0; i < belegt.length(); i++) count += Long.bitCount(belegt.get(i));
+        return count;
+    }
+
+    /**
+     * Eine zeitlich begrenzte Reservierung mehrerer Plätze durch ein Konto.
+     */
+    private static final class Hold {
+        private final String authHash;
+        private final long bis;
+        private final int[] indizes;
+
+        private Hold(String pAuthHash, long pBis, int[] pIndizes) {
+            authHash = pAuthHash;
+            bis = pBis;
+            indizes = pIndizes;
+        }
+
+        private boolean isAbgelaufen(long pNow) {
+            return pNow >= bis;
+        }
+    }
+
+    private void set(int pIndex) {
+        int word = pIndex >>> 6;
+        long mask = 1L << pIndex;
+        long current;
+        do {
+            current = belegt.get(word);
+        } while ((current & mask) == 0 && !belegt.compareAndSet(word, current, current | mask));
+    }
+
+    private void clear(int pIndex) {
+        int word = pIndex >>> 6;
+        long mask = 1L << pIndex;
+        long current;
+        do {
+            current = belegt.get(word);
+        } while ((current & mask) != 0 && !belegt.compareAndSet(word, current, current & ~mask));
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) DHBW Mannheim - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ * Written by Noah Hoelterhoff <noah.hoelterhoff@gmail.com>, 10 2026
+ */
+
+package de.noamo.cinema.backend;
+
+import de.noamo.cinema.backend.exceptions.NotFoundException;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Vorberechnete Preise aller Plätze einer Vorstellung. Der Preis eines Platzes ist {@code basis_preis * faktor +
+ * aufpreis} (Faktor und Aufpreis aus der Kategorie des Platzes) und liegt an dem Index des Platzes im
+ * {@link SaalLayout}. Die Summe einer Bestellung ist dadurch eine einfache Addition im Speicher.<br> Die Preise werden
+ * über den {@link InvalidationBus} verworfen, sobald sich die Vorstellungen oder die Kategorien ändern. Preise von
+ * Vorstellungen, die bereits begonnen haben, werden wie in {@link SeatOccupancy} beim Laden neuer Preise entfernt.
+ *
+ * @author Noah Hoelterhoff
+ * @version 17.10.2026
+ * @since 17.10.2026
+ */
+final class SeatPrices {
+    private final static ConcurrentHashMap<Integer, SeatPrices> prices = new ConcurrentHashMap<>();
+    private final static AtomicLong generation = new AtomicLong();
+    final int vorstellungsid;
+    private final long beginn;
+    private final double[] preise;
+
+    static {
+        InvalidationBus.subscribe(SeatPrices::invalidateAll, "kategorien", "vorstellungen");
+    }
+
+    private SeatPrices(int pVorstellungsid, long pBeginn, double[] pPreise) {
+        vorstellungsid = pVorstellungsid;
+        beginn = pBeginn;
+        preise = pPreise;
+    }
+
+    /**
+     * Gibt die Preise einer Vorstellung zurück. Falls sie noch nicht im Speicher liegen, werden sie über die
+     * mitgegebene Verbindung berechnet.
+     *
+     * @param pConnection Eine offene Verbindung zu der Datenbank (wird nur bei Bedarf verwendet)
+     * @param pOccupancy  Die Belegung der Vorstellung (liefert die Vorstellungs-ID und das Layout des Saals)
+     * @return Die Preise aller Plätze der Vorstellung
+     * @throws SQLException      Falls ein Fehler in der Verbindung zu der Datenbank auftritt
+     * @throws NotFoundException Falls die Vorstellung nicht existiert
+     */
+    static SeatPrices get(Connection pConnection, SeatOccupancy pOccupancy) throws SQLException, NotFoundException {
+        SeatPrices seatPrices = prices.get(pOccupancy.vorstellungsid);
+        if (seatPrices != null) return seatPrices;
+        long start = generation.get();
+        SeatPrices loaded = load(pConnection, pOccupancy);
+        // Wurde während des Ladens invalidiert, sind die Preise eventuell veraltet und werden nicht gespeichert
+        seatPrices = prices.compute(pOccupancy.vorstellungsid, (k, old) -> old != null ? old :
+                generation.get() == start ? loaded : null);
+        prune();
+        return seatPrices == null ? loaded : seatPrices;
+    }
+
+    /**
+     * Entfernt die Preise aller Vorstellungen, die bereits begonnen haben.
+     */
+    private static void prune() {
+        long now = System.currentTimeMillis();
+        prices.values().removeIf(seatPrices -> seatPrices.beginn <= now);
+    }
+
+    /**
+     * Verwirft die Preise aller Vorstellungen (z.B. nachdem eine Kategorie geändert wurde). Laufende Ladevorgänge
+     * speichern ihr Ergebnis danach nicht mehr.
+     */
+    static void invalidateAll() {
+        generation.incrementAndGet();
+        prices.clear();
+    }
+
+    private static SeatPrices load(Connection pConnection, SeatOccupancy pOccupancy) throws SQLException, NotFoundException {
+        SaalLayout layout = pOccupancy.layout;
+        double basisPreis;
+        try (PreparedStatement p = pConnection.prepareStatement("SELECT basis_preis FROM vorstellungen WHERE vorstellungsid = ?")) {
+            p.setInt(1, pOccupancy.vorstellungsid);
+            try (ResultSet resultSet = p.executeQuery()) {
+                if (!resultSet.next()) throw new NotFoundException("Die Vorstellung wurde nicht gefunden!");
+                basisPreis = resultSet.getDouble("basis_preis");
+            }
+        }
+
+        // Preis pro Kategorie berechnen
+        HashMap<Integer, Double> kategoriePreise = new HashMap<>();
+        try (PreparedStatement p = pConnection.prepareStatement("SELECT kategorieid, faktor, aufpreis FROM kategorien");
+             ResultSet resultSet = p.executeQuery()) {
+            while (resultSet.next())
+                kategoriePreise.put(resultSet.getInt("kategorieid"), basisPreis * resultSet.getDouble("faktor") + resultSet.getDouble("aufpreis"));
+        }
+
+        // Preis pro Platz eintragen
+        double[] preise = new double[layout.size()];
+        for (int i = 0; i < preise.length; i++) {
+            Double preis = kategoriePreise.get(layout.kategorien[i]);
+            preise[i] = (preis == null ? basisPreis : preis);
+        }
+        return new SeatPrices(pOccupancy.vorstellungsid, pOccupancy.beginn, preise);
+    }
+
+    /**
+     * Fragt den Preis des Platzes an einem Index ab.
+     *
+     * @param pIndex Index des Platzes im {@link SaalLayout}
+     */
+    double preis(int pIndex) {
+        return preise[pIndex];
+    }
+
+    /**
+     * Berechnet den Gesamtpreis mehrerer Plätze (auf ganze Cent gerundet).
+     *
+     * @param pIndizes Indizes der Plätze im {@link SaalLayout}
+     * @return Die Summe der Preise
+     */
+    double summe(int[] pIndizes) {
+        double summe = 0;
+        for (int index : pIndizes) summe += preise[index];
+        return Math.round(summe * 100) / 100.0;
+    }
+}
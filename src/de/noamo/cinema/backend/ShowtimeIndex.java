@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) DHBW Mannheim - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ * Written by Noah Hoelterhoff <noah.hoelterhoff@gmail.com>, 10 2026
+ */
+
+package de.noamo.cinema.backend;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Index aller zukünftigen Vorstellungen im Speicher. Die Vorstellungen sind nach Beginn sortiert und zusätzlich pro Film
+ * abgelegt, sodass {@code /vorstellungen} und {@code /vorstellungen/:filmid} ohne Datenbankzugriff beantwortet werden
+ * können. Vergangene Vorstellungen werden bei jedem Zugriff vorne aus dem Index entfernt.<br> Der Index wird über
+ * einen {@link LoadingCache} in {@link DataBase} gehalten und beim Anlegen einer Vorstellung über den
+ * {@link InvalidationBus} neu geladen.
+ *
+ * @author Noah Hoelterhoff
+ * @version 17.10.2026
+ * @since 17.10.2026
+ */
+final class ShowtimeIndex {
+    private final static Comparator<Vorstellung> ORDER = Comparator.<Vorstellung>comparingLong(v -> v.beginn)
+            .thenComparingInt(v -> v.vorstellungsid);
+    private final ConcurrentSkipListSet<Vorstellung> byStart = new ConcurrentSkipListSet<>(ORDER);
+    private final ConcurrentHashMap<Integer, ConcurrentSkipListSet<Vorstellung>> byFilm = new ConcurrentHashMap<>();
+
+    private ShowtimeIndex() {
+    }
+
+    /**
+     * Lädt alle zukünftigen Vorstellungen aus der Datenbank.
+     *
+     * @param pConnection Eine offene Verbindung zu der Datenbank
+     * @return Der neue Index
+     * @throws SQLException Falls ein Fehler in der Verbindung zu der Datenbank auftritt
+     */
+    static ShowtimeIndex load(Connection pConnection) throws SQLException {
+        ShowtimeIndex index = new ShowtimeIndex();
+        try (PreparedStatement p = pConnection.prepareStatement("SELECT v.vorstellungsid, v.filmid, v.`3d`, " +
+                "v.vorstellungsbeginn, v.basis_preis, k.name FROM vorstellungen v INNER JOIN kinosaele k ON " +
+                "v.saalid = k.saalid WHERE v.vorstellungsbeginn > CURRENT_TIMESTAMP");
+             ResultSet resultSet = p.executeQuery()) {
+            while (resultSet.next()) {
+                index.add(new Vorstellung(resultSet.getInt("vorstellungsid"), resultSet.getInt("filmid"),
+                        resultSet.getBoolean("3d"), resultSet.getString("name"),
+                        resultSet.getTimestamp("vorstellungsbeginn"), resultSet.getDouble("basis_preis")));
+            }
+        }
+        return index;
+    }
+
+    private void add(Vorstellung pVorstellung) {
+        byStart.add(pVorstellung);
+        byFilm.computeIfAbsent(pVorstellung.filmid, k -> new ConcurrentSkipListSet<>(ORDER)).add(pVorstellung);
+    }
+
+    /**
+     * Gibt alle Vorstellungen zurück, die nach dem aktuellen Zeitpunkt beginnen (aufsteigend nach Beginn sortiert).
+     *
+     * @param pFilmId Die ID des Films (0 für alle Filme)
+     * @return Eine (unveränderliche) Ansicht auf die Vorstellungen
+     */
+    NavigableSet<Vorstellung> upcoming(int pFilmId) {
+        Vorstellung jetzt = new Vorstellung(Integer.MAX_VALUE, System.currentTimeMillis());
+        prune(jetzt);
+        NavigableSet<Vorstellung> set = (pFilmId == 0 ? byStart : byFilm.get(pFilmId));
+        if (set == null) return Collections.emptyNavigableSet();
+        return Collections.unmodifiableNavigableSet(set.tailSet(jetzt, false));
+    }
+
+    /**
+     * Entfernt alle Vorstellungen, die bis zu dem mitgegebenen Zeitpunkt begonnen haben.
+     */
+    private void prune(Vorstellung pJetzt) {
+        Iterator<Vorstellung> iterator = byStart.headSet(pJetzt, true).iterator();
+        while (iterator.hasNext()) {
+            Vorstellung vorstellung = iterator.next();
+            iterator.remove();
+            NavigableSet<Vorstellung> film = byFilm.get(vorstellung.filmid);
+            if (film != null) film.remove(vorstellung);
+        }
+    }
+
+    /**
+     * Eine (unveränderliche) Vorstellung im Index.
+     */
+    static final class Vorstellung {
+        final int vorstellungsid, filmid;
+        final boolean dreiD;
+        final String saalName, vorstellungsbeginn;
+        final double basisPreis;
+        private final long beginn;
+
+        private Vorstellung(int pVorstellungsid, int pFilmid, boolean pDreiD, String pSaalName, Timestamp pBeginn, double pBasisPreis) {
+            vorstellungsid = pVorstellungsid;
+            filmid = pFilmid;
+            dreiD = pDreiD;
+            saalName = pSaalName;
+            vorstellungsbeginn = pBeginn.toString();
+            beginn = pBeginn.getTime();
+            basisPreis = pBasisPreis;
+        }
+
+        /**
+         * Erstellt eine Vergleichs-Vorstellung für Bereichsabfragen.
+         */
+        private Vorstellung(int pVorstellungsid, long pBeginn) {
+            vorstellungsid = pVorstellungsid;
+            filmid = 0;
+            dreiD = false;
+            saalName = null;
+            vorstellungsbeginn = null;
+            beginn = pBeginn;
+            basisPreis = 0;
+        }
+    }
+}
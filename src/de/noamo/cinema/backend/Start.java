@@ -7,13 +7,6 @@
 
 package de.noamo.cinema.backend;
 
-import org.apache.http.HttpResponse;
-import org.apache.http.client.methods.HttpPost;
-import org.apache.http.entity.ContentType;
-import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
-
 import java.io.File;
 import java.io.IOException;
 import java.util.Scanner;
@@ -26,10 +19,15 @@ import java.util.Scanner;
  * @since 05.09.2020
  */
 public abstract class Start {
+    private final static long MAIL_DRAIN_MS = 20000;
+    private final static int WEBHOOK_CAPACITY = 256; // Unterschiedliche wartende Fehlermeldungen
+    private final static int WEBHOOK_BATCH = 20; // Fehlermeldungen pro Nachricht
+    private final static long WEBHOOK_INTERVAL_MS = 2000; // Mindestabstand zwischen zwei Nachrichten
     private static String certificatePath;
     private static String host;
     private static int restApiPort = 4567;
-    private static String webHook = null;
+    private static boolean virtualThreads = false;
+    private static volatile LogShipper logShipper = null;
 
     /**
      * Fragt den Path des Zertifikates ab.
@@ -45,6 +43,14 @@ public abstract class Start {
         return host;
     }
 
+    /**
+     * Fragt die Statistiken des WebHook-Versands ab.
+     */
+    static String getLogStats() {
+        LogShipper shipper = logShipper;
+        return (shipper == null ? "logShipper: kein WebHook konfiguriert" : shipper.getStats());
+    }
+
     /**
      * Fragt den Port ab, auf der die REST API arbeitet.
      */
@@ -52,6 +58,14 @@ public abstract class Start {
         return restApiPort;
     }
 
+    /**
+     * Fragt ab, ob Anfragen der REST API auf virtuellen Threads bearbeitet werden sollen (Argument {@code
+     * THREADS=virtual}).
+     */
+    static boolean useVirtualThreads() {
+        return virtualThreads;
+    }
+
     /**
      * Interpretiert den mitgegeben Pfad des Zertifikates. Dieser kann entweder direkt den Pfad zu dem Zertifikat
      * enthalten, oder ein Pfad zu einer "last_nginx.conf"-Datei sein.<br> Falls es die "last_nginx.conf"-Datei ist,
@@ -112,22 +126,9 @@ public abstract class Start {
         String pre = (pType == 2 ? "[\033[0;31mFEHLER\033[0m] " : (pType == 1 ? "[\033[0;32mOK\033[0m] " : ""));
         System.out.println(pre + pMessage);
 
-        // Fehler an den WebHook senden
-        if (pType == 2 && webHook != null) {
-            try {
-                CloseableHttpClient httpclient = HttpClients.createDefault();
-                HttpPost post = new HttpPost(webHook);
-                post.setEntity(new StringEntity("{\"content\": \"" + pMessage + "\"}", ContentType.create("application/json", "UTF-8")));
-                HttpResponse response = httpclient.execute(post);
-
-                // Bei Fehlern diese anzeigen
-                if (response.getStatusLine().getStatusCode() > 299)
-                    System.out.println("Could not send Log to WebHook (" + response.getStatusLine().getStatusCode() + " " +
-                            response.getStatusLine().getReasonPhrase() + ")");
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }
+        // Fehler (asynchron) an den WebHook senden
+        LogShipper shipper = logShipper;
+        if (pType == 2 && shipper != null) shipper.offer(pMessage);
     }
 
     /**
@@ -146,7 +147,10 @@ public abstract class Start {
                 else if (s.toUpperCase().startsWith("HOST=")) host = s.substring(5);
                 else if (s.toUpperCase().startsWith("PAYPALCLIENTID=")) payPalClientId = s.substring(15);
                 else if (s.toUpperCase().startsWith("PAYPALCLIENTSECRET=")) payPalClientSecret = s.substring(19);
-                else if (s.toUpperCase().startsWith("WEBHOOK=")) webHook = s.substring(8);
+                else if (s.toUpperCase().startsWith("WEBHOOK="))
+                    logShipper = new LogShipper(s.substring(8), WEBHOOK_CAPACITY, WEBHOOK_BATCH, WEBHOOK_INTERVAL_MS);
+                else if (s.toUpperCase().startsWith("THREADS="))
+                    virtualThreads = s.substring(8).equalsIgnoreCase("virtual");
                 else if (s.toUpperCase().startsWith("ZERTIFIKAT="))
                     certificatePath = interpretCertificatePath(s.substring(11));
             }
@@ -155,10 +159,18 @@ public abstract class Start {
             System.exit(1);
         }
 
+        // Beim Herunterfahren noch ausstehende Emails und Fehlermeldungen versenden
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            MailRelay.shutdown(MAIL_DRAIN_MS);
+            if (logShipper != null) logShipper.shutdown(WEBHOOK_INTERVAL_MS * 3);
+        }, "Shutdown"));
+
         // Laden & Starten
         loadResources();
         PayPal.setupPayPal(payPalClientId, payPalClientSecret);
         waitForDataBase(dbUrl);
+        MailRelay.start();
+        PaymentVerifier.start();
         waitForRestApi();
     }
 
@@ -170,10 +182,7 @@ public abstract class Start {
      */
     private static void setupMail(String pEmailString) {
         String[] emailSplit = pEmailString.split(":", 4);
-        Mail.emailHost = emailSplit[0];
-        Mail.emailPort = Integer.parseInt(emailSplit[1]);
-        Mail.emailAdresse = emailSplit[2];
-        Mail.emailPasswort = emailSplit[3];
+        Mail.setup(emailSplit[0], Integer.parseInt(emailSplit[1]), emailSplit[2], emailSplit[3]);
     }
 
     /**
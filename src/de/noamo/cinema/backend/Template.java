@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) DHBW Mannheim - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ * Written by Noah Hoelterhoff <noah.hoelterhoff@gmail.com>, 10 2026
+ */
+
+package de.noamo.cinema.backend;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Eine vorab zerlegte Vorlage (z.B. für Emails und Webseiten). Beim Laden wird der Text einmalig in feste Abschnitte und
+ * Platzhalter aufgeteilt, sodass beim Erstellen weder ein regulärer Ausdruck kompiliert noch der gesamte Text für jeden
+ * Platzhalter erneut durchsucht werden muss. Die Werte werden in einem Durchgang in einen passend großen Puffer
+ * geschrieben und nicht als Ersetzungsmuster interpretiert ({@code $} und {@code \} bleiben erhalten).
+ *
+ * @author Noah Hoelterhoff
+ * @version 17.10.2026
+ * @since 17.10.2026
+ */
+final class Template {
+    private final String[] abschnitte; // Fester Text vor jedem Platzhalter (und am Ende)
+    private final int[] platzhalter; // Index des Wertes für jeden Platzhalter
+    private final int anzahlWerte, festeLaenge;
+
+    private Template(String[] pAbschnitte, int[] pPlatzhalter, int pAnzahlWerte) {
+        abschnitte = pAbschnitte;
+        platzhalter = pPlatzhalter;
+        anzahlWerte = pAnzahlWerte;
+        int laenge = 0;
+        for (String abschnitt : pAbschnitte) laenge += abschnitt.length();
+        festeLaenge = laenge;
+    }
+
+    /**
+     * Zerlegt einen Text in eine Vorlage.
+     *
+     * @param pText         Der Text der Vorlage
+     * @param pPlatzhalter  Die Namen der Platzhalter (die Reihenfolge bestimmt die Reihenfolge der Werte in
+     *                      {@link #render(String...)})
+     * @return Die zerlegte Vorlage
+     * @throws IllegalArgumentException Falls einer der Platzhalter nicht in dem Text vorkommt
+     */
+    static Template compile(String pText, String... pPlatzhalter) {
+        List<String> abschnitte = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        boolean[] gefunden = new boolean[pPlatzhalter.length];
+        int position = 0;
+        while (true) {
+            // Nächsten (bei gleicher Position längsten) Platzhalter suchen
+            int treffer = -1, index = -1;
+            for (int i = 0; i < pPlatzhalter.length; i++) {
+                int t = pText.indexOf(pPlatzhalter[i], position);
+                if (t >= 0 && (treffer < 0 || t < treffer || (t == treffer && pPlatzhalter[i].length() > pPlatzhalter[index].length()))) {
+                    treffer = t;
+                    index = i;
+                }
+            }
+            if (treffer < 0) break;
+            abschnitte.add(pText.substring(position, treffer));
+            slots.add(index);
+            gefunden[index] = true;
+            position = treffer + pPlatzhalter[index].length();
+        }
+        abschnitte.add(pText.substring(position));
+
+        for (int i = 0; i < pPlatzhalter.length; i++)
+            if (!gefunden[i]) throw new IllegalArgumentException("Platzhalter " + pPlatzhalter[i] + " nicht gefunden");
+        int[] platzhalter = new int[slots.size()];
+        for (int i = 0; i < platzhalter.length; i++) platzhalter[i] = slots.get(i);
+        return new Template(abschnitte.toArray(new String[0]), platzhalter, pPlatzhalter.length);
+    }
+
+    /**
+     * Erstellt den Text mit den mitgegebenen Werten.
+     *
+     * @param pWerte Ein Wert pro Platzhalter (in der Reihenfolge aus {@link #compile(String, String...)})
+     * @return Der fertige Text
+     */
+    String render(String... pWerte) {
+        if (pWerte.length != anzahlWerte)
+            throw new IllegalArgumentException(anzahlWerte + " Werte erwartet, " + pWerte.length + " erhalten");
+        int laenge = festeLaenge;
+        for (int slot : platzhalter) laenge += pWerte[slot].length();
+
+        StringBuilder builder = new StringBuilder(laenge);
+        for (int i = 0; i < platzhalter.length; i++) builder.append(abschnitte[i]).append(pWerte[platzhalter[i]]);
+        return builder.append(abschnitte[platzhalter.length]).toString();
+    }
+}
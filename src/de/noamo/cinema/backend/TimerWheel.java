@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) DHBW Mannheim - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ * Written by Noah Hoelterhoff <noah.hoelterhoff@gmail.com>, 10 2026
+ */
+
+package de.noamo.cinema.backend;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Ein einfaches Hashed-Timer-Wheel für viele kurzlebige Fristen (z.B. ablaufende Sitzplatzreservierungen). Statt für
+ * jede Frist eine eigene geplante Aufgabe anzulegen, werden alle Fristen in einen von {@code slotCount} Eimern
+ * einsortiert. Ein einzelner Daemon-Thread arbeitet pro Tick genau einen Eimer ab. Aufgaben werden dadurch mit einer
+ * Ungenauigkeit von höchstens einem Tick ausgeführt.
+ *
+ * @author Noah Hoelterhoff
+ * @version 17.10.2026
+ * @since 17.10.2026
+ */
+final class TimerWheel {
+    private final long tickMillis;
+    private final ConcurrentLinkedQueue<Entry>[] slots;
+
+    /**
+     * Erstellt ein neues Timer-Wheel und startet den zugehörigen Daemon-Thread.
+     *
+     * @param pName       Name des Threads
+     * @param pTickMillis Dauer eines Ticks in ms
+     * @param pSlotCount  Anzahl an Eimern (eine Umdrehung dauert {@code pTickMillis * pSlotCount} ms)
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    TimerWheel(String pName, long pTickMillis, int pSlotCount) {
+        tickMillis = pTickMillis;
+        slots = new ConcurrentLinkedQueue[pSlotCount];
+        for (int i = 0; i < pSlotCount; i++) slots[i] = new ConcurrentLinkedQueue<>();
+        Thread thread = new Thread(this::run, pName);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Plant eine Aufgabe für einen bestimmten Zeitpunkt ein.
+     *
+     * @param pDeadline Zeitpunkt (in ms seit Epoch), ab dem die Aufgabe ausgeführt werden soll
+     * @param pTask     Die Aufgabe (sollte kurz sein, da sie auf dem Thread des Wheels läuft)
+     */
+    void schedule(long pDeadline, Runnable pTask) {
+        // Auf den nächsten Tick aufrunden: Der Eimer des laufenden Ticks wurde bereits abgearbeitet
+        slots[slotOf(pDeadline + tickMillis - 1)].add(new Entry(pDeadline, pTask));
+    }
+
+    private int slotOf(long pTime) {
+        return (int) ((pTime / tickMillis) % slots.length);
+    }
+
+    @SuppressWarnings({"BusyWait", "InfiniteLoopStatement"})
+    private void run() {
+        long tick = System.currentTimeMillis() / tickMillis;
+        while (true) {
+            try {
+                long sleep = (tick + 1) * tickMillis - System.currentTimeMillis();
+                if (sleep > 0) Thread.sleep(sleep);
+            } catch (InterruptedException ignored) {
+            }
+            long now = System.currentTimeMillis();
+            // Auch verpasste Ticks abarbeiten (z.B. nach einer GC-Pause)
+            while (tick <= now / tickMillis) {
+                expire(slots[(int) (tick % slots.length)], now);
+                tick++;
+            }
+        }
+    }
+
+    private void expire(ConcurrentLinkedQueue<Entry> pSlot, long pNow) {
+        int size = pSlot.size();
+        for (int i = 0; i < size; i++) {
+            Entry entry = pSlot.poll();
+            if (entry == null) break;
+            if (entry.deadline > pNow) {
+                // Gehört in eine spätere Umdrehung
+                pSlot.add(entry);
+                continue;
+            }
+            try {
+                entry.task.run();
+            } catch (Exception e) {
+                Start.log(2, "TimerWheel (" + e.getMessage() + ")");
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final long deadline;
+        private final Runnable task;
+
+        private Entry(long pDeadline, Runnable pTask) {
+            deadline = pDeadline;
+            task = pTask;
+        }
+    }
+}
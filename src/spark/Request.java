@@ -157,6 +157,14 @@ public class Request {
     }
 
     protected void changeMatch(RouteMatch match) {
+        if (match.getParams() != null && match.getSplat() != null) {
+            // Already extracted by the compiled route table
+            this.matchedPath = match.getMatchUri();
+            params = match.getParams();
+            splat = match.getSplat();
+            return;
+        }
+
         List<String> requestList = SparkUtils.convertRouteToList(match.getRequestURI());
         List<String> matchedList = SparkUtils.convertRouteToList(match.getMatchUri());
 
@@ -66,10 +66,11 @@ public final class Service extends Routable {
     protected Deque<String> pathDeque = new ArrayDeque<>();
     protected int port = SPARK_DEFAULT_PORT;
     protected Routes routes;
-    protected EmbeddedServer server;
+    protected volatile EmbeddedServer server;
     protected SslStores sslStores;
     private CountDownLatch stopLatch = new CountDownLatch(0);
     protected int threadIdleTimeoutMillis = -1;
+    protected boolean virtualThreads = false;
     protected Map<String, WebSocketHandlerWrapper> webSocketHandlers = null;
     protected Optional<Integer> webSocketIdleTimeoutMillis = Optional.empty();
 
@@ -87,7 +88,9 @@ public final class Service extends Routable {
     /**
      * @return The approximate number of currently active threads in the embedded Jetty server
      */
-    public synchronized int activeThreadCount() {
+    public int activeThreadCount() {
+        // No monitor: may be called from request threads, which must not pin their carrier (virtual threads)
+        EmbeddedServer server = this.server;
         if (server != null) {
             return server.activeThreadCount();
         }
@@ -285,6 +288,7 @@ public final class Service extends Routable {
                                 hasMultipleHandlers());
 
                         server.configureWebSockets(webSocketHandlers, webSocketIdleTimeoutMillis);
+                        server.configureVirtualThreads(virtualThreads);
 
                         port = server.ignite(
                                 ipAddress,
@@ -601,6 +605,24 @@ public final class Service extends Routable {
         return this;
     }
 
+    /**
+     * Configures the embedded web server's thread pool.
+     *
+     * @param maxThreads        max nbr of threads (with virtual threads: platform threads for Jetty's acceptors and
+     *                          selectors).
+     * @param minThreads        min nbr of threads.
+     * @param idleTimeoutMillis thread idle timeout (ms).
+     * @param virtualThreads    handle requests on virtual threads (Java 21+, falls back to the queued thread pool on
+     *                          older JVMs).
+     * @return the object with the embedded web server's thread pool configured
+     */
+    public synchronized Service threadPool(int maxThreads, int minThreads, int idleTimeoutMillis, boolean virtualThreads) {
+        threadPool(maxThreads, minThreads, idleTimeoutMillis);
+        this.virtualThreads = virtualThreads;
+
+        return this;
+    }
+
     private void throwBeforeRouteMappingException() {
         throw new IllegalStateException(
                 "This must be done before route mapping has begun");
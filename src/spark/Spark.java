@@ -1118,6 +1118,18 @@ public class Spark {
         getInstance().threadPool(maxThreads, minThreads, idleTimeoutMillis);
     }
 
+    /**
+     * Configures the embedded web server's thread pool.
+     *
+     * @param maxThreads        max nbr of threads.
+     * @param minThreads        min nbr of threads.
+     * @param idleTimeoutMillis thread idle timeout (ms).
+     * @param virtualThreads    handle requests on virtual threads (Java 21+).
+     */
+    public static void threadPool(int maxThreads, int minThreads, int idleTimeoutMillis, boolean virtualThreads) {
+        getInstance().threadPool(maxThreads, minThreads, idleTimeoutMillis, virtualThreads);
+    }
+
     ////////////////
     // Websockets //
 
@@ -44,6 +44,17 @@ public interface EmbeddedServer {
         NotSupportedException.raise(getClass().getSimpleName(), "Web Sockets");
     }
 
+    /**
+     * Configures whether requests are handled on virtual threads.
+     *
+     * @param virtualThreads true to use virtual threads
+     */
+    default void configureVirtualThreads(boolean virtualThreads) {
+        if (virtualThreads) {
+            NotSupportedException.raise(getClass().getSimpleName(), "Virtual Threads");
+        }
+    }
+
     /**
      * Extinguish the embedded server.
      */
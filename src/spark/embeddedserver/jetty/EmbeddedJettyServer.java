@@ -51,6 +51,7 @@ public class EmbeddedJettyServer implements EmbeddedServer {
     private final JettyServerFactory serverFactory;
     private Server server;
     private ThreadPool threadPool = null;
+    private boolean virtualThreads = false;
     private Map<String, WebSocketHandlerWrapper> webSocketHandlers;
     private Optional<Integer> webSocketIdleTimeoutMillis;
 
@@ -75,6 +76,14 @@ public class EmbeddedJettyServer implements EmbeddedServer {
         this.webSocketIdleTimeoutMillis = webSocketIdleTimeoutMillis;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void configureVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -116,10 +125,17 @@ public class EmbeddedJettyServer implements EmbeddedServer {
         }
 
         // Create instance of jetty server with either default or supplied queued thread pool
-        if (threadPool == null) {
+        ThreadPool pool = threadPool;
+        if (pool == null && virtualThreads) {
+            pool = VirtualThreadPool.create(maxThreads, minThreads, threadIdleTimeoutMillis);
+            if (pool == null) {
+                logger.warn("Falling back to the queued thread pool");
+            }
+        }
+        if (pool == null) {
             server = serverFactory.create(maxThreads, minThreads, threadIdleTimeoutMillis);
         } else {
-            server = serverFactory.create(threadPool);
+            server = serverFactory.create(pool);
         }
 
         ServerConnector connector;
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2015 - Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.embeddedserver.jetty;
+
+import org.eclipse.jetty.util.component.ContainerLifeCycle;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ThreadPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread pool that runs request handling on virtual threads (Java 21+). Jetty's own long running tasks (acceptors and
+ * selectors) stay on a small {@link QueuedThreadPool}, they would otherwise block a carrier thread for their whole
+ * lifetime. The pool deliberately is no {@link org.eclipse.jetty.util.thread.TryExecutor}, so Jetty hands every
+ * blocking task over with {@link #execute(Runnable)} instead of running it on a selector thread.
+ * <p>
+ * Virtual threads are created through reflection, so Spark still compiles and runs on older JDKs. Use
+ * {@link #create(int, int, int)} to get a pool, it returns null if the running JDK has no virtual threads.
+ */
+public class VirtualThreadPool extends ContainerLifeCycle implements ThreadPool {
+
+    private static final Logger LOG = LoggerFactory.getLogger(VirtualThreadPool.class);
+    private static final String[] JETTY_INTERNAL_TASKS = {
+            "org.eclipse.jetty.server.AbstractConnector$Acceptor",
+            "org.eclipse.jetty.io.ManagedSelector",
+            "org.eclipse.jetty.util.thread.strategy."
+    };
+
+    private final QueuedThreadPool jettyThreads;
+    private final ExecutorService virtualThreads;
+    private final AtomicInteger active = new AtomicInteger();
+
+    /**
+     * @param jettyThreads   pool for Jetty's acceptors and selectors
+     * @param virtualThreads executor for everything else (a platform thread executor in tests)
+     */
+    VirtualThreadPool(QueuedThreadPool jettyThreads, ExecutorService virtualThreads) {
+        this.jettyThreads = jettyThreads;
+        this.virtualThreads = virtualThreads;
+        addBean(jettyThreads);
+    }
+
+    /**
+     * Creates a virtual thread pool.
+     *
+     * @param maxThreads          max nbr of platform threads for Jetty's acceptors and selectors
+     * @param minThreads          min nbr of platform threads
+     * @param threadTimeoutMillis idle timeout of the platform threads
+     * @return the pool or null if virtual threads are not supported by the running JDK
+     */
+    public static VirtualThreadPool create(int maxThreads, int minThreads, int threadTimeoutMillis) {
+        ExecutorService virtualThreads = newVirtualThreadExecutor();
+        if (virtualThreads == null) {
+            return null;
+        }
+
+        int max = (maxThreads > 0) ? maxThreads : 200;
+        int min = (minThreads > 0) ? minThreads : 8;
+        int idleTimeout = (threadTimeoutMillis > 0) ? threadTimeoutMillis : 60000;
+        QueuedThreadPool jettyThreads = new QueuedThreadPool(max, min, idleTimeout);
+        jettyThreads.setName("spark-jetty");
+        return new VirtualThreadPool(jettyThreads, virtualThreads);
+    }
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, "spark-virtual-", 0L);
+            ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, factory);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Older JDK or preview features not enabled
+            LOG.warn("Virtual threads are not supported by this JVM ({})", e.toString());
+            return null;
+        }
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (isJettyInternal(task)) {
+            jettyThreads.execute(task);
+            return;
+        }
+        virtualThreads.execute(() -> {
+            active.incrementAndGet();
+            try {
+                task.run();
+            } finally {
+                active.decrementAndGet();
+            }
+        });
+    }
+
+    private static boolean isJettyInternal(Runnable task) {
+        String name = task.getClass().getName();
+        for (String prefix : JETTY_INTERNAL_TASKS) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        virtualThreads.shutdown();
+        if (!virtualThreads.awaitTermination(jettyThreads.getStopTimeout(), TimeUnit.MILLISECONDS)) {
+            virtualThreads.shutdownNow();
+        }
+        super.doStop();
+    }
+
+    @Override
+    public void join() throws InterruptedException {
+        jettyThreads.join();
+    }
+
+    /**
+     * @return the nbr of platform threads plus the nbr of virtual threads handling a request
+     */
+    @Override
+    public int getThreads() {
+        return jettyThreads.getThreads() + active.get();
+    }
+
+    @Override
+    public int getIdleThreads() {
+        return jettyThreads.getIdleThreads();
+    }
+
+    /**
+     * @return always false, virtual threads do not run out
+     */
+    @Override
+    public boolean isLowOnThreads() {
+        return false;
+    }
+}
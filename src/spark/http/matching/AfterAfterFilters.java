@@ -33,9 +33,7 @@ final class AfterAfterFilters {
 
         Object content = context.body().get();
 
-        List<RouteMatch> matchSet = context.routeMatcher().findMultiple(HttpMethod.afterafter,
-                context.uri(),
-                context.acceptType());
+        List<RouteMatch> matchSet = context.routeLookup().filters(HttpMethod.afterafter);
 
         for (RouteMatch filterMatch : matchSet) {
             Object filterTarget = filterMatch.getTarget();
@@ -33,9 +33,7 @@ final class AfterFilters {
 
         Object content = context.body().get();
 
-        List<RouteMatch> matchSet = context.routeMatcher().findMultiple(HttpMethod.after,
-                context.uri(),
-                context.acceptType());
+        List<RouteMatch> matchSet = context.routeLookup().filters(HttpMethod.after);
 
         for (RouteMatch filterMatch : matchSet) {
             Object filterTarget = filterMatch.getTarget();
@@ -32,17 +32,21 @@ final class BeforeFilters {
     static void execute(RouteContext context) throws Exception {
         Object content = context.body().get();
 
-        List<RouteMatch> matchSet = context.routeMatcher().findMultiple(HttpMethod.before, context.uri(), context.acceptType());
+        List<RouteMatch> matchSet = context.routeLookup().filters(HttpMethod.before);
 
         for (RouteMatch filterMatch : matchSet) {
             Object filterTarget = filterMatch.getTarget();
 
             if (filterTarget instanceof FilterImpl) {
-                Request request = RequestResponseFactory.create(filterMatch, context.httpRequest());
+                if (context.requestWrapper().getDelegate() == null) {
+                    Request request = RequestResponseFactory.create(filterMatch, context.httpRequest());
+                    context.requestWrapper().setDelegate(request);
+                } else {
+                    context.requestWrapper().changeMatch(filterMatch);
+                }
 
                 FilterImpl filter = (FilterImpl) filterTarget;
 
-                context.requestWrapper().setDelegate(request);
                 context.responseWrapper().setDelegate(context.response());
 
                 filter.handle(context.requestWrapper(), context.responseWrapper());
@@ -88,32 +88,42 @@ public class MatcherFilter implements Filter {
             return;
         }
 
-        String method = getHttpMethodFrom(httpRequest);
-
-        String httpMethodStr = method.toLowerCase();
         String uri = httpRequest.getRequestURI();
         String acceptType = httpRequest.getHeader(ACCEPT_TYPE_REQUEST_MIME_HEADER);
 
-        Body body = Body.create();
-
-        RequestWrapper requestWrapper = RequestWrapper.create();
-        ResponseWrapper responseWrapper = ResponseWrapper.create();
-
         Response response = RequestResponseFactory.create(httpResponse);
 
-        HttpMethod httpMethod = HttpMethod.get(httpMethodStr);
+        HttpMethod httpMethod = toHttpMethod(getHttpMethodFrom(httpRequest));
 
-        RouteContext context = RouteContext.create()
+        // Body and wrappers are reused per platform thread, release() clears them again
+        RouteContext context = RouteContext.acquire()
                 .withMatcher(routeMatcher)
+                .withRouteLookup(routeMatcher.lookup(httpMethod, uri, acceptType))
                 .withHttpRequest(httpRequest)
                 .withUri(uri)
                 .withAcceptType(acceptType)
-                .withBody(body)
-                .withRequestWrapper(requestWrapper)
-                .withResponseWrapper(responseWrapper)
                 .withResponse(response)
                 .withHttpMethod(httpMethod);
 
+        try {
+            dispatch(context, servletRequest, httpResponse, chain);
+        } finally {
+            context.release();
+        }
+    }
+
+    private void dispatch(RouteContext context,
+                          ServletRequest servletRequest,
+                          HttpServletResponse httpResponse,
+                          FilterChain chain) throws IOException, ServletException {
+
+        HttpServletRequest httpRequest = context.httpRequest();
+        String uri = context.uri();
+        String acceptType = context.acceptType();
+        Body body = context.body();
+        RequestWrapper requestWrapper = context.requestWrapper();
+        ResponseWrapper responseWrapper = context.responseWrapper();
+
         try {
             try {
 
@@ -185,6 +195,30 @@ public class MatcherFilter implements Filter {
         }
     }
 
+    /**
+     * Maps the method of a request without lower casing it, only unusual spellings go through the lookup.
+     */
+    private static HttpMethod toHttpMethod(String method) {
+        switch (method) {
+            case "GET":
+                return HttpMethod.get;
+            case "POST":
+                return HttpMethod.post;
+            case "PUT":
+                return HttpMethod.put;
+            case "PATCH":
+                return HttpMethod.patch;
+            case "DELETE":
+                return HttpMethod.delete;
+            case "HEAD":
+                return HttpMethod.head;
+            case "OPTIONS":
+                return HttpMethod.options;
+            default:
+                return HttpMethod.get(method.toLowerCase());
+        }
+    }
+
     private String getHttpMethodFrom(HttpServletRequest httpRequest) {
         String method = httpRequest.getHeader(HTTP_METHOD_OVERRIDE_HEADER);
 
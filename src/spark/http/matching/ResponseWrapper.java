@@ -130,6 +130,14 @@ class ResponseWrapper extends Response {
         this.delegate = delegate;
     }
 
+    /**
+     * Resets the wrapper so it can be reused for the next request.
+     */
+    void reset() {
+        delegate = null;
+        redirected = false;
+    }
+
     @Override
     public void status(int statusCode) {
         delegate.status(statusCode);
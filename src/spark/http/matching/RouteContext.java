@@ -18,15 +18,26 @@ package spark.http.matching;
 
 import spark.Response;
 import spark.route.HttpMethod;
+import spark.route.RouteLookup;
 import spark.route.Routes;
 
 import javax.servlet.http.HttpServletRequest;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 
 /**
  * Holds the parameters needed in the Before filters, Routes and After filters execution.
+ * <p>
+ * Each platform thread reuses one context (with its body and wrappers) for all requests it handles, see
+ * {@link #acquire()}. Virtual threads handle a single request each, so they get a new context instead of filling a
+ * thread local that is never read again.
  */
 final class RouteContext {
 
+    private static final ThreadLocal<RouteContext> CONTEXTS = ThreadLocal.withInitial(RouteContext::reusable);
+    private static final MethodHandle IS_VIRTUAL = isVirtualHandle();
+
     private String acceptType;
     private Body body;
     private HttpMethod httpMethod;
@@ -35,12 +46,73 @@ final class RouteContext {
     private Response response;
     private ResponseWrapper responseWrapper;
     private Routes routeMatcher;
+    private RouteLookup routeLookup;
     private String uri;
+    private boolean inUse;
 
     private RouteContext() {
         // hidden
     }
 
+    private static RouteContext reusable() {
+        return new RouteContext()
+                .withBody(Body.create())
+                .withRequestWrapper(RequestWrapper.create())
+                .withResponseWrapper(ResponseWrapper.create());
+    }
+
+    // Thread#isVirtual only exists on Java 21+
+    private static MethodHandle isVirtualHandle() {
+        try {
+            return MethodHandles.publicLookup().findVirtual(Thread.class, "isVirtual", MethodType.methodType(boolean.class));
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static boolean isVirtualThread() {
+        if (IS_VIRTUAL == null) {
+            return false;
+        }
+        try {
+            return (boolean) IS_VIRTUAL.invokeExact(Thread.currentThread());
+        } catch (Throwable t) {
+            return false;
+        }
+    }
+
+    /**
+     * Gets the context of the current thread, with an empty body and wrappers without delegates. If the context of
+     * the thread is already in use (e.g. a nested dispatch) or the thread is virtual a new one is created.
+     *
+     * @return the context, must be given back with {@link #release()}
+     */
+    static RouteContext acquire() {
+        RouteContext context = isVirtualThread() ? reusable() : CONTEXTS.get();
+        if (context.inUse) {
+            context = reusable();
+        }
+        context.inUse = true;
+        return context;
+    }
+
+    /**
+     * Clears all references to the request, so the context can be reused by the next request of the thread.
+     */
+    void release() {
+        body.set(null);
+        requestWrapper.setDelegate(null);
+        responseWrapper.reset();
+        acceptType = null;
+        httpMethod = null;
+        httpRequest = null;
+        response = null;
+        routeMatcher = null;
+        routeLookup = null;
+        uri = null;
+        inUse = false;
+    }
+
     public String acceptType() {
         return acceptType;
     }
@@ -80,6 +152,10 @@ final class RouteContext {
         return routeMatcher;
     }
 
+    public RouteLookup routeLookup() {
+        return routeLookup;
+    }
+
     public String uri() {
         return uri;
     }
@@ -109,6 +185,11 @@ final class RouteContext {
         return this;
     }
 
+    public RouteContext withRouteLookup(RouteLookup routeLookup) {
+        this.routeLookup = routeLookup;
+        return this;
+    }
+
     public RouteContext withRequestWrapper(RequestWrapper requestWrapper) {
         this.requestWrapper = requestWrapper;
         return this;
@@ -31,7 +31,7 @@ final class Routes {
 
         Object content = context.body().get();
 
-        RouteMatch match = context.routeMatcher().find(context.httpMethod(), context.uri(), context.acceptType());
+        RouteMatch match = context.routeLookup().target();
 
         Object target = null;
         if (match != null) {
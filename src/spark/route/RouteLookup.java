@@ -0,0 +1,75 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.route;
+
+import spark.routematch.RouteMatch;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The routes of one request, looked up once against one snapshot of the route table. The filter chains come from the
+ * first route that matches the path, they were resolved when the routes were compiled. If no route matches the path
+ * or a filter only matches some of the paths of that route, the filters are looked up in the tree instead.
+ */
+public final class RouteLookup {
+
+    private final RouteTree snapshot;
+    private final String path;
+    private final String acceptType;
+    private final RouteTree.Lookup lookup;
+    private RouteMatch target;
+    private boolean targetFound;
+
+    RouteLookup(RouteTree snapshot, HttpMethod httpMethod, String path, String acceptType) {
+        this.snapshot = snapshot;
+        this.path = path;
+        this.acceptType = acceptType;
+        this.lookup = snapshot.lookup(httpMethod, path);
+    }
+
+    /**
+     * @return the target for the request (same as {@link Routes#find}) or null if none matches
+     */
+    public RouteMatch target() {
+        if (!targetFound) {
+            RouteTree.Leaf leaf = Routes.findTargetWithGivenAcceptType(snapshot, lookup.leaves, acceptType);
+            target = leaf != null ? lookup.match(leaf, acceptType) : null;
+            targetFound = true;
+        }
+        return target;
+    }
+
+    /**
+     * Gets the filters for the request (same as {@link Routes#findMultiple}).
+     *
+     * @param filterType before, after or afterafter
+     * @return the matching filters in the order they were mapped
+     */
+    public List<RouteMatch> filters(HttpMethod filterType) {
+        RouteTree.Leaf[] chain = lookup.leaves.isEmpty() ? null : lookup.leaves.get(0).filters(filterType);
+        if (chain != null) {
+            if (chain.length == 0) {
+                return Collections.emptyList();
+            }
+            return Routes.findAcceptable(snapshot, lookup, Arrays.asList(chain), acceptType);
+        }
+        RouteTree.Lookup filters = snapshot.lookup(filterType, path);
+        return Routes.findAcceptable(snapshot, filters, filters.leaves, acceptType);
+    }
+}
@@ -0,0 +1,478 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.route;
+
+import spark.routematch.RouteMatch;
+import spark.utils.MimeParse;
+import spark.utils.SparkUtils;
+import spark.utils.urldecoding.UrlDecode;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable snapshot of the route table, compiled into one tree per HTTP method that is keyed by path segment. Static
+ * segments are looked up by hash, ":param" and single "*" segments share one wildcard child and a trailing "*" is
+ * stored at the node of its prefix. A lookup walks the tree once and returns every matching entry in the order it was
+ * mapped, so the Sinatra semantics of {@link Routes} (first mapped wins) and the trailing slash rules of
+ * {@link RouteEntry} are kept.
+ * <p>
+ * Route paths the tree cannot express (e.g. "/foo*") are matched linearly with {@link RouteEntry#matches}.
+ * <p>
+ * A new snapshot is built on every change; readers only ever see a fully built tree and never lock. Each snapshot
+ * also remembers the results of the Accept header negotiation, so they are dropped together with the routes.
+ * <p>
+ * For every route the before, after and afterafter filters that match all of its paths are resolved when the snapshot
+ * is built (see {@link Leaf#filters(HttpMethod)}), so requests to that route run a fixed filter chain.
+ */
+final class RouteTree {
+
+    static final RouteTree EMPTY = new RouteTree(Collections.emptyList());
+
+    private static final int MAX_NEGOTIATIONS = 1024;
+
+    final List<RouteEntry> entries;
+    private final Map<HttpMethod, MethodTree> methods = new EnumMap<>(HttpMethod.class);
+    private final Map<Negotiation, String> negotiations = new ConcurrentHashMap<>();
+
+    private RouteTree(List<RouteEntry> entries) {
+        this.entries = entries;
+        List<Leaf> leaves = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            Leaf leaf = new Leaf(entries.get(i), i);
+            leaves.add(leaf);
+            methods.computeIfAbsent(leaf.entry.httpMethod, m -> new MethodTree()).add(leaf);
+        }
+        for (Leaf leaf : leaves) {
+            if (!isFilter(leaf.entry.httpMethod)) {
+                leaf.before = chain(leaf, HttpMethod.before, leaves);
+                leaf.after = chain(leaf, HttpMethod.after, leaves);
+                leaf.afterAfter = chain(leaf, HttpMethod.afterafter, leaves);
+            }
+        }
+    }
+
+    /**
+     * Compiles a new snapshot.
+     *
+     * @param entries the routes in the order they were mapped
+     * @return the compiled route table
+     */
+    static RouteTree compile(List<RouteEntry> entries) {
+        return new RouteTree(Collections.unmodifiableList(new ArrayList<>(entries)));
+    }
+
+    /**
+     * Finds all routes matching the given method and path.
+     *
+     * @param httpMethod the http method
+     * @param path       the request path
+     * @return the lookup result, holding the matches in the order they were mapped
+     */
+    Lookup lookup(HttpMethod httpMethod, String path) {
+        MethodTree tree = methods.get(httpMethod);
+        if (tree == null) {
+            return new Lookup(path, null, Collections.emptyList());
+        }
+
+        String[] segments = split(path);
+        List<Leaf> leaves = new ArrayList<>(4);
+        leaves.addAll(tree.always);
+        tree.root.collect(segments, 0, path.endsWith("/"), leaves);
+        for (Leaf leaf : tree.fallback) {
+            if (leaf.entry.matches(httpMethod, path)) {
+                leaves.add(leaf);
+            }
+        }
+        if (leaves.size() > 1) {
+            leaves.sort(Comparator.comparingInt(leaf -> leaf.order));
+        }
+        return new Lookup(path, segments, leaves);
+    }
+
+    /**
+     * Negotiates the best of the given accepted types for an Accept header, see {@link MimeParse#bestMatch}. The
+     * result is cached per (accepted types, header) as long as the cache is not full.
+     *
+     * @param supported  the accepted types of the matched routes, in the order they are compared
+     * @param acceptType the Accept header
+     * @return the best match or {@link MimeParse#NO_MIME_TYPE}
+     */
+    String bestMatch(List<String> supported, String acceptType) {
+        Negotiation key = new Negotiation(supported, acceptType);
+        String bestMatch = negotiations.get(key);
+        if (bestMatch == null) {
+            bestMatch = MimeParse.bestMatch(supported, acceptType);
+            if (negotiations.size() < MAX_NEGOTIATIONS) {
+                negotiations.put(key, bestMatch);
+            }
+        }
+        return bestMatch;
+    }
+
+    private static boolean isFilter(HttpMethod httpMethod) {
+        return httpMethod == HttpMethod.before || httpMethod == HttpMethod.after || httpMethod == HttpMethod.afterafter;
+    }
+
+    /**
+     * Resolves the filters of one type that match every path of a route.
+     *
+     * @return the filters in the order they were mapped or null if some filter only matches some of the paths
+     */
+    private static Leaf[] chain(Leaf route, HttpMethod filterType, List<Leaf> leaves) {
+        List<Leaf> chain = new ArrayList<>();
+        for (Leaf filter : leaves) {
+            if (filter.entry.httpMethod != filterType) {
+                continue;
+            }
+            Boolean covers = covers(filter, route);
+            if (covers == null) {
+                return null;
+            }
+            if (covers) {
+                chain.add(filter);
+            }
+        }
+        return chain.toArray(new Leaf[0]);
+    }
+
+    /**
+     * Checks whether a filter matches the paths of a route.
+     *
+     * @return true if it matches all of them, false if it matches none of them and null if it depends on the path
+     */
+    private static Boolean covers(Leaf filter, Leaf route) {
+        if (filter.shape == Shape.ALL) {
+            return Boolean.TRUE;
+        }
+        if (filter.shape == Shape.FALLBACK || route.shape != Shape.EXACT && route.shape != Shape.TAIL) {
+            return null;
+        }
+
+        boolean depends = false;
+        for (int i = 0; i < filter.prefix && i < route.prefix; i++) {
+            String filterPart = filter.parts[i];
+            String routePart = route.parts[i];
+            if (isWildcard(filterPart)) {
+                continue;
+            }
+            if (isWildcard(routePart)) {
+                depends = true;
+            } else if (!filterPart.equals(routePart)) {
+                return Boolean.FALSE;
+            }
+        }
+
+        // Same length rules as Node#collect
+        Boolean length;
+        if (route.shape == Shape.EXACT) {
+            if (filter.shape == Shape.EXACT) {
+                length = filter.prefix == route.prefix && filter.slash == route.slash;
+            } else {
+                length = route.prefix > filter.prefix || (route.prefix == filter.prefix && route.slash);
+            }
+        } else if (filter.shape == Shape.EXACT) {
+            length = filter.prefix < route.prefix ? Boolean.FALSE : null;
+        } else {
+            length = filter.prefix <= route.prefix ? Boolean.TRUE : null;
+        }
+
+        if (Boolean.FALSE.equals(length)) {
+            return Boolean.FALSE;
+        }
+        return depends || length == null ? null : Boolean.TRUE;
+    }
+
+    private static boolean isWildcard(String part) {
+        return SparkUtils.isParam(part) || SparkUtils.isSplat(part);
+    }
+
+    /**
+     * Splits a path into its non empty segments, same as {@link SparkUtils#convertRouteToList(String)}.
+     */
+    static String[] split(String path) {
+        int count = 0;
+        int length = path.length();
+        for (int i = 0; i < length; i++) {
+            if (path.charAt(i) != '/' && (i == 0 || path.charAt(i - 1) == '/')) {
+                count++;
+            }
+        }
+
+        String[] segments = new String[count];
+        int index = 0;
+        int start = -1;
+        for (int i = 0; i <= length; i++) {
+            if (i == length || path.charAt(i) == '/') {
+                if (start >= 0) {
+                    segments[index++] = path.substring(start, i);
+                    start = -1;
+                }
+            } else if (start < 0) {
+                start = i;
+            }
+        }
+        return segments;
+    }
+
+    /**
+     * Result of a lookup.
+     */
+    static final class Lookup {
+
+        final List<Leaf> leaves;
+        private final String path;
+        private final String[] segments;
+
+        private Lookup(String path, String[] segments, List<Leaf> leaves) {
+            this.path = path;
+            this.segments = segments;
+            this.leaves = leaves;
+        }
+
+        /**
+         * Creates the route match for one of the found routes, with the params and splat already extracted.
+         */
+        RouteMatch match(Leaf leaf, String acceptType) {
+            RouteEntry entry = leaf.entry;
+            return new RouteMatch(entry.target, entry.path, path, acceptType, leaf.params(segments), leaf.splat(segments));
+        }
+    }
+
+    /**
+     * How a route path is matched.
+     */
+    private enum Shape {
+        /**
+         * Filter mapped to all paths
+         */
+        ALL,
+        /**
+         * Exactly {@code prefix} segments
+         */
+        EXACT,
+        /**
+         * {@code prefix} segments followed by a trailing "*"
+         */
+        TAIL,
+        /**
+         * Not expressible in the tree, matched with {@link RouteEntry#matches}
+         */
+        FALLBACK
+    }
+
+    /**
+     * A compiled route.
+     */
+    static final class Leaf {
+
+        final RouteEntry entry;
+        final int order;
+        final List<String> acceptedTypes;
+        private final String[] parts;
+        private final Shape shape;
+        private final int prefix;
+        private final boolean slash;
+        private final boolean hasParams;
+        private final boolean hasSplat;
+        // Set while building the snapshot, only for routes
+        private Leaf[] before, after, afterAfter;
+
+        private Leaf(RouteEntry entry, int order) {
+            this.entry = entry;
+            this.order = order;
+            this.acceptedTypes = Collections.singletonList(entry.acceptedType);
+            this.parts = split(entry.path);
+
+            String path = entry.path;
+            boolean wildcard = path.endsWith("*");
+            if (isFilter(entry.httpMethod) && path.equals(SparkUtils.ALL_PATHS)) {
+                shape = Shape.ALL;
+            } else if (wildcard && (parts.length == 0 || !SparkUtils.isSplat(parts[parts.length - 1]))) {
+                shape = Shape.FALLBACK;
+            } else {
+                shape = wildcard ? Shape.TAIL : Shape.EXACT;
+            }
+            this.prefix = shape == Shape.TAIL ? parts.length - 1 : parts.length;
+            this.slash = path.endsWith("/");
+
+            boolean params = false;
+            boolean splat = false;
+            for (String part : parts) {
+                params |= SparkUtils.isParam(part);
+                splat |= SparkUtils.isSplat(part);
+            }
+            this.hasParams = params;
+            this.hasSplat = splat;
+        }
+
+        /**
+         * Gets the filters of the given type that match every path of this route.
+         *
+         * @param filterType before, after or afterafter
+         * @return the filters in the order they were mapped or null if they have to be looked up per request
+         */
+        Leaf[] filters(HttpMethod filterType) {
+            switch (filterType) {
+                case before:
+                    return before;
+                case after:
+                    return after;
+                case afterafter:
+                    return afterAfter;
+                default:
+                    return null;
+            }
+        }
+
+        // Same rules as Request#getParams
+        private Map<String, String> params(String[] segments) {
+            if (!hasParams) {
+                return Collections.emptyMap();
+            }
+            Map<String, String> params = new HashMap<>();
+            for (int i = 0; i < segments.length && i < parts.length; i++) {
+                if (SparkUtils.isParam(parts[i])) {
+                    params.put(parts[i].toLowerCase(), UrlDecode.path(segments[i]));
+                }
+            }
+            return Collections.unmodifiableMap(params);
+        }
+
+        // Same rules as Request#getSplat
+        private List<String> splat(String[] segments) {
+            if (!hasSplat) {
+                return Collections.emptyList();
+            }
+            List<String> splat = new ArrayList<>();
+            for (int i = 0; i < segments.length && i < parts.length; i++) {
+                if (SparkUtils.isSplat(parts[i])) {
+                    StringBuilder splatParam = new StringBuilder(segments[i]);
+                    if (segments.length != parts.length && i == parts.length - 1) {
+                        for (int j = i + 1; j < segments.length; j++) {
+                            splatParam.append('/').append(segments[j]);
+                        }
+                    }
+                    try {
+                        splat.add(URLDecoder.decode(splatParam.toString(), "UTF-8"));
+                    } catch (UnsupportedEncodingException e) {
+                        // UTF-8 is always supported
+                    }
+                }
+            }
+            return Collections.unmodifiableList(splat);
+        }
+    }
+
+    private static final class Negotiation {
+
+        private final List<String> supported;
+        private final String acceptType;
+        private final int hash;
+
+        private Negotiation(List<String> supported, String acceptType) {
+            this.supported = supported;
+            this.acceptType = acceptType;
+            this.hash = 31 * supported.hashCode() + acceptType.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Negotiation)) {
+                return false;
+            }
+            Negotiation other = (Negotiation) o;
+            return hash == other.hash && acceptType.equals(other.acceptType) && supported.equals(other.supported);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class MethodTree {
+
+        private final Node root = new Node();
+        private final List<Leaf> always = new ArrayList<>();
+        private final List<Leaf> fallback = new ArrayList<>();
+
+        private void add(Leaf leaf) {
+            if (leaf.shape == Shape.ALL) {
+                // Is filter and matches all
+                always.add(leaf);
+                return;
+            }
+            if (leaf.shape == Shape.FALLBACK) {
+                fallback.add(leaf);
+                return;
+            }
+
+            Node node = root;
+            for (int i = 0; i < leaf.prefix; i++) {
+                node = node.child(leaf.parts[i]);
+            }
+            if (leaf.shape == Shape.TAIL) {
+                node.splats.add(leaf);
+            } else if (leaf.slash) {
+                node.withSlash.add(leaf);
+            } else {
+                node.withoutSlash.add(leaf);
+            }
+        }
+    }
+
+    private static final class Node {
+
+        private final Map<String, Node> statics = new HashMap<>();
+        private final List<Leaf> withSlash = new ArrayList<>();
+        private final List<Leaf> withoutSlash = new ArrayList<>();
+        private final List<Leaf> splats = new ArrayList<>();
+        private Node wildcard;
+
+        private Node child(String part) {
+            if (isWildcard(part)) {
+                if (wildcard == null) {
+                    wildcard = new Node();
+                }
+                return wildcard;
+            }
+            return statics.computeIfAbsent(part, p -> new Node());
+        }
+
+        private void collect(String[] segments, int depth, boolean trailingSlash, List<Leaf> result) {
+            int remaining = segments.length - depth;
+            // A trailing "*" needs at least one more segment, or the request path ends with a slash
+            if (!splats.isEmpty() && (remaining > 0 || trailingSlash)) {
+                result.addAll(splats);
+            }
+            if (remaining == 0) {
+                result.addAll(trailingSlash ? withSlash : withoutSlash);
+                return;
+            }
+            Node next = statics.get(segments[depth]);
+            if (next != null) {
+                next.collect(segments, depth + 1, trailingSlash, result);
+            }
+            if (wildcard != null) {
+                wildcard.collect(segments, depth + 1, trailingSlash, result);
+            }
+        }
+    }
+}
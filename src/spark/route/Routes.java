@@ -27,6 +27,9 @@ import java.util.*;
 /**
  * Holds the routes and performs matching from HTTP requests to routes. Works as Sinatra's, ie. if there are more than
  * one match the one that was mapped first is chosen.
+ * <p>
+ * The routes are compiled into a {@link RouteTree} whenever they change. Changes replace the whole tree (copy on
+ * write), so matching never locks and always sees a consistent route table.
  *
  * @author Per Wendel
  */
@@ -35,13 +38,12 @@ public class Routes {
     private static final org.slf4j.Logger LOG = org.slf4j.LoggerFactory.getLogger(Routes.class);
     private static final char SINGLE_QUOTE = '\'';
 
-    private List<RouteEntry> routes;
+    private volatile RouteTree tree = RouteTree.EMPTY;
 
     /**
      * Constructor
      */
     protected Routes() {
-        routes = new ArrayList<>();
     }
 
     /**
@@ -72,7 +74,11 @@ public class Routes {
         entry.acceptedType = acceptedType;
         LOG.debug("Adds route: " + entry);
         // Adds to end of list
-        routes.add(entry);
+        synchronized (this) {
+            List<RouteEntry> routes = new ArrayList<>(tree.entries);
+            routes.add(entry);
+            tree = RouteTree.compile(routes);
+        }
     }
 
     /**
@@ -110,8 +116,8 @@ public class Routes {
     /**
      * ¨Clear all routes
      */
-    public void clear() {
-        routes.clear();
+    public synchronized void clear() {
+        tree = RouteTree.EMPTY;
     }
 
     public static Routes create() {
@@ -127,9 +133,20 @@ public class Routes {
      * @return the target
      */
     public RouteMatch find(HttpMethod httpMethod, String path, String acceptType) {
-        List<RouteEntry> routeEntries = this.findTargetsForRequestedRoute(httpMethod, path);
-        RouteEntry entry = findTargetWithGivenAcceptType(routeEntries, acceptType);
-        return entry != null ? new RouteMatch(entry.target, entry.path, path, acceptType) : null;
+        return lookup(httpMethod, path, acceptType).target();
+    }
+
+    /**
+     * Looks up a request once. The result gives the target and the filter chains of the request, the filter chains
+     * are precomputed per route.
+     *
+     * @param httpMethod the http method
+     * @param path       the path
+     * @param acceptType the accept type
+     * @return the lookup
+     */
+    public RouteLookup lookup(HttpMethod httpMethod, String path, String acceptType) {
+        return new RouteLookup(tree, httpMethod, path, acceptType);
     }
 
     /**
@@ -141,33 +158,46 @@ public class Routes {
      * @return the targets
      */
     public List<RouteMatch> findMultiple(HttpMethod httpMethod, String path, String acceptType) {
-        List<RouteMatch> matchSet = new ArrayList<>();
-        List<RouteEntry> routeEntries = findTargetsForRequestedRoute(httpMethod, path);
+        RouteTree snapshot = tree;
+        RouteTree.Lookup lookup = snapshot.lookup(httpMethod, path);
+        return findAcceptable(snapshot, lookup, lookup.leaves, acceptType);
+    }
+
+    //////////////////////////////////////////////////
+    // PRIVATE METHODS
+    //////////////////////////////////////////////////
+
+    static List<RouteMatch> findAcceptable(RouteTree snapshot, RouteTree.Lookup lookup,
+                                           Collection<RouteTree.Leaf> leaves, String acceptType) {
+        List<RouteMatch> matchSet = new ArrayList<>(leaves.size());
 
-        for (RouteEntry routeEntry : routeEntries) {
+        for (RouteTree.Leaf leaf : leaves) {
             if (acceptType != null) {
-                String bestMatch = MimeParse.bestMatch(Arrays.asList(routeEntry.acceptedType), acceptType);
+                String bestMatch = snapshot.bestMatch(leaf.acceptedTypes, acceptType);
 
                 if (routeWithGivenAcceptType(bestMatch)) {
-                    matchSet.add(new RouteMatch(routeEntry.target, routeEntry.path, path, acceptType));
+                    matchSet.add(lookup.match(leaf, acceptType));
                 }
             } else {
-                matchSet.add(new RouteMatch(routeEntry.target, routeEntry.path, path, acceptType));
+                matchSet.add(lookup.match(leaf, acceptType));
             }
         }
 
         return matchSet;
     }
 
-    //////////////////////////////////////////////////
-    // PRIVATE METHODS
-    //////////////////////////////////////////////////
-
-    // TODO: I believe this feature has impacted performance. Optimization?
-    private RouteEntry findTargetWithGivenAcceptType(List<RouteEntry> routeMatches, String acceptType) {
+    // The negotiation is cached per snapshot, see RouteTree#bestMatch
+    static RouteTree.Leaf findTargetWithGivenAcceptType(RouteTree snapshot, List<RouteTree.Leaf> routeMatches,
+                                                         String acceptType) {
         if (acceptType != null && routeMatches.size() > 0) {
-            Map<String, RouteEntry> acceptedMimeTypes = getAcceptedMimeTypes(routeMatches);
-            String bestMatch = MimeParse.bestMatch(acceptedMimeTypes.keySet(), acceptType);
+            RouteTree.Leaf first = routeMatches.get(0);
+            if (haveSameAcceptedType(routeMatches)) {
+                // Only one candidate, no need for the map
+                return routeWithGivenAcceptType(snapshot.bestMatch(first.acceptedTypes, acceptType)) ? first : null;
+            }
+
+            Map<String, RouteTree.Leaf> acceptedMimeTypes = getAcceptedMimeTypes(routeMatches);
+            String bestMatch = snapshot.bestMatch(new ArrayList<>(acceptedMimeTypes.keySet()), acceptType);
 
             if (routeWithGivenAcceptType(bestMatch)) {
                 return acceptedMimeTypes.get(bestMatch);
@@ -183,23 +213,22 @@ public class Routes {
         return null;
     }
 
-    private List<RouteEntry> findTargetsForRequestedRoute(HttpMethod httpMethod, String path) {
-        List<RouteEntry> matchSet = new ArrayList<RouteEntry>();
-        for (RouteEntry entry : routes) {
-            if (entry.matches(httpMethod, path)) {
-                matchSet.add(entry);
+    private static boolean haveSameAcceptedType(List<RouteTree.Leaf> routes) {
+        String acceptedType = routes.get(0).entry.acceptedType;
+        for (int i = 1; i < routes.size(); i++) {
+            if (!Objects.equals(acceptedType, routes.get(i).entry.acceptedType)) {
+                return false;
             }
         }
-        return matchSet;
+        return true;
     }
 
-    //can be cached? I don't think so.
-    private Map<String, RouteEntry> getAcceptedMimeTypes(List<RouteEntry> routes) {
-        Map<String, RouteEntry> acceptedTypes = new HashMap<>();
+    private static Map<String, RouteTree.Leaf> getAcceptedMimeTypes(List<RouteTree.Leaf> routes) {
+        Map<String, RouteTree.Leaf> acceptedTypes = new HashMap<>();
 
-        for (RouteEntry routeEntry : routes) {
-            if (!acceptedTypes.containsKey(routeEntry.acceptedType)) {
-                acceptedTypes.put(routeEntry.acceptedType, routeEntry);
+        for (RouteTree.Leaf leaf : routes) {
+            if (!acceptedTypes.containsKey(leaf.entry.acceptedType)) {
+                acceptedTypes.put(leaf.entry.acceptedType, leaf);
             }
         }
 
@@ -249,7 +278,8 @@ public class Routes {
         return removeRoute((HttpMethod) null, path);
     }
 
-    private boolean removeRoute(HttpMethod httpMethod, String path) {
+    private synchronized boolean removeRoute(HttpMethod httpMethod, String path) {
+        List<RouteEntry> routes = new ArrayList<>(tree.entries);
         List<RouteEntry> forRemoval = new ArrayList<>();
 
         for (RouteEntry routeEntry : routes) {
@@ -267,10 +297,14 @@ public class Routes {
             }
         }
 
-        return routes.removeAll(forRemoval);
+        if (!routes.removeAll(forRemoval)) {
+            return false;
+        }
+        tree = RouteTree.compile(routes);
+        return true;
     }
 
-    private boolean routeWithGivenAcceptType(String bestMatch) {
+    private static boolean routeWithGivenAcceptType(String bestMatch) {
         return !MimeParse.NO_MIME_TYPE.equals(bestMatch);
     }
 }
@@ -16,6 +16,9 @@
  */
 package spark.routematch;
 
+import java.util.List;
+import java.util.Map;
+
 /**
  * @author Per Wendel
  */
@@ -25,6 +28,8 @@ public class RouteMatch {
     private String matchUri;
     private String requestURI;
     private Object target;
+    private Map<String, String> params;
+    private List<String> splat;
 
     public RouteMatch(Object target, String matchUri, String requestUri, String acceptType) {
         super();
@@ -34,6 +39,23 @@ public class RouteMatch {
         this.acceptType = acceptType;
     }
 
+    /**
+     * Constructor used by the compiled route table, which extracts params and splat while matching.
+     *
+     * @param target     the target
+     * @param matchUri   the matched route path
+     * @param requestUri the request uri
+     * @param acceptType the accept type
+     * @param params     the already extracted route params
+     * @param splat      the already extracted splat
+     */
+    public RouteMatch(Object target, String matchUri, String requestUri, String acceptType,
+                      Map<String, String> params, List<String> splat) {
+        this(target, matchUri, requestUri, acceptType);
+        this.params = params;
+        this.splat = splat;
+    }
+
     /**
      * @return the accept type
      */
@@ -62,5 +84,19 @@ public class RouteMatch {
         return target;
     }
 
+    /**
+     * @return the extracted route params or null if they have not been extracted while matching
+     */
+    public Map<String, String> getParams() {
+        return params;
+    }
+
+    /**
+     * @return the extracted splat or null if it has not been extracted while matching
+     */
+    public List<String> getSplat() {
+        return splat;
+    }
+
 
 }
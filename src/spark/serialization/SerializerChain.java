@@ -39,7 +39,10 @@ public final class SerializerChain {
         BytesSerializer bytesSerializer = new BytesSerializer();
         bytesSerializer.setNext(inputStreamSerializer);
 
-        this.root = bytesSerializer;
+        StreamingBodySerializer streamingBodySerializer = new StreamingBodySerializer();
+        streamingBodySerializer.setNext(bytesSerializer);
+
+        this.root = streamingBodySerializer;
     }
 
     /**
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2015 - Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.serialization;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A response body that writes itself directly to the response output stream instead of being materialized in memory
+ * first. Routes can return an instance to stream large results (e.g. rows from a database cursor).
+ * <p>
+ * Note that {@link #writeTo(OutputStream)} is called after the route has returned, so errors that should result in a
+ * proper status code must be detected before returning the body.
+ */
+@FunctionalInterface
+public interface StreamingBody {
+
+    /**
+     * Writes the body to the given output stream. The stream must not be closed.
+     *
+     * @param outputStream the output stream (possibly gzip-wrapped).
+     * @throws IOException in the case of IO error.
+     */
+    void writeTo(OutputStream outputStream) throws IOException;
+
+}
@@ -29,30 +29,45 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Holds the static file configuration. TODO: ETAG ?
+ * <p>
+ * Configuration changes are guarded by a {@link ReentrantLock} instead of a monitor (a virtual thread doing file I/O
+ * while holding a monitor pins its carrier thread). The handler list is replaced on every change (copy on write), so
+ * {@link #consume} never takes the lock.
  */
 public class StaticFilesConfiguration {
     public static StaticFilesConfiguration servletInstance = new StaticFilesConfiguration();
     private final Logger LOG = LoggerFactory.getLogger(StaticFilesConfiguration.class);
+    private final ReentrantLock lock = new ReentrantLock();
     private Map<String, String> customHeaders = new HashMap<>();
-    private boolean externalStaticResourcesSet = false;
-    private List<AbstractResourceHandler> staticResourceHandlers = null;
-    private boolean staticResourcesSet = false;
+    private volatile boolean externalStaticResourcesSet = false;
+    private volatile List<AbstractResourceHandler> staticResourceHandlers = null;
+    private volatile boolean staticResourcesSet = false;
 
     /**
      * Clears all static file configuration
      */
     public void clear() {
-
-        if (staticResourceHandlers != null) {
-            staticResourceHandlers.clear();
+        lock.lock();
+        try {
             staticResourceHandlers = null;
+            staticResourcesSet = false;
+            externalStaticResourcesSet = false;
+        } finally {
+            lock.unlock();
         }
+    }
 
-        staticResourcesSet = false;
-        externalStaticResourcesSet = false;
+    private void addHandler(AbstractResourceHandler handler) {
+        List<AbstractResourceHandler> handlers = new ArrayList<>();
+        if (staticResourceHandlers != null) {
+            handlers.addAll(staticResourceHandlers);
+        }
+        handlers.add(handler);
+        staticResourceHandlers = Collections.unmodifiableList(handlers);
     }
 
     /**
@@ -60,18 +75,18 @@ public class StaticFilesConfiguration {
      *
      * @param folder the location
      */
-    public synchronized void configure(String folder) {
+    public void configure(String folder) {
         Assert.notNull(folder, "'folder' must not be null");
 
-        if (!staticResourcesSet) {
-
-            if (staticResourceHandlers == null) {
-                staticResourceHandlers = new ArrayList<>();
+        lock.lock();
+        try {
+            if (!staticResourcesSet) {
+                addHandler(new ClassPathResourceHandler(folder, "index.html"));
+                LOG.info("StaticResourceHandler configured with folder = " + folder);
+                staticResourcesSet = true;
             }
-
-            staticResourceHandlers.add(new ClassPathResourceHandler(folder, "index.html"));
-            LOG.info("StaticResourceHandler configured with folder = " + folder);
-            staticResourcesSet = true;
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -80,27 +95,29 @@ public class StaticFilesConfiguration {
      *
      * @param folder the location
      */
-    public synchronized void configureExternal(String folder) {
+    public void configureExternal(String folder) {
         Assert.notNull(folder, "'folder' must not be null");
 
-        if (!externalStaticResourcesSet) {
-            try {
-                ExternalResource resource = new ExternalResource(folder);
-                if (!resource.getFile().isDirectory()) {
-                    LOG.error("External Static resource location must be a folder");
-                    return;
-                }
+        lock.lock();
+        try {
+            if (!externalStaticResourcesSet) {
+                try {
+                    ExternalResource resource = new ExternalResource(folder);
+                    if (!resource.getFile().isDirectory()) {
+                        LOG.error("External Static resource location must be a folder");
+                        return;
+                    }
 
-                if (staticResourceHandlers == null) {
-                    staticResourceHandlers = new ArrayList<>();
+                    addHandler(new ExternalResourceHandler(folder, "index.html"));
+                    LOG.info("External StaticResourceHandler configured with folder = " + folder);
+                } catch (IOException e) {
+                    LOG.error("Error when creating external StaticResourceHandler", e);
                 }
-                staticResourceHandlers.add(new ExternalResourceHandler(folder, "index.html"));
-                LOG.info("External StaticResourceHandler configured with folder = " + folder);
-            } catch (IOException e) {
-                LOG.error("Error when creating external StaticResourceHandler", e);
-            }
 
-            externalStaticResourcesSet = true;
+                externalStaticResourcesSet = true;
+            }
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -131,6 +148,7 @@ public class StaticFilesConfiguration {
 
     private boolean consumeWithFileResourceHandlers(HttpServletRequest httpRequest,
                                                     HttpServletResponse httpResponse) throws IOException {
+        List<AbstractResourceHandler> staticResourceHandlers = this.staticResourceHandlers;
         if (staticResourceHandlers != null) {
 
             for (AbstractResourceHandler staticResourceHandler : staticResourceHandlers) {
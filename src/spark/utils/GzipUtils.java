@@ -32,6 +32,12 @@ import java.util.zip.GZIPOutputStream;
  */
 public class GzipUtils {
 
+    /**
+     * Request attribute that marks a response body as already gzip-compressed by the route. If set, the output stream
+     * is never wrapped, even if the route set a {@code Content-Encoding: gzip} header.
+     */
+    public static final String PRE_COMPRESSED = "spark.gzip.preCompressed";
+
     private static final String ACCEPT_ENCODING = "Accept-Encoding";
     private static final String CONTENT_ENCODING = "Content-Encoding";
 
@@ -67,6 +73,10 @@ public class GzipUtils {
             IOException {
         OutputStream responseStream = httpResponse.getOutputStream();
 
+        if (httpRequest.getAttribute(PRE_COMPRESSED) != null) {
+            return responseStream;
+        }
+
         // GZIP Support handled here. First we must ensure that we want to use gzip, and that the client supports gzip
         boolean acceptsGzip = Collections.list(httpRequest.getHeaders(ACCEPT_ENCODING)).stream().anyMatch(STRING_MATCH);
         boolean wantGzip = httpResponse.getHeaders(CONTENT_ENCODING).contains(GZIP);
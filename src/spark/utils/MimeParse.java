@@ -1,9 +1,13 @@
 package spark.utils;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * MIME-Type Parser
+ * <p>
+ * Parsed Accept headers and mime types are cached, clients only send a handful of distinct headers. The caches are
+ * bounded, values beyond the bound are parsed on every call.
  */
 public class MimeParse {
 
@@ -12,6 +16,10 @@ public class MimeParse {
      */
     public static final String NO_MIME_TYPE = "";
 
+    private static final int MAX_CACHED = 256;
+    private static final Map<String, List<ParseResults>> parsedHeaders = new ConcurrentHashMap<>();
+    private static final Map<String, ParseResults> parsedTypes = new ConcurrentHashMap<>();
+
     private MimeParse() {
     }
 
@@ -23,23 +31,40 @@ public class MimeParse {
      * @return the best match
      */
     public static String bestMatch(Collection<String> supported, String header) {
-        List<ParseResults> parseResults = new LinkedList<>();
-        List<FitnessAndQuality> weightedMatches = new LinkedList<>();
-        for (String r : header.split(",")) {
-            parseResults.add(parseMediaRange(r));
-        }
+        List<ParseResults> parseResults = parseHeader(header);
 
+        // Same as sorting ascending and taking the last one: later types win on equal fitness and quality
+        FitnessAndQuality lastOne = null;
         for (String s : supported) {
             FitnessAndQuality fitnessAndQuality = fitnessAndQualityParsed(s, parseResults);
             fitnessAndQuality.mimeType = s;
-            weightedMatches.add(fitnessAndQuality);
+            if (lastOne == null || fitnessAndQuality.compareTo(lastOne) >= 0) {
+                lastOne = fitnessAndQuality;
+            }
         }
-        Collections.sort(weightedMatches);
 
-        FitnessAndQuality lastOne = weightedMatches.get(weightedMatches.size() - 1);
         return Float.compare(lastOne.quality, 0) != 0 ? lastOne.mimeType : NO_MIME_TYPE;
     }
 
+    /**
+     * Parses all media ranges of an Accept header, cached per distinct header.
+     */
+    private static List<ParseResults> parseHeader(String header) {
+        List<ParseResults> parseResults = parsedHeaders.get(header);
+        if (parseResults == null) {
+            String[] ranges = header.split(",");
+            parseResults = new ArrayList<>(ranges.length);
+            for (String r : ranges) {
+                parseResults.add(parseMediaRange(r));
+            }
+            parseResults = Collections.unmodifiableList(parseResults);
+            if (parsedHeaders.size() < MAX_CACHED) {
+                parsedHeaders.put(header, parseResults);
+            }
+        }
+        return parseResults;
+    }
+
     /**
      * Find the best match for a given mimeType against a list of media_ranges that have already been parsed by
      * MimeParse.parseMediaRange(). Returns a tuple of the fitness value and the value of the 'q' quality parameter of
@@ -52,7 +77,13 @@ public class MimeParse {
     private static FitnessAndQuality fitnessAndQualityParsed(String mimeType, Collection<ParseResults> parsedRanges) {
         int bestFitness = -1;
         float bestFitQ = 0;
-        ParseResults target = parseMediaRange(mimeType);
+        ParseResults target = parsedTypes.get(mimeType);
+        if (target == null) {
+            target = parseMediaRange(mimeType);
+            if (parsedTypes.size() < MAX_CACHED) {
+                parsedTypes.put(mimeType, target);
+            }
+        }
 
         for (ParseResults range : parsedRanges) {
             if ((target.type.equals(range.type) || range.type.equals("*") || target.type.equals("*"))
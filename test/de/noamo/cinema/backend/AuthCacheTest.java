@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) DHBW Mannheim - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ * Written by Noah Hoelterhoff <noah.hoelterhoff@gmail.com>, 10 2026
+ */
+
+package de.noamo.cinema.backend;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class AuthCacheTest {
+
+    @Test
+    void invalidateBenutzer() {
+        AuthCache.put("a1", 1, 0, 1, AuthCache.stamp());
+        AuthCache.put("a2", 1, 0, 1, AuthCache.stamp());
+        AuthCache.put("b1", 2, 0, 1, AuthCache.stamp());
+
+        AuthCache.invalidateBenutzer(1);
+        Assertions.assertNull(AuthCache.get("a1"));
+        Assertions.assertNull(AuthCache.get("a2"));
+        Assertions.assertNotNull(AuthCache.get("b1"));
+    }
+
+    @Test
+    void stalePutIsDropped() {
+        // Konto wurde gelesen, dann (z.B. durch kontoDeaktivieren) invalidiert, erst danach kommt das Ergebnis an
+        long stamp = AuthCache.stamp();
+        AuthCache.invalidateBenutzer(3);
+        AuthCache.Konto konto = AuthCache.put("c1", 3, 0, 1, stamp);
+        Assertions.assertEquals(3, konto.benutzerid);
+        Assertions.assertNull(AuthCache.get("c1"));
+
+        // Nach der Invalidierung gelesene Daten werden wieder aufgenommen
+        AuthCache.put("c1", 3, 0, 2, AuthCache.stamp());
+        Assertions.assertEquals(2, AuthCache.get("c1").aktiv);
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) DHBW Mannheim - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ * Written by Noah Hoelterhoff <noah.hoelterhoff@gmail.com>, 10 2026
+ */
+
+package de.noamo.cinema.backend;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class CircuitBreakerTest {
+
+    @Test
+    void opensAndRecovers() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker("test", 3, 200);
+        AtomicInteger aufrufe = new AtomicInteger();
+        CircuitBreaker.Call<String> fehler = () -> {
+            aufrufe.incrementAndGet();
+            throw new IOException("Timeout");
+        };
+
+        for (int i = 0; i < 3; i++) Assertions.assertThrows(IOException.class, () -> breaker.call(fehler));
+        Assertions.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        // Geöffnet: Der Dienst wird nicht mehr aufgerufen
+        Assertions.assertThrows(CircuitBreaker.OpenException.class, () -> breaker.call(fehler));
+        Assertions.assertEquals(3, aufrufe.get());
+
+        // Nach der Wartezeit schließt ein erfolgreicher Probeaufruf den Schalter wieder
+        Thread.sleep(250);
+        Assertions.assertEquals("ok", breaker.call(() -> "ok"));
+        Assertions.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void failedProbeReopens() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker("test", 1, 100);
+        Assertions.assertThrows(IOException.class, () -> breaker.call(() -> {
+            throw new IOException("Fehler");
+        }));
+        Thread.sleep(150);
+        Assertions.assertThrows(IOException.class, () -> breaker.call(() -> {
+            throw new IOException("Fehler");
+        }));
+        Assertions.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        Assertions.assertThrows(CircuitBreaker.OpenException.class, () -> breaker.call(() -> "ok"));
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) DHBW Mannheim - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ * Written by Noah Hoelterhoff <noah.hoelterhoff@gmail.com>, 10 2026
+ */
+
+package de.noamo.cinema.backend;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class LoadingCacheTest {
+
+    @Test
+    void singleFlight() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        LoadingCache<Integer, String> cache = new LoadingCache<>("test", 60000, k -> {
+            loads.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new SQLException(e);
+            }
+            return "wert" + k;
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        Future<?>[] futures = new Future<?>[8];
+        for (int i = 0; i < futures.length; i++) futures[i] = executor.submit(() -> cache.get(1));
+        Thread.sleep(200);
+        release.countDown();
+        for (Future<?> future : futures) Assertions.assertEquals("wert1", future.get(5, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        Assertions.assertEquals(1, loads.get());
+    }
+
+    @Test
+    void staleWhileRefresh() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        LoadingCache<Integer, Integer> cache = new LoadingCache<>("test", 50, k -> loads.incrementAndGet());
+        Assertions.assertEquals(1, cache.get(0));
+
+        // Abgelaufener Wert wird weiter ausgeliefert, während im Hintergrund neu geladen wird
+        Thread.sleep(100);
+        Assertions.assertEquals(1, cache.get(0));
+        for (int i = 0; i < 50 && loads.get() < 2; i++) Thread.sleep(20);
+        Thread.sleep(20);
+        Assertions.assertEquals(2, cache.get(0));
+    }
+
+    @Test
+    void invalidate() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        LoadingCache<Integer, Integer> cache = new LoadingCache<>("test", 60000, k -> loads.incrementAndGet());
+        Assertions.assertEquals(1, cache.get(0));
+        Assertions.assertEquals(1, cache.get(0));
+        cache.invalidate(0);
+        Assertions.assertEquals(2, cache.get(0));
+        cache.invalidateAll();
+        Assertions.assertEquals(3, cache.get(0));
+    }
+
+    @Test
+    void failedLoadIsNotCached() {
+        AtomicInteger loads = new AtomicInteger();
+        LoadingCache<Integer, Integer> cache = new LoadingCache<>("test", 60000, k -> {
+            if (loads.incrementAndGet() == 1) throw new SQLException("Datenbank nicht erreichbar");
+            return loads.get();
+        });
+        Assertions.assertThrows(SQLException.class, () -> cache.get(0));
+        Assertions.assertDoesNotThrow(() -> Assertions.assertEquals(2, cache.get(0)));
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) DHBW Mannheim - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ * Written by Noah Hoelterhoff <noah.hoelterhoff@gmail.com>, 10 2026
+ */
+
+package de.noamo.cinema.backend;
+
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+class LogShipperTest {
+
+    @Test
+    void coalescesAndBatches() throws Exception {
+        List<String> bodies = new CopyOnWriteArrayList<>();
+        List<Long> zeitpunkte = new CopyOnWriteArrayList<>();
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/hook", exchange -> {
+            try (InputStream in = exchange.getRequestBody()) {
+                bodies.add(JsonParser.parseString(new String(readAll(in), StandardCharsets.UTF_8)).getAsJsonObject().get("content").getAsString());
+            }
+            zeitpunkte.add(System.currentTimeMillis());
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        });
+        server.start();
+        try {
+            // Thread erst nach dem Einreihen starten, damit nicht schon die erste Meldung allein gesendet wird
+            LogShipper shipper = new LogShipper("http://localhost:" + server.getAddress().getPort() + "/hook", 3, 2, 200, false);
+            for (int i = 0; i < 50; i++) shipper.offer("Datenbank nicht erreichbar");
+            shipper.offer("Fehler \"B\"");
+            shipper.offer("Fehler C");
+            shipper.offer("Fehler D"); // Puffer voll
+            shipper.start();
+            shipper.shutdown(5000);
+
+            String alles = String.join("\n", bodies);
+            Assertions.assertTrue(alles.contains("Datenbank nicht erreichbar (50x)"), alles);
+            Assertions.assertTrue(alles.contains("Fehler \"B\""), alles);
+            Assertions.assertTrue(alles.contains("Fehler C"), alles);
+            Assertions.assertFalse(alles.contains("Fehler D"), alles);
+            Assertions.assertTrue(alles.contains("1 weitere Fehler verworfen"), alles);
+            Assertions.assertTrue(bodies.size() <= 3, "Anfragen: " + bodies.size());
+            for (int i = 1; i < zeitpunkte.size(); i++)
+                Assertions.assertTrue(zeitpunkte.get(i) - zeitpunkte.get(i - 1) >= 150, "Intervall nicht eingehalten");
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void offerDoesNotBlock() throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/hook", exchange -> {
+            try {
+                Thread.sleep(2000); // Langsamer WebHook
+            } catch (InterruptedException ignored) {
+            }
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        });
+        server.start();
+        try {
+            LogShipper shipper = new LogShipper("http://localhost:" + server.getAddress().getPort() + "/hook", 10, 5, 0);
+            long start = System.currentTimeMillis();
+            for (int i = 0; i < 1000; i++) shipper.offer("Fehler " + i);
+            Assertions.assertTrue(System.currentTimeMillis() - start < 500);
+            Assertions.assertFalse(shipper.getStats().contains("dropped=0,"), shipper.getStats());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private static byte[] readAll(InputStream pIn) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int n;
+        while ((n = pIn.read(buffer)) > 0) out.write(buffer, 0, n);
+        return out.toByteArray();
+    }
+}
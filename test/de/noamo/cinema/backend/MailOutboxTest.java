@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) DHBW Mannheim - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ * Written by Noah Hoelterhoff <noah.hoelterhoff@gmail.com>, 10 2026
+ */
+
+package de.noamo.cinema.backend;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class MailOutboxTest {
+
+    @Test
+    void reusesConnections() throws Exception {
+        try (FakeSmtpServer server = new FakeSmtpServer(0)) {
+            MailOutbox outbox = new MailOutbox("localhost", server.getPort(), null, null, "kino@example.com", false,
+                    2, 100, 3, 50);
+            for (int i = 0; i < 20; i++)
+                Assertions.assertTrue(outbox.submit(new MailOutbox.OutgoingMail("Test", "test" + i + "@example.com", "Betreff", "<p>Hallo</p>")));
+            Assertions.assertTrue(outbox.shutdown(10000));
+
+            Assertions.assertEquals(20, server.messages.size());
+            Assertions.assertTrue(server.connections.get() <= 2, "Verbindungen: " + server.connections.get());
+            Assertions.assertTrue(server.messages.get(0).contains("<p>Hallo</p>"));
+        }
+    }
+
+    @Test
+    void retriesTemporaryFailures() throws Exception {
+        try (FakeSmtpServer server = new FakeSmtpServer(2)) {
+            MailOutbox outbox = new MailOutbox("localhost", server.getPort(), null, null, "kino@example.com", false,
+                    1, 100, 3, 50);
+            List<MailOutbox.Ergebnis> results = new CopyOnWriteArrayList<>();
+            Assertions.assertTrue(outbox.submit(new MailOutbox.OutgoingMail("Test", "test@example.com", "Betreff", "<p>Hallo</p>", results::add)));
+            Assertions.assertTrue(outbox.shutdown(10000));
+
+            Assertions.assertEquals(1, server.messages.size());
+            Assertions.assertEquals(Collections.singletonList(MailOutbox.Ergebnis.GESENDET), results);
+            Assertions.assertTrue(outbox.getStats().contains("retried=2"), outbox.getStats());
+        }
+    }
+
+    @Test
+    void reportsPermanentFailures() throws Exception {
+        try (FakeSmtpServer server = new FakeSmtpServer(1, "550 Postfach existiert nicht")) {
+            MailOutbox outbox = new MailOutbox("localhost", server.getPort(), null, null, "kino@example.com", false,
+                    1, 100, 3, 50);
+            List<MailOutbox.Ergebnis> results = new CopyOnWriteArrayList<>();
+            Assertions.assertTrue(outbox.submit(new MailOutbox.OutgoingMail("Test", "test@example.com", "Betreff", "<p>Hallo</p>", results::add)));
+            Assertions.assertTrue(outbox.shutdown(10000));
+
+            // Keine Wiederholung, der Empfänger kann die Email nie erhalten
+            Assertions.assertEquals(Collections.singletonList(MailOutbox.Ergebnis.DAUERHAFT_FEHLGESCHLAGEN), results);
+            Assertions.assertTrue(outbox.getStats().contains("retried=0"), outbox.getStats());
+        }
+    }
+
+    @Test
+    void survivesUnexpectedErrors() throws Exception {
+        try (FakeSmtpServer server = new FakeSmtpServer(0)) {
+            MailOutbox outbox = new MailOutbox("localhost", server.getPort(), null, null, "kino@example.com", false,
+                    1, 100, 2, 50);
+            List<MailOutbox.Ergebnis> results = new CopyOnWriteArrayList<>();
+            // Ohne Inhalt scheitert jeder Versuch mit einer RuntimeException
+            Assertions.assertTrue(outbox.submit(new MailOutbox.OutgoingMail("Test", "kaputt@example.com", "Betreff", null, results::add)));
+            Assertions.assertTrue(outbox.submit(new MailOutbox.OutgoingMail("Test", "test@example.com", "Betreff", "<p>Hallo</p>", results::add)));
+            Assertions.assertTrue(outbox.shutdown(10000));
+
+            Assertions.assertEquals(1, server.messages.size());
+            Assertions.assertEquals(2, results.size());
+            Assertions.assertTrue(results.contains(MailOutbox.Ergebnis.GESENDET) && results.contains(MailOutbox.Ergebnis.FEHLGESCHLAGEN), results.toString());
+        }
+    }
+
+    /**
+     * Ein minimaler SMTP-Server, der Emails nur im Speicher ablegt. Die ersten {@code pFailures} Emails werden mit
+     * einem Fehler (standardmäßig vorübergehend, {@code 451}) abgelehnt.
+     */
+    private static final class FakeSmtpServer implements AutoCloseable {
+        private final ServerSocket serverSocket = new ServerSocket(0);
+        private final List<String> messages = new CopyOnWriteArrayList<>();
+        private final AtomicInteger connections = new AtomicInteger(), failures;
+        private final String fehler;
+
+        private FakeSmtpServer(int pFailures) throws IOException {
+            this(pFailures, "451 Später erneut versuchen");
+        }
+
+        private FakeSmtpServer(int pFailures, String pFehler) throws IOException {
+            failures = new AtomicInteger(pFailures);
+            fehler = pFehler;
+            Thread thread = new Thread(() -> {
+                while (!serverSocket.isClosed()) {
+                    try {
+                        Socket socket = serverSocket.accept();
+                        connections.incrementAndGet();
+                        new Thread(() -> handle(socket)).start();
+                    } catch (IOException ignored) {
+                    }
+                }
+            });
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        private int getPort() {
+            return serverSocket.getLocalPort();
+        }
+
+        private void handle(Socket pSocket) {
+            try (Socket socket = pSocket;
+                 BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                 PrintWriter out = new PrintWriter(socket.getOutputStream(), true)) {
+                out.print("220 localhost\r\n");
+                out.flush();
+                String line;
+                while ((line = in.readLine()) != null) {
+                    String command = line.toUpperCase();
+                    if (command.startsWith("EHLO") || command.startsWith("HELO")) out.print("250 localhost\r\n");
+                    else if (command.startsWith("DATA")) {
+                        out.print("354 Daten senden\r\n");
+                        out.flush();
+                        StringBuilder message = new StringBuilder();
+                        while (!(line = in.readLine()).equals(".")) message.append(line).append('\n');
+                        if (failures.getAndDecrement() > 0) out.print(fehler + "\r\n");
+                        else {
+                            messages.add(message.toString());
+                            out.print("250 OK\r\n");
+                        }
+                    } else if (command.startsWith("QUIT")) {
+                        out.print("221 Tschüss\r\n");
+                        out.flush();
+                        return;
+                    } else out.print("250 OK\r\n");
+                    out.flush();
+                }
+            } catch (IOException ignored) {
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            serverSocket.close();
+        }
+    }
+}
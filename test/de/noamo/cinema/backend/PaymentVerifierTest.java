@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) DHBW Mannheim - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ * Written by Noah Hoelterhoff <noah.hoelterhoff@gmail.com>, 10 2026
+ */
+
+package de.noamo.cinema.backend;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+class PaymentVerifierTest {
+    private final static String EMAIL = "payment-test@noamo.de";
+    private final static String SAAL = "PaymentTest";
+    private final static int[] PLAETZE = {1, 2};
+    private static int benutzerid, filmid, saalid, vorstellungsid;
+
+    @BeforeAll
+    static void setUp() throws SQLException {
+        DataBaseTest.connect();
+        try (Connection connection = DataBase.getConnection()) {
+            cleanUp(connection);
+            benutzerid = insert(connection, "INSERT INTO konten (aktiv, passwort, email, name) VALUES (1, 'x', '" +
+                    EMAIL + "', 'Payment Test')");
+            filmid = insert(connection, "INSERT INTO filme (name, bild_link, hintergrund_bild_link, trailer_youtube, " +
+                    "kurze_beschreibung, beschreibung, fsk, dauer, land, filmstart) VALUES ('PaymentTest', '', '', '', " +
+                    "'', '', 0, 90, 'DE', CURRENT_DATE)");
+            saalid = insert(connection, "INSERT INTO kinosaele (name, width, height) VALUES ('" + SAAL + "', 100, 100)");
+            vorstellungsid = insert(connection, "INSERT INTO vorstellungen (filmid, saalid, basis_preis, " +
+                    "vorstellungsbeginn) VALUES (" + filmid + ", " + saalid + ", 10, NOW())");
+        }
+    }
+
+    @AfterAll
+    static void tearDown() throws SQLException {
+        PaymentVerifier.setClient(PayPal::confirmPayment);
+        try (Connection connection = DataBase.getConnection()) {
+            cleanUp(connection);
+        }
+    }
+
+    @AfterEach
+    void resetClient() {
+        PaymentVerifier.setClient(PayPal::confirmPayment);
+    }
+
+    @Test
+    void bestaetigt() throws SQLException {
+        int bestellnummer = bestellungInPruefung("T-BEZAHLT");
+        PaymentVerifier.setClient((pTransaktion, pBetrag) -> true);
+        PaymentVerifier.verify(bestellnummer, "T-BEZAHLT", 20);
+
+        try (Connection connection = DataBase.getConnection()) {
+            try (ResultSet resultSet = query(connection, "SELECT zahlungsstatus, bezahlt FROM bestellungen " +
+                    "WHERE bestellnummer = " + bestellnummer)) {
+                Assertions.assertTrue(resultSet.next());
+                Assertions.assertEquals(PaymentVerifier.BEZAHLT, resultSet.getInt("zahlungsstatus"));
+                Assertions.assertTrue(resultSet.getBoolean("bezahlt"));
+            }
+            try (ResultSet resultSet = query(connection, "SELECT COUNT(*) FROM mailOutbox WHERE email = '" + EMAIL + "'")) {
+                Assertions.assertTrue(resultSet.next());
+                Assertions.assertEquals(1, resultSet.getInt(1));
+            }
+            Assertions.assertEquals(PLAETZE.length, countPlaetze(connection, bestellnummer));
+        }
+    }
+
+    @Test
+    void abgelehnt() throws SQLException {
+        int bestellnummer = bestellungInPruefung("T-ABGELEHNT");
+        PaymentVerifier.setClient((pTransaktion, pBetrag) -> false);
+        PaymentVerifier.verify(bestellnummer, "T-ABGELEHNT", 20);
+
+        try (Connection connection = DataBase.getConnection()) {
+            Assertions.assertEquals(PaymentVerifier.ABGELEHNT, getStatus(connection, bestellnummer));
+            Assertions.assertEquals(0, countPlaetze(connection, bestellnummer));
+        }
+    }
+
+    @Test
+    void voruebergehenderFehler() throws SQLException {
+        int bestellnummer = bestellungInPruefung("T-FEHLER");
+        PaymentVerifier.setClient((pTransaktion, pBetrag) -> {
+            throw new IOException("PayPal nicht erreichbar");
+        });
+        PaymentVerifier.verify(bestellnummer, "T-FEHLER", 20);
+
+        try (Connection connection = DataBase.getConnection()) {
+            Assertions.assertEquals(PaymentVerifier.PRUEFUNG, getStatus(connection, bestellnummer));
+            Assertions.assertEquals(PLAETZE.length, countPlaetze(connection, bestellnummer));
+        }
+    }
+
+    /**
+     * Legt eine Bestellung im Zustand {@link PaymentVerifier#PRUEFUNG} mit ihren Plätzen an (wie von
+     * {@link DataBase#placeOrder}).
+     */
+    private static int bestellungInPruefung(String pTransaktion) throws SQLException {
+        try (Connection connection = DataBase.getConnection()) {
+            int bestellnummer = insert(connection, "INSERT INTO bestellungen (vorstellungsid, benutzerid, email, anrede, " +
+                    "name, strasse, plz, stadt, preis, zahlungsstatus, paypalTransaktion) VALUES (" + vorstellungsid +
+                    ", " + benutzerid + ", '" + EMAIL + "', 'Herr', 'Payment Test', 'Teststr. 1', 68163, 'Mannheim', 20, " +
+                    PaymentVerifier.PRUEFUNG + ", '" + pTransaktion + "')");
+            for (int platz : PLAETZE) {
+                update(connection, "INSERT INTO bestellungPlaetze (bestellnummer, platzid) VALUES (" + bestellnummer +
+                        ", " + platz + ")");
+                update(connection, "INSERT INTO vorstellungPlaetze (vorstellungsid, platzid, bestellnummer) VALUES (" +
+                        vorstellungsid + ", " + platz + ", " + bestellnummer + ")");
+            }
+            return bestellnummer;
+        }
+    }
+
+    private static int getStatus(Connection pConnection, int pBestellnummer) throws SQLException {
+        try (ResultSet resultSet = query(pConnection, "SELECT zahlungsstatus FROM bestellungen WHERE bestellnummer = " +
+                pBestellnummer)) {
+            Assertions.assertTrue(resultSet.next());
+            return resultSet.getInt("zahlungsstatus");
+        }
+    }
+
+    private static int countPlaetze(Connection pConnection, int pBestellnummer) throws SQLException {
+        try (ResultSet resultSet = query(pConnection, "SELECT COUNT(*) FROM vorstellungPlaetze WHERE bestellnummer = " +
+                pBestellnummer)) {
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+
+    private static void cleanUp(Connection pConnection) throws SQLException {
+        update(pConnection, "DELETE FROM mailOutbox WHERE email = '" + EMAIL + "'");
+        String bestellungen = "SELECT b.bestellnummer FROM bestellungen b JOIN konten k ON b.benutzerid = k.benutzerid " +
+                "WHERE k.email = '" + EMAIL + "'";
+        update(pConnection, "DELETE FROM vorstellungPlaetze WHERE bestellnummer IN (SELECT * FROM (" + bestellungen + ") x)");
+        update(pConnection, "DELETE FROM bestellungPlaetze WHERE bestellnummer IN (SELECT * FROM (" + bestellungen + ") x)");
+        update(pConnection, "DELETE b FROM bestellungen b JOIN konten k ON b.benutzerid = k.benutzerid " +
+                "WHERE k.email = '" + EMAIL + "'");
+        update(pConnection, "DELETE v FROM vorstellungen v JOIN kinosaele s ON v.saalid = s.saalid " +
+                "WHERE s.name = '" + SAAL + "'");
+        update(pConnection, "DELETE FROM kinosaele WHERE name = '" + SAAL + "'");
+        update(pConnection, "DELETE FROM filme WHERE name = 'PaymentTest'");
+        update(pConnection, "DELETE FROM konten WHERE email = '" + EMAIL + "'");
+    }
+
+    private static int insert(Connection pConnection, String pSql) throws SQLException {
+        try (PreparedStatement p = pConnection.prepareStatement(pSql, Statement.RETURN_GENERATED_KEYS)) {
+            p.executeUpdate();
+            try (ResultSet resultSet = p.getGeneratedKeys()) {
+                resultSet.next();
+                return resultSet.getInt(1);
+            }
+        }
+    }
+
+    private static void update(Connection pConnection, String pSql) throws SQLException {
+        try (PreparedStatement p = pConnection.prepareStatement(pSql)) {
+            p.executeUpdate();
+        }
+    }
+
+    private static ResultSet query(Connection pConnection, String pSql) throws SQLException {
+        return pConnection.prepareStatement(pSql).executeQuery();
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) DHBW Mannheim - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ * Written by Noah Hoelterhoff <noah.hoelterhoff@gmail.com>, 10 2026
+ */
+
+package de.noamo.cinema.backend;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Scanner;
+import java.util.function.Supplier;
+
+/**
+ * Zeitmessung für {@link Template} im Vergleich zu der früheren replace/replaceAll-Kette (JMH liegt nicht in
+ * {@code lib}, daher eine einfache Schleife mit Aufwärmphase). Gemessen wird das Erstellen der Email zur Änderung der
+ * Email-Adresse, die größte Vorlage mit drei Platzhaltern. Die Resourcen müssen im Klassenpfad liegen:
+ * <pre>java -cp "out:lib/*:res" de.noamo.cinema.backend.TemplateBenchmark [Durchläufe]</pre>
+ */
+final class TemplateBenchmark {
+    private final static int RUNDEN = 5;
+    private static int sink;
+
+    public static void main(String[] args) throws Exception {
+        int durchlaeufe = (args.length > 0 ? Integer.parseInt(args[0]) : 200000);
+        String text = load("/mails/ChangeEmailMail.html");
+        Template template = Template.compile(text, "REPLACE_WITH_NAME", "REPLACE_WITH_CODE", "REPLACE_WITH_OLD_NEW");
+
+        // Beide Varianten müssen dasselbe Ergebnis liefern
+        if (!replace(text, "Max Mustermann", 123456, true).equals(template.render("Max Mustermann", "123456", "alte")))
+            throw new IllegalStateException("Template und replace-Kette liefern unterschiedliche Ergebnisse");
+
+        System.out.println("Vorlage: " + text.length() + " Zeichen, " + durchlaeufe + " Durchläufe pro Runde");
+        for (int runde = 1; runde <= RUNDEN; runde++) {
+            // Die ersten Runden dienen dem Aufwärmen des JIT, aussagekräftig sind die letzten
+            double alt = measure(durchlaeufe, () -> replace(text, "Max Mustermann", 123456, true));
+            double neu = measure(durchlaeufe, () -> template.render("Max Mustermann", String.valueOf(123456), "alte"));
+            System.out.printf("Runde %d: replace-Kette %.2f µs, Template %.2f µs%n", runde, alt, neu);
+        }
+        System.out.println("(sink " + sink + ")");
+    }
+
+    /**
+     * Frühere Umsetzung von {@link Resources#getChangeEmailMail(String, int, boolean)}.
+     */
+    private static String replace(String pText, String pName, int pCode, boolean pOld) {
+        return pText.replace("REPLACE_WITH_NAME", pName).replace("REPLACE_WITH_CODE", "" + pCode)
+                .replaceAll("REPLACE_WITH_OLD_NEW", (pOld ? "alte" : "neue"));
+    }
+
+    /**
+     * @return Die durchschnittliche Dauer eines Aufrufs in µs
+     */
+    private static double measure(int pDurchlaeufe, Supplier<String> pAufruf) {
+        long start = System.nanoTime();
+        for (int i = 0; i < pDurchlaeufe; i++) sink += pAufruf.get().length();
+        return (System.nanoTime() - start) / 1000.0 / pDurchlaeufe;
+    }
+
+    private static String load(String pFileName) throws Exception {
+        try (InputStream inputStream = TemplateBenchmark.class.getResourceAsStream(pFileName);
+             Scanner scanner = new Scanner(inputStream, StandardCharsets.UTF_8.name()).useDelimiter("\\A")) {
+            return scanner.next();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) DHBW Mannheim - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ * Written by Noah Hoelterhoff <noah.hoelterhoff@gmail.com>, 10 2026
+ */
+
+package de.noamo.cinema.backend;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class TemplateTest {
+
+    @Test
+    void sameAsReplace() {
+        String text = "<p>Hallo REPLACE_WITH_NAME,</p><p>REPLACE_WITH_CODE</p><b>REPLACE_WITH_NAME</b>";
+        Template template = Template.compile(text, "REPLACE_WITH_NAME", "REPLACE_WITH_CODE");
+        Assertions.assertEquals(text.replace("REPLACE_WITH_NAME", "Max").replace("REPLACE_WITH_CODE", "42"),
+                template.render("Max", "42"));
+    }
+
+    @Test
+    void valuesAreLiteral() {
+        Template template = Template.compile("Link: REPLACE_WITH_LINK", "REPLACE_WITH_LINK");
+        Assertions.assertEquals("Link: https://kino/$1\\x", template.render("https://kino/$1\\x"));
+    }
+
+    @Test
+    void longestPlaceholderWins() {
+        Template template = Template.compile("A REPLACE_WITH_OLD_NEW B REPLACE_WITH_OLD", "REPLACE_WITH_OLD", "REPLACE_WITH_OLD_NEW");
+        Assertions.assertEquals("A neue B x", template.render("x", "neue"));
+    }
+
+    @Test
+    void missingPlaceholder() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Template.compile("kein Platzhalter", "REPLACE_TITLE"));
+    }
+}
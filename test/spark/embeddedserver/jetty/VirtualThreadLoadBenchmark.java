@@ -0,0 +1,172 @@
+/*
+ * Copyright 2015 - Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.embeddedserver.jetty;
+
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ThreadPool;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load harness comparing Jetty on a {@link QueuedThreadPool} of the embedded server's default size with Jetty on a
+ * {@link VirtualThreadPool}. The handler blocks for a fixed time, like a request waiting for the database, so the
+ * throughput of the platform pool is bound by its thread count while virtual threads are only bound by the clients.
+ * The virtual run needs a JDK with virtual threads (21+), on older JDKs it is reported as unavailable:
+ * <pre>java -cp "out:lib/*" spark.embeddedserver.jetty.VirtualThreadLoadBenchmark [clients] [requests per client] [blocking ms]</pre>
+ */
+final class VirtualThreadLoadBenchmark {
+
+    private static final int MAX_THREADS = 200;
+    private static final int MIN_THREADS = 8;
+    private static final int IDLE_TIMEOUT = 60000;
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int requestsPerClient = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        long blockingMillis = args.length > 2 ? Long.parseLong(args[2]) : 50;
+
+        // Keep one connection per client alive instead of the default 5
+        System.setProperty("http.maxConnections", String.valueOf(clients));
+
+        System.out.println(clients + " clients, " + requestsPerClient + " requests each, handler blocks "
+                + blockingMillis + " ms");
+
+        QueuedThreadPool platform = new QueuedThreadPool(MAX_THREADS, MIN_THREADS, IDLE_TIMEOUT);
+        run("platform (" + MAX_THREADS + " threads)", platform, clients, requestsPerClient, blockingMillis);
+
+        VirtualThreadPool virtual = VirtualThreadPool.create(MAX_THREADS, MIN_THREADS, IDLE_TIMEOUT);
+        if (virtual == null) {
+            System.out.println("virtual: unavailable, the running JDK (" + System.getProperty("java.version")
+                    + ") has no virtual threads");
+        } else {
+            run("virtual", virtual, clients, requestsPerClient, blockingMillis);
+        }
+    }
+
+    private static void run(String name,
+                            ThreadPool pool,
+                            int clients,
+                            int requestsPerClient,
+                            long blockingMillis) throws Exception {
+        Server server = new Server(pool);
+        ServerConnector connector = new ServerConnector(server);
+        connector.setPort(0);
+        connector.setAcceptQueueSize(clients);
+        server.addConnector(connector);
+        server.setHandler(new AbstractHandler() {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request,
+                               HttpServletResponse response) throws IOException {
+                try {
+                    Thread.sleep(blockingMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                baseRequest.setHandled(true);
+                response.getWriter().print("ok");
+            }
+        });
+        server.start();
+
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        try {
+            URL url = new URL("http://localhost:" + connector.getLocalPort() + "/");
+            // Warm-up, one request per client
+            load(executor, url, clients, 1);
+
+            long start = System.nanoTime();
+            long[] latencies = load(executor, url, clients, requestsPerClient);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            Arrays.sort(latencies);
+            int failed = 0;
+            while (failed < latencies.length && latencies[failed] < 0) {
+                failed++;
+            }
+            int succeeded = latencies.length - failed;
+            System.out.printf("%s: %.2f s, %.0f requests/s, p50 %d ms, p99 %d ms, %d failed%n",
+                    name, seconds, succeeded / seconds,
+                    percentile(latencies, failed, 0.50), percentile(latencies, failed, 0.99), failed);
+        } finally {
+            executor.shutdownNow();
+            server.stop();
+        }
+    }
+
+    /**
+     * @return the latency of every request in ms, negative for failed requests
+     */
+    private static long[] load(ExecutorService executor, URL url, int clients, int requestsPerClient)
+            throws InterruptedException {
+        long[] latencies = new long[clients * requestsPerClient];
+        AtomicInteger next = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(clients);
+        for (int c = 0; c < clients; c++) {
+            executor.execute(() -> {
+                try {
+                    for (int r = 0; r < requestsPerClient; r++) {
+                        latencies[next.getAndIncrement()] = request(url);
+                    }
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await(10, TimeUnit.MINUTES);
+        return latencies;
+    }
+
+    private static long request(URL url) {
+        long start = System.nanoTime();
+        try {
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            if (connection.getResponseCode() != 200) {
+                return -1;
+            }
+            try (InputStream inputStream = connection.getInputStream()) {
+                while (inputStream.read() != -1) {
+                    // drain, so the connection is kept alive
+                }
+            }
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static long percentile(long[] sorted, int from, double percentile) {
+        if (from >= sorted.length) {
+            return -1;
+        }
+        return sorted[from + (int) ((sorted.length - from - 1) * percentile)];
+    }
+}
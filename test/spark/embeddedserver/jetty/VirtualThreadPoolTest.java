@@ -0,0 +1,85 @@
+/*
+ * Copyright 2015 - Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.embeddedserver.jetty;
+
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs a Jetty server on a {@link VirtualThreadPool} whose virtual thread executor is replaced by platform threads
+ * (so it also runs on JDKs without virtual threads) and checks which tasks end up where.
+ */
+class VirtualThreadPoolTest {
+
+    private static final String REQUEST_THREAD = "test-request";
+
+    @Test
+    void requestsRunOnTheRequestExecutor() throws Exception {
+        ThreadPoolExecutor requests = new ThreadPoolExecutor(0, 64, 1, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                r -> new Thread(r, REQUEST_THREAD));
+        VirtualThreadPool pool = new VirtualThreadPool(new QueuedThreadPool(20, 4), requests);
+
+        AtomicReference<String> handledBy = new AtomicReference<>();
+        Server server = new Server(pool);
+        ServerConnector connector = new ServerConnector(server);
+        connector.setPort(0);
+        server.addConnector(connector);
+        server.setHandler(new AbstractHandler() {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request,
+                               HttpServletResponse response) throws IOException {
+                handledBy.set(Thread.currentThread().getName());
+                baseRequest.setHandled(true);
+                response.getWriter().print("ok");
+            }
+        });
+        server.start();
+
+        try {
+            HttpURLConnection connection = (HttpURLConnection)
+                    new URL("http://localhost:" + connector.getLocalPort() + "/").openConnection();
+            Assertions.assertEquals(200, connection.getResponseCode());
+            connection.getInputStream().close();
+
+            // HttpConnection fill/handle tasks are handed to the request executor
+            Assertions.assertEquals(REQUEST_THREAD, handledBy.get());
+
+            // Acceptors and selectors block for the lifetime of the server, they must not stay on the request executor
+            for (int i = 0; i < 50 && requests.getActiveCount() > 0; i++) {
+                Thread.sleep(20);
+            }
+            Assertions.assertEquals(0, requests.getActiveCount());
+        } finally {
+            server.stop();
+        }
+    }
+}
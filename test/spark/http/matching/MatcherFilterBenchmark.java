@@ -0,0 +1,196 @@
+/*
+ * Copyright 2016 - Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.http.matching;
+
+import spark.ExceptionMapper;
+import spark.Filter;
+import spark.FilterImpl;
+import spark.RouteImpl;
+import spark.route.HttpMethod;
+import spark.route.Routes;
+import spark.staticfiles.StaticFilesConfiguration;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+
+/**
+ * Allocation and timing harness for {@link MatcherFilter#doFilter}: two before filters, a route with a param and an
+ * after filter, driven with stub servlet requests and responses. It reports the bytes allocated per request (from
+ * {@link com.sun.management.ThreadMXBean#getThreadAllocatedBytes}) and the time per request, once with the thread's
+ * reused {@link RouteContext} and once with a new context, body and wrappers per request, as before the reuse. The
+ * second case keeps the thread's context acquired, so {@link RouteContext#acquire()} takes its nested dispatch path.
+ * JMH is not part of lib, so this is a plain loop with warm-up rounds:
+ * <pre>java -cp "out:lib/*" spark.http.matching.MatcherFilterBenchmark [iterations]</pre>
+ * Run it with logging above DEBUG (e.g. a logback configuration with root level INFO), Request logs every extracted
+ * param at DEBUG. The stubs allocate too (argument arrays of the proxies), equally in both cases.
+ */
+final class MatcherFilterBenchmark {
+
+    private static final int ROUNDS = 5;
+    private static final String[] PATHS = {"/vorstellungen/12", "/vorstellungen/345", "/vorstellungen/6789"};
+
+    private static int sink;
+
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            System.out.println("Thread allocation measurement is not supported by this JVM");
+            return;
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        Routes routes = Routes.create();
+        routes.add(HttpMethod.before, filter("/*", (request, response) -> response.type("application/json")));
+        routes.add(HttpMethod.before, filter("/vorstellungen/*", (request, response) -> sink++));
+        routes.add(HttpMethod.get, RouteImpl.create("/vorstellungen/:filmid", (request, response) -> request.params(":filmid")));
+        routes.add(HttpMethod.after, filter("/*", (request, response) -> response.header("Cache-Control", "no-store")));
+        MatcherFilter matcherFilter = new MatcherFilter(routes, StaticFilesConfiguration.create(), ExceptionMapper.getInstance(),
+                false, false);
+
+        HttpServletRequest[] requests = new HttpServletRequest[PATHS.length];
+        for (int i = 0; i < PATHS.length; i++) {
+            requests[i] = request(PATHS[i]);
+        }
+        HttpServletResponse response = response();
+
+        System.out.println(PATHS.length + " paths, " + iterations + " requests per round");
+        for (int round = 1; round <= ROUNDS; round++) {
+            // The first rounds warm up the JIT, the last ones count
+            Measurement reused = measure(threads, iterations, matcherFilter, requests, response);
+
+            // Keeps the thread's context in use, every request gets a new one
+            RouteContext held = RouteContext.acquire();
+            Measurement fresh;
+            try {
+                fresh = measure(threads, iterations, matcherFilter, requests, response);
+            } finally {
+                held.release();
+            }
+            System.out.printf("round %d: reused context %d bytes %.3f us, new context %d bytes %.3f us per request%n",
+                    round, reused.bytes, reused.micros, fresh.bytes, fresh.micros);
+        }
+        System.out.println("(sink " + sink + ")");
+    }
+
+    private static Measurement measure(com.sun.management.ThreadMXBean threads,
+                                       int iterations,
+                                       MatcherFilter filter,
+                                       HttpServletRequest[] requests,
+                                       HttpServletResponse response) throws Exception {
+        long thread = Thread.currentThread().getId();
+        long allocated = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            filter.doFilter(requests[i % requests.length], response, null);
+        }
+        long nanos = System.nanoTime() - start;
+        return new Measurement((threads.getThreadAllocatedBytes(thread) - allocated) / iterations,
+                nanos / 1000.0 / iterations);
+    }
+
+    private static FilterImpl filter(String path, Filter filter) {
+        return new FilterImpl(path, "*/*") {
+            @Override
+            public void handle(spark.Request request, spark.Response response) throws Exception {
+                filter.handle(request, response);
+            }
+        };
+    }
+
+    private static HttpServletRequest request(String path) {
+        return stub(HttpServletRequest.class, (proxy, method, args) -> {
+            if (method.getName().equals("getRequestURI")) {
+                return path;
+            } else if (method.getName().equals("getMethod")) {
+                return "GET";
+            } else if (method.getName().equals("getHeader") && "Accept".equals(args[0])) {
+                return "*/*";
+            }
+            return null;
+        });
+    }
+
+    private static HttpServletResponse response() {
+        ServletOutputStream outputStream = new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+                // not asynchronous
+            }
+
+            @Override
+            public void write(int b) {
+                sink++;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                sink += len;
+            }
+        };
+        return stub(HttpServletResponse.class,
+                (proxy, method, args) -> method.getName().equals("getOutputStream") ? outputStream : null);
+    }
+
+    /**
+     * Creates a stub whose unhandled methods return null, false, 0 or an empty enumeration or collection.
+     */
+    private static <T> T stub(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            Object value = handler.invoke(proxy, method, args);
+            if (value != null) {
+                return value;
+            }
+            Class<?> returnType = method.getReturnType();
+            if (returnType == boolean.class) {
+                return false;
+            } else if (returnType == int.class) {
+                return 0;
+            } else if (returnType == long.class) {
+                return 0L;
+            } else if (returnType == Enumeration.class) {
+                return Collections.emptyEnumeration();
+            } else if (Collection.class.isAssignableFrom(returnType)) {
+                return Collections.emptyList();
+            }
+            return null;
+        }));
+    }
+
+    private static final class Measurement {
+        private final long bytes;
+        private final double micros;
+
+        private Measurement(long bytes, double micros) {
+            this.bytes = bytes;
+            this.micros = micros;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.route;
+
+import spark.utils.MimeParse;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Timing harness for the Accept header negotiation. It compares the former {@link MimeParse#bestMatch}, which parsed
+ * the header and every accepted type on each call (copied below as {@link Legacy}), with the current one (parsed
+ * header and types are cached) and with the per snapshot result cache of {@link RouteTree#bestMatch}. JMH is not part
+ * of lib, so this is a plain loop with warm-up rounds:
+ * <pre>java -cp "out:lib/*" spark.route.NegotiationBenchmark [iterations]</pre>
+ */
+final class NegotiationBenchmark {
+
+    private static final int ROUNDS = 5;
+
+    private static final String[] HEADERS = {
+            "text/html,application/xhtml+xml,application/xml;q=0.9,image/webp,*/*;q=0.8",
+            "application/json, text/plain, */*",
+            "text/html,application/xhtml+xml,application/xml;q=0.9,image/avif,image/webp,image/apng,*/*;q=0.8,"
+                    + "application/signed-exchange;v=b3;q=0.9",
+            "*/*"
+    };
+
+    private static final List<List<String>> SUPPORTED = Arrays.asList(
+            Collections.singletonList("*/*"),
+            Collections.singletonList("application/json"),
+            Arrays.asList("text/html", "application/json"),
+            Arrays.asList("application/json", "text/plain", "text/html"));
+
+    private static int sink;
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 500000;
+        RouteTree tree = RouteTree.compile(Collections.emptyList());
+
+        // All variants must negotiate the same type
+        for (String header : HEADERS) {
+            for (List<String> supported : SUPPORTED) {
+                String expected = Legacy.bestMatch(supported, header);
+                if (!expected.equals(MimeParse.bestMatch(supported, header))
+                        || !expected.equals(tree.bestMatch(supported, header))) {
+                    throw new IllegalStateException("Different result for " + supported + " / " + header);
+                }
+            }
+        }
+
+        System.out.println(HEADERS.length + " headers x " + SUPPORTED.size() + " type lists, " + iterations
+                + " iterations per round");
+        for (int round = 1; round <= ROUNDS; round++) {
+            // The first rounds warm up the JIT, the last ones count
+            double legacy = measure(iterations, (supported, header) -> Legacy.bestMatch(supported, header));
+            double parsed = measure(iterations, MimeParse::bestMatch);
+            double cached = measure(iterations, tree::bestMatch);
+            System.out.printf("round %d: uncached %.3f us, parse cache %.3f us, snapshot cache %.3f us%n",
+                    round, legacy, parsed, cached);
+        }
+        System.out.println("(sink " + sink + ")");
+    }
+
+    private static double measure(int iterations, Negotiation negotiation) {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            String header = HEADERS[i % HEADERS.length];
+            List<String> supported = SUPPORTED.get((i / HEADERS.length) % SUPPORTED.size());
+            sink += negotiation.bestMatch(supported, header).length();
+        }
+        return (System.nanoTime() - start) / 1000.0 / iterations;
+    }
+
+    private interface Negotiation {
+        String bestMatch(List<String> supported, String header);
+    }
+
+    /**
+     * MimeParse#bestMatch as it was before the parse caches.
+     */
+    private static final class Legacy {
+
+        static String bestMatch(Collection<String> supported, String header) {
+            List<ParseResults> parseResults = new LinkedList<>();
+            List<FitnessAndQuality> weightedMatches = new LinkedList<>();
+            for (String r : header.split(",")) {
+                parseResults.add(parseMediaRange(r));
+            }
+
+            for (String s : supported) {
+                FitnessAndQuality fitnessAndQuality = fitnessAndQualityParsed(s, parseResults);
+                fitnessAndQuality.mimeType = s;
+                weightedMatches.add(fitnessAndQuality);
+            }
+            Collections.sort(weightedMatches);
+
+            FitnessAndQuality lastOne = weightedMatches.get(weightedMatches.size() - 1);
+            return Float.compare(lastOne.quality, 0) != 0 ? lastOne.mimeType : MimeParse.NO_MIME_TYPE;
+        }
+
+        private static FitnessAndQuality fitnessAndQualityParsed(String mimeType, Collection<ParseResults> parsedRanges) {
+            int bestFitness = -1;
+            float bestFitQ = 0;
+            ParseResults target = parseMediaRange(mimeType);
+
+            for (ParseResults range : parsedRanges) {
+                if ((target.type.equals(range.type) || range.type.equals("*") || target.type.equals("*"))
+                        && (target.subType.equals(range.subType) || range.subType.equals("*")
+                        || target.subType.equals("*"))) {
+                    for (String k : target.params.keySet()) {
+                        int paramMatches = 0;
+                        if (!k.equals("q") && range.params.containsKey(k)
+                                && target.params.get(k).equals(range.params.get(k))) {
+                            paramMatches++;
+                        }
+                        int fitness = (range.type.equals(target.type)) ? 100 : 0;
+                        fitness += (range.subType.equals(target.subType)) ? 10 : 0;
+                        fitness += paramMatches;
+                        if (fitness > bestFitness) {
+                            bestFitness = fitness;
+                            bestFitQ = toFloat(range.params.get("q"), 0);
+                        }
+                    }
+                }
+            }
+            return new FitnessAndQuality(bestFitness, bestFitQ);
+        }
+
+        private static ParseResults parseMediaRange(String range) {
+            ParseResults results = parseMimeType(range);
+            String q = results.params.get("q");
+            float f = toFloat(q, 1);
+            if (q == null || "".equals(q.trim()) || f < 0 || f > 1) {
+                results.params.put("q", "1");
+            }
+            return results;
+        }
+
+        private static ParseResults parseMimeType(String mimeType) {
+            String[] parts = mimeType.split(";");
+            ParseResults results = new ParseResults();
+            results.params = new HashMap<>();
+
+            for (int i = 1; i < parts.length; ++i) {
+                String[] subParts = parts[i].split("=");
+                if (subParts.length == 2) {
+                    results.params.put(subParts[0].trim(), subParts[1].trim());
+                }
+            }
+            String fullType = parts[0].trim();
+            if (fullType.equals("*")) {
+                fullType = "*/*";
+            }
+
+            int slashIndex = fullType.indexOf('/');
+            if (slashIndex != -1) {
+                results.type = fullType.substring(0, slashIndex);
+                results.subType = fullType.substring(slashIndex + 1);
+            } else {
+                results.type = fullType;
+                results.subType = "*";
+            }
+            return results;
+        }
+
+        private static float toFloat(final String str, final float defaultValue) {
+            if (str == null) {
+                return defaultValue;
+            }
+            try {
+                return Float.parseFloat(str);
+            } catch (final NumberFormatException nfe) {
+                return defaultValue;
+            }
+        }
+
+        private static class FitnessAndQuality implements Comparable<FitnessAndQuality> {
+            int fitness;
+            String mimeType;
+            float quality;
+
+            private FitnessAndQuality(int fitness, float quality) {
+                this.fitness = fitness;
+                this.quality = quality;
+            }
+
+            public int compareTo(FitnessAndQuality o) {
+                if (fitness == o.fitness) {
+                    return Float.compare(quality, o.quality);
+                }
+                return fitness < o.fitness ? -1 : 1;
+            }
+        }
+
+        private static class ParseResults {
+            Map<String, String> params;
+            String subType;
+            String type;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.route;
+
+import spark.Request;
+import spark.routematch.RouteMatch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Timing harness comparing a {@link RouteTree} lookup with the linear scan over {@link RouteEntry#matches} it replaced.
+ * Both sides include the param and splat extraction of {@link Request}, which the old matches had to redo by
+ * splitting the paths. JMH is not part of lib, so this is a plain loop with warm-up rounds:
+ * <pre>java -cp "out:lib/*" spark.route.RouteTreeBenchmark [iterations]</pre>
+ * The route table is the one of the cinema backend (RestServer). Run it with logging above DEBUG (e.g. a logback
+ * configuration with root level INFO), Request logs every extracted param at DEBUG.
+ */
+final class RouteTreeBenchmark {
+
+    private static final int ROUNDS = 5;
+    private static final String ACCEPT = "*/*";
+
+    private static final String[] GET_ROUTES = {
+            "/activate/:key", "/bestellung/:nummer/status", "/cache-stats", "/get-bestellungen", "/get-kategorien",
+            "/get-movies", "/get-saalplan/:id", "/get-userinfos", "/saalplan/:hash", "/saele",
+            "/vorstellung-details/:id", "/vorstellungen", "/vorstellungen/:filmid"
+    };
+
+    private static final String[] POST_ROUTES = {
+            "/add-adress", "/changeEmail/confirm", "/changeEmail/request", "/changeName", "/changePasswort",
+            "/create-account", "/deactivateAccount", "/delete-adress/:id", "/hold", "/hold/release",
+            "/invalidate/:table", "/login", "/neue-vorstellung", "/placeOrder", "/update-user", "/admin/upload-saalplan"
+    };
+
+    private static final String[] GET_PATHS = {
+            "/get-movies", "/vorstellungen/12", "/vorstellung-details/345", "/bestellung/1001/status",
+            "/saalplan/9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08", "/get-kategorien", "/unknown"
+    };
+
+    private static int sink;
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        List<RouteEntry> entries = new ArrayList<>();
+        entries.add(entry(HttpMethod.before, "/*"));
+        entries.add(entry(HttpMethod.options, "/*"));
+        for (String path : GET_ROUTES) {
+            entries.add(entry(HttpMethod.get, path));
+        }
+        for (String path : POST_ROUTES) {
+            entries.add(entry(HttpMethod.post, path));
+        }
+        RouteTree tree = RouteTree.compile(entries);
+
+        System.out.println(entries.size() + " routes, " + GET_PATHS.length + " paths, " + iterations + " iterations per round");
+        for (int round = 1; round <= ROUNDS; round++) {
+            // The first rounds warm up the JIT, the last ones count
+            double linear = measure(iterations, i -> linear(entries, GET_PATHS[i % GET_PATHS.length]));
+            double compiled = measure(iterations, i -> compiled(tree, GET_PATHS[i % GET_PATHS.length]));
+            System.out.printf("round %d: linear %.3f us, tree %.3f us per lookup%n", round, linear, compiled);
+        }
+        System.out.println("(sink " + sink + ")");
+    }
+
+    // What Routes#findMultiple and Request#changeMatch did before the tree
+    private static int linear(List<RouteEntry> entries, String path) {
+        int found = 0;
+        for (RouteEntry entry : entries) {
+            if (entry.matches(HttpMethod.get, path)) {
+                Request request = new ExtractingRequest(new RouteMatch(entry.target, entry.path, path, ACCEPT));
+                found += request.params().size() + 1;
+            }
+        }
+        return found;
+    }
+
+    private static int compiled(RouteTree tree, String path) {
+        int found = 0;
+        RouteTree.Lookup lookup = tree.lookup(HttpMethod.get, path);
+        for (RouteTree.Leaf leaf : lookup.leaves) {
+            Request request = new ExtractingRequest(lookup.match(leaf, ACCEPT));
+            found += request.params().size() + 1;
+        }
+        return found;
+    }
+
+    private static double measure(int iterations, Lookup lookup) {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += lookup.run(i);
+        }
+        return (System.nanoTime() - start) / 1000.0 / iterations;
+    }
+
+    private static RouteEntry entry(HttpMethod httpMethod, String path) {
+        RouteEntry entry = new RouteEntry();
+        entry.httpMethod = httpMethod;
+        entry.path = path;
+        entry.acceptedType = ACCEPT;
+        entry.target = httpMethod + " " + path;
+        return entry;
+    }
+
+    private interface Lookup {
+        int run(int iteration);
+    }
+
+    /**
+     * Request that only extracts the params and splat of a route match.
+     */
+    private static final class ExtractingRequest extends Request {
+
+        private ExtractingRequest(RouteMatch match) {
+            changeMatch(match);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.route;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import spark.Request;
+import spark.routematch.RouteMatch;
+import spark.utils.SparkUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compares the compiled {@link RouteTree} with the linear matching of {@link RouteEntry#matches} and the param and
+ * splat extraction of {@link Request}, for every combination of the mapped paths and request paths below.
+ */
+class RouteTreeTest {
+
+    private static final String ACCEPT = "*/*";
+
+    private static final String[] ROUTE_PATHS = {
+            "/", "/a", "/a/", "/a/b", "/a/b/", "/b/c", "/:x", "/:x/", "/a/:y", "/:x/:y", "/:x/b/",
+            "/*", "/a/*", "/*/b", "/*/b/*", "/:x/*", "/a/*/c", "/a/:Name/c",
+            "/a*", "*", "/a/b*"
+    };
+
+    private static final String[] FILTER_PATHS = {
+            SparkUtils.ALL_PATHS, "/a/*", "/:x", "/a/b", "/*/b/", "/b*"
+    };
+
+    @Test
+    void lookupMatchesLinearMatching() {
+        List<RouteEntry> entries = new ArrayList<>();
+        for (String path : FILTER_PATHS) {
+            entries.add(entry(HttpMethod.before, path));
+        }
+        for (String path : ROUTE_PATHS) {
+            entries.add(entry(HttpMethod.get, path));
+        }
+        for (String path : FILTER_PATHS) {
+            entries.add(entry(HttpMethod.after, path));
+        }
+        RouteTree tree = RouteTree.compile(entries);
+
+        for (String path : requestPaths()) {
+            for (HttpMethod httpMethod : Arrays.asList(HttpMethod.get, HttpMethod.before, HttpMethod.after, HttpMethod.post)) {
+                RouteTree.Lookup lookup = tree.lookup(httpMethod, path);
+                List<RouteEntry> found = new ArrayList<>();
+                for (RouteTree.Leaf leaf : lookup.leaves) {
+                    found.add(leaf.entry);
+                }
+                Assertions.assertEquals(linear(entries, httpMethod, path), found, httpMethod + " " + path);
+
+                for (RouteTree.Leaf leaf : lookup.leaves) {
+                    assertSameMatch(leaf.entry, path, lookup.match(leaf, ACCEPT));
+                    if (httpMethod == HttpMethod.get) {
+                        assertSameFilters(tree, leaf, HttpMethod.before, path);
+                        assertSameFilters(tree, leaf, HttpMethod.after, path);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void firstMappedWins() {
+        RouteEntry param = entry(HttpMethod.get, "/:x");
+        RouteEntry exact = entry(HttpMethod.get, "/a");
+        RouteTree tree = RouteTree.compile(Arrays.asList(param, exact));
+
+        List<RouteTree.Leaf> leaves = tree.lookup(HttpMethod.get, "/a").leaves;
+        Assertions.assertEquals(2, leaves.size());
+        Assertions.assertSame(param, leaves.get(0).entry);
+        Assertions.assertSame(exact, leaves.get(1).entry);
+    }
+
+    private static void assertSameMatch(RouteEntry entry, String path, RouteMatch match) {
+        String message = entry.path + " <- " + path;
+        Request expected = new ReferenceRequest(new RouteMatch(entry.target, entry.path, path, ACCEPT));
+        Request actual = new ReferenceRequest(match);
+        Assertions.assertEquals(expected.params(), actual.params(), message);
+        Assertions.assertArrayEquals(expected.splat(), actual.splat(), message);
+        Assertions.assertEquals(expected.matchedPath(), actual.matchedPath(), message);
+    }
+
+    /**
+     * The filter chain resolved for a route must be the filters that match the request path.
+     */
+    private static void assertSameFilters(RouteTree tree, RouteTree.Leaf route, HttpMethod filterType, String path) {
+        RouteTree.Leaf[] filters = route.filters(filterType);
+        if (filters == null) {
+            // Looked up per request
+            return;
+        }
+        List<RouteEntry> chain = new ArrayList<>();
+        for (RouteTree.Leaf filter : filters) {
+            chain.add(filter.entry);
+        }
+        Assertions.assertEquals(linear(tree.entries, filterType, path), chain,
+                filterType + " filters of " + route.entry.path + " <- " + path);
+    }
+
+    private static List<RouteEntry> linear(List<RouteEntry> entries, HttpMethod httpMethod, String path) {
+        List<RouteEntry> matches = new ArrayList<>();
+        for (RouteEntry entry : entries) {
+            if (entry.matches(httpMethod, path)) {
+                matches.add(entry);
+            }
+        }
+        return matches;
+    }
+
+    private static List<String> requestPaths() {
+        String[] segments = {"a", "b", "c", "x%20y"};
+        List<String> paths = new ArrayList<>(Arrays.asList("", "/", "//", "/a//b", "/ab", "/a/b/c/d", "/a/b/c/d/"));
+        List<String> prefixes = new ArrayList<>();
+        prefixes.add("");
+        for (int depth = 0; depth < 3; depth++) {
+            List<String> next = new ArrayList<>();
+            for (String prefix : prefixes) {
+                for (String segment : segments) {
+                    String path = prefix + "/" + segment;
+                    next.add(path);
+                    paths.add(path);
+                    paths.add(path + "/");
+                }
+            }
+            prefixes = next;
+        }
+        return paths;
+    }
+
+    private static RouteEntry entry(HttpMethod httpMethod, String path) {
+        RouteEntry entry = new RouteEntry();
+        entry.httpMethod = httpMethod;
+        entry.path = path;
+        entry.acceptedType = ACCEPT;
+        entry.target = httpMethod + " " + path;
+        return entry;
+    }
+
+    /**
+     * Request that only holds the params and splat of a route match.
+     */
+    private static final class ReferenceRequest extends Request {
+
+        private ReferenceRequest(RouteMatch match) {
+            changeMatch(match);
+        }
+    }
+}